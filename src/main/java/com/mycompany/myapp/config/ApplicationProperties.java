@@ -2,6 +2,13 @@ package com.mycompany.myapp.config;
 
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
 /**
  * Properties specific to Restricted Microservice.
  * <p>
@@ -11,4 +18,686 @@ import org.springframework.boot.context.properties.ConfigurationProperties;
 @ConfigurationProperties(prefix = "application", ignoreUnknownFields = false)
 public class ApplicationProperties {
 
+    private final Bulk bulk = new Bulk();
+
+    private final ChangeStream changeStream = new ChangeStream();
+
+    private final ChangeFeed changeFeed = new ChangeFeed();
+
+    private final Cache cache = new Cache();
+
+    private final NotFound notFound = new NotFound();
+
+    private final Projection projection = new Projection();
+
+    private final Replica replica = new Replica();
+
+    private final ReadReplica readReplica = new ReadReplica();
+
+    private final Sharding sharding = new Sharding();
+
+    private final Partitioning partitioning = new Partitioning();
+
+    public Bulk getBulk() {
+        return bulk;
+    }
+
+    public ChangeStream getChangeStream() {
+        return changeStream;
+    }
+
+    public ChangeFeed getChangeFeed() {
+        return changeFeed;
+    }
+
+    public Cache getCache() {
+        return cache;
+    }
+
+    public NotFound getNotFound() {
+        return notFound;
+    }
+
+    public Projection getProjection() {
+        return projection;
+    }
+
+    public Replica getReplica() {
+        return replica;
+    }
+
+    public ReadReplica getReadReplica() {
+        return readReplica;
+    }
+
+    public Sharding getSharding() {
+        return sharding;
+    }
+
+    public Partitioning getPartitioning() {
+        return partitioning;
+    }
+
+    public static class Bulk {
+
+        private int maxSize = 1000;
+
+        public int getMaxSize() {
+            return maxSize;
+        }
+
+        public void setMaxSize(int maxSize) {
+            this.maxSize = maxSize;
+        }
+    }
+
+    public static class ChangeStream {
+
+        private int bufferSize = 256;
+
+        private Duration timeout = Duration.ofMinutes(30);
+
+        private int senderThreads = 4;
+
+        private int senderQueueCapacity = 1000;
+
+        private Duration sendTimeout = Duration.ofSeconds(10);
+
+        public int getBufferSize() {
+            return bufferSize;
+        }
+
+        public void setBufferSize(int bufferSize) {
+            this.bufferSize = bufferSize;
+        }
+
+        public Duration getTimeout() {
+            return timeout;
+        }
+
+        public void setTimeout(Duration timeout) {
+            this.timeout = timeout;
+        }
+
+        public int getSenderThreads() {
+            return senderThreads;
+        }
+
+        public void setSenderThreads(int senderThreads) {
+            this.senderThreads = senderThreads;
+        }
+
+        public int getSenderQueueCapacity() {
+            return senderQueueCapacity;
+        }
+
+        public void setSenderQueueCapacity(int senderQueueCapacity) {
+            this.senderQueueCapacity = senderQueueCapacity;
+        }
+
+        public Duration getSendTimeout() {
+            return sendTimeout;
+        }
+
+        public void setSendTimeout(Duration sendTimeout) {
+            this.sendTimeout = sendTimeout;
+        }
+    }
+
+    public static class ChangeFeed {
+
+        private Duration tombstoneRetention = Duration.ofDays(7);
+
+        private Duration purgeInterval = Duration.ofHours(1);
+
+        public Duration getTombstoneRetention() {
+            return tombstoneRetention;
+        }
+
+        public void setTombstoneRetention(Duration tombstoneRetention) {
+            this.tombstoneRetention = tombstoneRetention;
+        }
+
+        public Duration getPurgeInterval() {
+            return purgeInterval;
+        }
+
+        public void setPurgeInterval(Duration purgeInterval) {
+            this.purgeInterval = purgeInterval;
+        }
+    }
+
+    public static class NotFound {
+
+        private boolean enabled = false;
+
+        private Duration timeToLive = Duration.ofSeconds(30);
+
+        private double falsePositiveRate = 0.01;
+
+        private Duration syncInterval = Duration.ofSeconds(5);
+
+        private Duration rebuildInterval = Duration.ofHours(24);
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public Duration getTimeToLive() {
+            return timeToLive;
+        }
+
+        public void setTimeToLive(Duration timeToLive) {
+            this.timeToLive = timeToLive;
+        }
+
+        public double getFalsePositiveRate() {
+            return falsePositiveRate;
+        }
+
+        public void setFalsePositiveRate(double falsePositiveRate) {
+            this.falsePositiveRate = falsePositiveRate;
+        }
+
+        public Duration getSyncInterval() {
+            return syncInterval;
+        }
+
+        public void setSyncInterval(Duration syncInterval) {
+            this.syncInterval = syncInterval;
+        }
+
+        public Duration getRebuildInterval() {
+            return rebuildInterval;
+        }
+
+        public void setRebuildInterval(Duration rebuildInterval) {
+            this.rebuildInterval = rebuildInterval;
+        }
+    }
+
+    public static class Projection {
+
+        private boolean enabled = false;
+
+        private Duration syncInterval = Duration.ofSeconds(5);
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public Duration getSyncInterval() {
+            return syncInterval;
+        }
+
+        public void setSyncInterval(Duration syncInterval) {
+            this.syncInterval = syncInterval;
+        }
+    }
+
+    public static class Replica {
+
+        private boolean enabled = false;
+
+        private String path = Paths.get(System.getProperty("java.io.tmpdir"), "restrictedMicroservice", "replica.bin").toString();
+
+        private Duration syncInterval = Duration.ofSeconds(5);
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public String getPath() {
+            return path;
+        }
+
+        public void setPath(String path) {
+            this.path = path;
+        }
+
+        public Duration getSyncInterval() {
+            return syncInterval;
+        }
+
+        public void setSyncInterval(Duration syncInterval) {
+            this.syncInterval = syncInterval;
+        }
+    }
+
+    public static class ReadReplica {
+
+        private final List<Pool> pools = new ArrayList<>();
+
+        private Duration readYourWrites = Duration.ZERO;
+
+        private Duration healthCheckInterval = Duration.ofSeconds(5);
+
+        /**
+         * Connection pools of the replicas of the database, which read-only transactions are balanced across.
+         */
+        public List<Pool> getPools() {
+            return pools;
+        }
+
+        public Duration getReadYourWrites() {
+            return readYourWrites;
+        }
+
+        public void setReadYourWrites(Duration readYourWrites) {
+            this.readYourWrites = readYourWrites;
+        }
+
+        public Duration getHealthCheckInterval() {
+            return healthCheckInterval;
+        }
+
+        public void setHealthCheckInterval(Duration healthCheckInterval) {
+            this.healthCheckInterval = healthCheckInterval;
+        }
+
+        public static class Pool {
+
+            private String url;
+
+            private String username;
+
+            private String password;
+
+            private Integer maximumPoolSize;
+
+            public String getUrl() {
+                return url;
+            }
+
+            public void setUrl(String url) {
+                this.url = url;
+            }
+
+            public String getUsername() {
+                return username;
+            }
+
+            public void setUsername(String username) {
+                this.username = username;
+            }
+
+            public String getPassword() {
+                return password;
+            }
+
+            public void setPassword(String password) {
+                this.password = password;
+            }
+
+            public Integer getMaximumPoolSize() {
+                return maximumPoolSize;
+            }
+
+            public void setMaximumPoolSize(Integer maximumPoolSize) {
+                this.maximumPoolSize = maximumPoolSize;
+            }
+        }
+    }
+
+    public static class Sharding {
+
+        private final List<Shard> shards = new ArrayList<>();
+
+        /**
+         * Databases holding the restrictedEntities besides the {@code spring.datasource} one, which is shard 0.
+         */
+        public List<Shard> getShards() {
+            return shards;
+        }
+
+        public static class Shard {
+
+            private String url;
+
+            private String username;
+
+            private String password;
+
+            private Integer maximumPoolSize;
+
+            public String getUrl() {
+                return url;
+            }
+
+            public void setUrl(String url) {
+                this.url = url;
+            }
+
+            public String getUsername() {
+                return username;
+            }
+
+            public void setUsername(String username) {
+                this.username = username;
+            }
+
+            public String getPassword() {
+                return password;
+            }
+
+            public void setPassword(String password) {
+                this.password = password;
+            }
+
+            public Integer getMaximumPoolSize() {
+                return maximumPoolSize;
+            }
+
+            public void setMaximumPoolSize(Integer maximumPoolSize) {
+                this.maximumPoolSize = maximumPoolSize;
+            }
+        }
+    }
+
+    public static class Partitioning {
+
+        private boolean enabled = false;
+
+        private Duration maintenanceInterval = Duration.ofHours(1);
+
+        private int partitionsAhead = 2;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public Duration getMaintenanceInterval() {
+            return maintenanceInterval;
+        }
+
+        public void setMaintenanceInterval(Duration maintenanceInterval) {
+            this.maintenanceInterval = maintenanceInterval;
+        }
+
+        /**
+         * Number of partitions kept ready above the one receiving the new ids.
+         */
+        public int getPartitionsAhead() {
+            return partitionsAhead;
+        }
+
+        public void setPartitionsAhead(int partitionsAhead) {
+            this.partitionsAhead = partitionsAhead;
+        }
+    }
+
+    public static class Cache {
+
+        private final Ehcache ehcache = new Ehcache();
+
+        private final Map<String, Region> regions = new HashMap<>();
+
+        private final Snapshot snapshot = new Snapshot();
+
+        private final Json json = new Json();
+
+        public Ehcache getEhcache() {
+            return ehcache;
+        }
+
+        public Snapshot getSnapshot() {
+            return snapshot;
+        }
+
+        public Json getJson() {
+            return json;
+        }
+
+        /**
+         * Configuration of the cache regions, by region name. Names containing dots, like entity regions, must be
+         * written in bracket notation, e.g. {@code regions."[com.mycompany.myapp.domain.RestrictedEntity]"}.
+         *
+         * @return the configuration of the regions.
+         */
+        public Map<String, Region> getRegions() {
+            return regions;
+        }
+
+        /**
+         * Cache of the RestrictedEntity JSON bytes.
+         */
+        public static class Json {
+
+            private Duration syncInterval = Duration.ofSeconds(5);
+
+            public Duration getSyncInterval() {
+                return syncInterval;
+            }
+
+            public void setSyncInterval(Duration syncInterval) {
+                this.syncInterval = syncInterval;
+            }
+        }
+
+        /**
+         * Snapshot of the most accessed entries of the RestrictedEntity region, written on graceful shutdown and
+         * loaded on startup.
+         */
+        public static class Snapshot {
+
+            private boolean enabled = false;
+
+            private int maxEntries = 10000;
+
+            private String path = Paths.get(System.getProperty("java.io.tmpdir"), "restrictedMicroservice", "cache-snapshot.bin").toString();
+
+            public boolean isEnabled() {
+                return enabled;
+            }
+
+            public void setEnabled(boolean enabled) {
+                this.enabled = enabled;
+            }
+
+            public int getMaxEntries() {
+                return maxEntries;
+            }
+
+            public void setMaxEntries(int maxEntries) {
+                this.maxEntries = maxEntries;
+            }
+
+            public String getPath() {
+                return path;
+            }
+
+            public void setPath(String path) {
+                this.path = path;
+            }
+        }
+
+        /**
+         * Storage tiers added under the heap tier sized by {@code jhipster.cache.ehcache.max-entries}.
+         */
+        public static class Ehcache {
+
+            private long offHeapSize = 0;
+
+            private long diskSize = 0;
+
+            private String diskPath = Paths.get(System.getProperty("java.io.tmpdir"), "restrictedMicroservice", "ehcache").toString();
+
+            private int compressionThreshold = 1024;
+
+            private double timeToLiveJitter = 0;
+
+            private double earlyRefreshBeta = 0;
+
+            public long getOffHeapSize() {
+                return offHeapSize;
+            }
+
+            public void setOffHeapSize(long offHeapSize) {
+                this.offHeapSize = offHeapSize;
+            }
+
+            public long getDiskSize() {
+                return diskSize;
+            }
+
+            public void setDiskSize(long diskSize) {
+                this.diskSize = diskSize;
+            }
+
+            public String getDiskPath() {
+                return diskPath;
+            }
+
+            public void setDiskPath(String diskPath) {
+                this.diskPath = diskPath;
+            }
+
+            public int getCompressionThreshold() {
+                return compressionThreshold;
+            }
+
+            public void setCompressionThreshold(int compressionThreshold) {
+                this.compressionThreshold = compressionThreshold;
+            }
+
+            public double getTimeToLiveJitter() {
+                return timeToLiveJitter;
+            }
+
+            public void setTimeToLiveJitter(double timeToLiveJitter) {
+                this.timeToLiveJitter = timeToLiveJitter;
+            }
+
+            public double getEarlyRefreshBeta() {
+                return earlyRefreshBeta;
+            }
+
+            public void setEarlyRefreshBeta(double earlyRefreshBeta) {
+                this.earlyRefreshBeta = earlyRefreshBeta;
+            }
+        }
+
+        /**
+         * Configuration of one cache region, every unset value falling back to the {@code jhipster.cache.ehcache}
+         * and {@code application.cache.ehcache} defaults.
+         */
+        public static class Region {
+
+            private Long maxEntries;
+
+            private Long heapSize;
+
+            private Long offHeapSize;
+
+            private Long diskSize;
+
+            private Boolean diskPersistent;
+
+            private Duration timeToLive;
+
+            private Duration timeToIdle;
+
+            private Double timeToLiveJitter;
+
+            private Double earlyRefreshBeta;
+
+            private String evictionAdvisor;
+
+            public Long getMaxEntries() {
+                return maxEntries;
+            }
+
+            public void setMaxEntries(Long maxEntries) {
+                this.maxEntries = maxEntries;
+            }
+
+            public Long getHeapSize() {
+                return heapSize;
+            }
+
+            public void setHeapSize(Long heapSize) {
+                this.heapSize = heapSize;
+            }
+
+            public Long getOffHeapSize() {
+                return offHeapSize;
+            }
+
+            public void setOffHeapSize(Long offHeapSize) {
+                this.offHeapSize = offHeapSize;
+            }
+
+            public Long getDiskSize() {
+                return diskSize;
+            }
+
+            public void setDiskSize(Long diskSize) {
+                this.diskSize = diskSize;
+            }
+
+            public Boolean getDiskPersistent() {
+                return diskPersistent;
+            }
+
+            public void setDiskPersistent(Boolean diskPersistent) {
+                this.diskPersistent = diskPersistent;
+            }
+
+            public Duration getTimeToLive() {
+                return timeToLive;
+            }
+
+            public void setTimeToLive(Duration timeToLive) {
+                this.timeToLive = timeToLive;
+            }
+
+            public Duration getTimeToIdle() {
+                return timeToIdle;
+            }
+
+            public void setTimeToIdle(Duration timeToIdle) {
+                this.timeToIdle = timeToIdle;
+            }
+
+            public Double getTimeToLiveJitter() {
+                return timeToLiveJitter;
+            }
+
+            public void setTimeToLiveJitter(Double timeToLiveJitter) {
+                this.timeToLiveJitter = timeToLiveJitter;
+            }
+
+            public Double getEarlyRefreshBeta() {
+                return earlyRefreshBeta;
+            }
+
+            public void setEarlyRefreshBeta(Double earlyRefreshBeta) {
+                this.earlyRefreshBeta = earlyRefreshBeta;
+            }
+
+            public String getEvictionAdvisor() {
+                return evictionAdvisor;
+            }
+
+            public void setEvictionAdvisor(String evictionAdvisor) {
+                this.evictionAdvisor = evictionAdvisor;
+            }
+        }
+    }
 }
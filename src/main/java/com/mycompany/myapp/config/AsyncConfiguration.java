@@ -40,6 +40,22 @@ public class AsyncConfiguration implements AsyncConfigurer {
         return new ExceptionHandlingAsyncTaskExecutor(executor);
     }
 
+    /**
+     * The threads sending the server-sent events of the RestrictedEntity change stream, apart from the
+     * {@code taskExecutor} since a send blocks for as long as the subscriber does not read.
+     */
+    @Bean(name = "changeStreamExecutor")
+    public ThreadPoolTaskExecutor changeStreamExecutor(ApplicationProperties applicationProperties) {
+        log.debug("Creating Change Stream Task Executor");
+        ApplicationProperties.ChangeStream changeStream = applicationProperties.getChangeStream();
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(changeStream.getSenderThreads());
+        executor.setMaxPoolSize(changeStream.getSenderThreads());
+        executor.setQueueCapacity(changeStream.getSenderQueueCapacity());
+        executor.setThreadNamePrefix("change-stream-");
+        return executor;
+    }
+
     @Override
     public AsyncUncaughtExceptionHandler getAsyncUncaughtExceptionHandler() {
         return new SimpleAsyncUncaughtExceptionHandler();
@@ -1,13 +1,43 @@
 package com.mycompany.myapp.config;
 
+import java.io.File;
 import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
 
+import javax.cache.Caching;
+
+import org.ehcache.config.EvictionAdvisor;
 import org.ehcache.config.builders.*;
+import org.ehcache.config.units.EntryUnit;
+import org.ehcache.config.units.MemoryUnit;
+import org.ehcache.core.config.DefaultConfiguration;
+import org.ehcache.event.EventType;
+import org.ehcache.expiry.ExpiryPolicy;
+import org.ehcache.impl.config.persistence.DefaultPersistenceConfiguration;
+import org.ehcache.impl.serialization.PlainJavaSerializer;
+import org.ehcache.jsr107.EhcacheCachingProvider;
 import org.ehcache.jsr107.Eh107Configuration;
+import org.ehcache.spi.serialization.Serializer;
 
+import com.mycompany.myapp.config.cache.CacheRegionMetrics;
+import com.mycompany.myapp.config.cache.HibernateCacheEntrySerializer;
+import com.mycompany.myapp.config.cache.JitteredExpiryPolicy;
+import com.mycompany.myapp.config.cache.TimedJCacheRegionFactory;
+import com.mycompany.myapp.domain.RestrictedEntity;
+import com.mycompany.myapp.repository.RestrictedEntityRepository;
+import com.mycompany.myapp.repository.RestrictedEntityShards;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.hibernate.cache.jcache.ConfigSettings;
+import org.hibernate.cfg.AvailableSettings;
 import io.github.jhipster.config.JHipsterProperties;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.boot.autoconfigure.cache.JCacheManagerCustomizer;
 import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
 import org.springframework.cache.annotation.EnableCaching;
@@ -15,42 +45,216 @@ import org.springframework.cloud.client.ServiceInstance;
 import org.springframework.cloud.client.discovery.DiscoveryClient;
 import org.springframework.cloud.client.serviceregistry.Registration;
 import org.springframework.context.annotation.*;
+import org.springframework.util.ClassUtils;
 
 @Configuration
 @EnableCaching
 public class CacheConfiguration {
 
-    private final javax.cache.configuration.Configuration<Object, Object> jcacheConfiguration;
+    private final Logger log = LoggerFactory.getLogger(CacheConfiguration.class);
+
+    private final JHipsterProperties.Cache.Ehcache ehcache;
+
+    private final ApplicationProperties.Cache.Ehcache tiers;
+
+    private final Map<String, ApplicationProperties.Cache.Region> regions;
+
+    private final Duration notFoundTimeToLive;
+
+    private final MeterRegistry meterRegistry;
 
-    public CacheConfiguration(JHipsterProperties jHipsterProperties) {
-        JHipsterProperties.Cache.Ehcache ehcache =
-            jHipsterProperties.getCache().getEhcache();
+    private final CacheRegionMetrics cacheRegionMetrics;
 
-        jcacheConfiguration = Eh107Configuration.fromEhcacheCacheConfiguration(
-            CacheConfigurationBuilder.newCacheConfigurationBuilder(Object.class, Object.class,
-                ResourcePoolsBuilder.heap(ehcache.getMaxEntries()))
-                .withExpiry(ExpiryPolicyBuilder.timeToLiveExpiration(Duration.ofSeconds(ehcache.getTimeToLiveSeconds())))
-                .build());
+    private final Map<String, JitteredExpiryPolicy> expiryPolicies = new ConcurrentHashMap<>();
+
+    public CacheConfiguration(JHipsterProperties jHipsterProperties, ApplicationProperties applicationProperties,
+                              MeterRegistry meterRegistry) {
+        ehcache = jHipsterProperties.getCache().getEhcache();
+        tiers = applicationProperties.getCache().getEhcache();
+        regions = applicationProperties.getCache().getRegions();
+        notFoundTimeToLive = applicationProperties.getNotFound().getTimeToLive();
+        this.meterRegistry = meterRegistry;
+        cacheRegionMetrics = new CacheRegionMetrics(meterRegistry);
     }
 
+    /**
+     * The JCache manager, created here rather than by Spring Boot so that it can hold the disk tier.
+     * <p>
+     * It is closed with the application context, which writes the disk tier of the regions opting in with
+     * {@code disk-persistent} back so their entries are reloaded on the next start.
+     *
+     * @param cacheManagerCustomizers the customizers creating the caches.
+     * @return the cache manager.
+     */
     @Bean
-    public HibernatePropertiesCustomizer hibernatePropertiesCustomizer(javax.cache.CacheManager cacheManager) {
-        return hibernateProperties -> hibernateProperties.put(ConfigSettings.CACHE_MANAGER, cacheManager);
+    public javax.cache.CacheManager jCacheCacheManager(ObjectProvider<JCacheManagerCustomizer> cacheManagerCustomizers) {
+        EhcacheCachingProvider provider = (EhcacheCachingProvider) Caching.getCachingProvider(EhcacheCachingProvider.class.getName());
+        ClassLoader classLoader = getClass().getClassLoader();
+        DefaultConfiguration configuration;
+        if (usesDisk()) {
+            log.debug("Storing the Ehcache disk tier in {}", tiers.getDiskPath());
+            configuration = new DefaultConfiguration(classLoader, new DefaultPersistenceConfiguration(new File(tiers.getDiskPath())));
+        } else {
+            configuration = new DefaultConfiguration(classLoader);
+        }
+        javax.cache.CacheManager cacheManager = provider.getCacheManager(provider.getDefaultURI(), configuration);
+        try {
+            cacheManagerCustomizers.orderedStream().forEach(customizer -> customizer.customize(cacheManager));
+        } catch (RuntimeException e) {
+            cacheManager.close();
+            throw e;
+        }
+        regions.keySet().stream()
+            .filter(cacheName -> cacheManager.getCache(cacheName) == null)
+            .forEach(cacheName -> log.warn("Cache region {} is configured but was never created", cacheName));
+        return cacheManager;
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer hibernatePropertiesCustomizer(javax.cache.CacheManager cacheManager,
+                                                                       @Qualifier("taskExecutor") Executor taskExecutor,
+                                                                       ObjectProvider<RestrictedEntityShards> restrictedEntityShards) {
+        // The rows of RestrictedEntity are read on the shard holding them, the other entities on the default database
+        TimedJCacheRegionFactory.RefreshRunner refreshRunner = (entityName, id, refresh) -> {
+            if (RestrictedEntity.class.getName().equals(entityName)) {
+                restrictedEntityShards.getObject().onShardOf((Long) id, () -> {
+                    refresh.run();
+                    return null;
+                });
+            } else {
+                refresh.run();
+            }
+        };
+        return hibernateProperties -> {
+            hibernateProperties.put(ConfigSettings.CACHE_MANAGER, cacheManager);
+            hibernateProperties.put(AvailableSettings.CACHE_REGION_FACTORY,
+                new TimedJCacheRegionFactory(meterRegistry, taskExecutor, refreshRunner, expiryPolicies::get));
+        };
     }
 
     @Bean
     public JCacheManagerCustomizer cacheManagerCustomizer() {
         return cm -> {
+            // Nothing evicts these two while the node is down, so they are never reloaded from the disk tier
+            createCache(cm, RestrictedEntityRepository.NOT_FOUND_CACHE, notFoundTimeToLive, false);
+            createCache(cm, RestrictedEntityRepository.JSON_CACHE, defaultTimeToLive(), false);
             createCache(cm, com.mycompany.myapp.domain.RestrictedEntity.class.getName());
             // jhipster-needle-ehcache-add-entry
         };
     }
 
     private void createCache(javax.cache.CacheManager cm, String cacheName) {
+        createCache(cm, cacheName, defaultTimeToLive(), true);
+    }
+
+    private void createCache(javax.cache.CacheManager cm, String cacheName, Duration defaultTimeToLive, boolean persistable) {
         javax.cache.Cache<Object, Object> cache = cm.getCache(cacheName);
         if (cache != null) {
             cm.destroyCache(cacheName);
         }
-        cm.createCache(cacheName, jcacheConfiguration);
+        cm.createCache(cacheName, jcacheConfiguration(cacheName, defaultTimeToLive, persistable));
+        cacheRegionMetrics.monitor(cm, cacheName);
+    }
+
+    /**
+     * Build the configuration of a cache region from its {@code application.cache.regions} entry, falling back to
+     * the {@code jhipster.cache.ehcache} and {@code application.cache.ehcache} defaults for every unset value. The
+     * disk tier is kept across restarts only for the persistable regions setting {@code disk-persistent}.
+     */
+    private javax.cache.configuration.Configuration<Object, Object> jcacheConfiguration(String cacheName, Duration defaultTimeToLive,
+                                                                                        boolean persistable) {
+        ApplicationProperties.Cache.Region region = regions.getOrDefault(cacheName, new ApplicationProperties.Cache.Region());
+
+        ResourcePoolsBuilder resourcePools = ResourcePoolsBuilder.newResourcePoolsBuilder();
+        if (region.getHeapSize() != null) {
+            resourcePools = resourcePools.heap(region.getHeapSize(), MemoryUnit.B);
+        } else {
+            resourcePools = resourcePools.heap(valueOrDefault(region.getMaxEntries(), (long) ehcache.getMaxEntries()), EntryUnit.ENTRIES);
+        }
+        long offHeapSize = valueOrDefault(region.getOffHeapSize(), tiers.getOffHeapSize());
+        if (offHeapSize > 0) {
+            resourcePools = resourcePools.offheap(offHeapSize, MemoryUnit.B);
+        }
+        boolean diskPersistent = Boolean.TRUE.equals(region.getDiskPersistent());
+        if (diskPersistent && !persistable) {
+            throw new IllegalStateException("Cache region " + cacheName + " cannot keep its disk tier across restarts");
+        }
+        long diskSize = valueOrDefault(region.getDiskSize(), tiers.getDiskSize());
+        if (diskSize > 0) {
+            resourcePools = resourcePools.disk(diskSize, MemoryUnit.B, diskPersistent);
+        }
+
+        CacheConfigurationBuilder<Object, Object> builder = CacheConfigurationBuilder.newCacheConfigurationBuilder(Object.class, Object.class,
+            resourcePools);
+        ExpiryPolicy<Object, Object> expiryPolicy = expiryPolicy(cacheName, region, defaultTimeToLive);
+        builder = builder.withExpiry(expiryPolicy);
+        if (expiryPolicy instanceof JitteredExpiryPolicy) {
+            JitteredExpiryPolicy jitteredExpiryPolicy = (JitteredExpiryPolicy) expiryPolicy;
+            expiryPolicies.put(cacheName, jitteredExpiryPolicy);
+            if (jitteredExpiryPolicy.isEarlyRefreshEnabled()) {
+                builder = builder.add(CacheEventListenerConfigurationBuilder
+                    .newEventListenerConfiguration(jitteredExpiryPolicy, EventType.EVICTED, EventType.EXPIRED, EventType.REMOVED)
+                    .unordered().synchronous());
+            }
+        } else {
+            expiryPolicies.remove(cacheName);
+        }
+        if (offHeapSize > 0 || diskSize > 0) {
+            // Entries leaving the heap are serialized: Hibernate cache keys are Serializable
+            builder = builder
+                .withKeySerializer(javaSerializer())
+                .withValueSerializer(new HibernateCacheEntrySerializer(getClass().getClassLoader(), tiers.getCompressionThreshold()));
+        }
+        if (region.getEvictionAdvisor() != null) {
+            builder = builder.withEvictionAdvisor(evictionAdvisor(region.getEvictionAdvisor()));
+        }
+        return Eh107Configuration.fromEhcacheCacheConfiguration(builder.build());
+    }
+
+    private ExpiryPolicy<Object, Object> expiryPolicy(String cacheName, ApplicationProperties.Cache.Region region,
+                                                      Duration defaultTimeToLive) {
+        if (region.getTimeToIdle() != null) {
+            if (region.getTimeToLive() != null) {
+                throw new IllegalStateException("Cache region " + cacheName + " cannot have both a time-to-live and a time-to-idle");
+            }
+            if (region.getTimeToLiveJitter() != null || region.getEarlyRefreshBeta() != null) {
+                throw new IllegalStateException("Cache region " + cacheName + " cannot jitter or refresh early a time-to-idle");
+            }
+            return ExpiryPolicyBuilder.timeToIdleExpiration(region.getTimeToIdle());
+        }
+        Duration timeToLive = valueOrDefault(region.getTimeToLive(), defaultTimeToLive);
+        double jitter = valueOrDefault(region.getTimeToLiveJitter(), tiers.getTimeToLiveJitter());
+        double earlyRefreshBeta = valueOrDefault(region.getEarlyRefreshBeta(), tiers.getEarlyRefreshBeta());
+        if (jitter > 0 || earlyRefreshBeta > 0) {
+            return new JitteredExpiryPolicy(timeToLive, jitter, earlyRefreshBeta);
+        }
+        return ExpiryPolicyBuilder.timeToLiveExpiration(timeToLive);
+    }
+
+    @SuppressWarnings("unchecked")
+    private EvictionAdvisor<Object, Object> evictionAdvisor(String className) {
+        try {
+            return BeanUtils.instantiateClass(ClassUtils.forName(className, getClass().getClassLoader()), EvictionAdvisor.class);
+        } catch (ClassNotFoundException e) {
+            throw new IllegalStateException("Cache eviction advisor " + className + " not found", e);
+        }
+    }
+
+    private Duration defaultTimeToLive() {
+        return Duration.ofSeconds(ehcache.getTimeToLiveSeconds());
+    }
+
+    private boolean usesDisk() {
+        return tiers.getDiskSize() > 0 ||
+            regions.values().stream().anyMatch(region -> region.getDiskSize() != null && region.getDiskSize() > 0);
+    }
+
+    private static <T> T valueOrDefault(T value, T defaultValue) {
+        return value != null ? value : defaultValue;
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Class<? extends Serializer<Object>> javaSerializer() {
+        return (Class) PlainJavaSerializer.class;
     }
 }
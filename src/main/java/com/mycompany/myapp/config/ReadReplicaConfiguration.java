@@ -0,0 +1,90 @@
+package com.mycompany.myapp.config;
+
+import com.mycompany.myapp.config.datasource.ReadReplicaRoutingDataSource;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.annotation.PreDestroy;
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Sends read-only transactions to the replicas of the database listed in {@code application.read-replica.pools}.
+ * <p>
+ * The primary pool is built from {@code spring.datasource} as Spring Boot would, and each replica pool copies its
+ * settings, except for the connection ones. The {@link ReadReplicaRoutingDataSource} choosing between them is the
+ * primary {@link DataSource}, wrapped in a {@link LazyConnectionDataSourceProxy}.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "application.read-replica", name = "pools[0].url")
+public class ReadReplicaConfiguration {
+
+    private final Logger log = LoggerFactory.getLogger(ReadReplicaConfiguration.class);
+
+    private final List<HikariDataSource> replicaDataSources = new ArrayList<>();
+
+    private ReadReplicaRoutingDataSource routingDataSource;
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties dataSourceProperties) {
+        return dataSourceProperties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(HikariDataSource primaryDataSource, ApplicationProperties applicationProperties,
+                                MeterRegistry meterRegistry) {
+        ApplicationProperties.ReadReplica readReplica = applicationProperties.getReadReplica();
+        Map<String, DataSource> replicas = new LinkedHashMap<>();
+        for (ApplicationProperties.ReadReplica.Pool pool : readReplica.getPools()) {
+            HikariConfig config = new HikariConfig();
+            primaryDataSource.copyStateTo(config);
+            config.setPoolName(primaryDataSource.getPoolName() + "-replica-" + replicas.size());
+            config.setJdbcUrl(pool.getUrl());
+            config.setUsername(pool.getUsername());
+            config.setPassword(pool.getPassword());
+            if (pool.getMaximumPoolSize() != null) {
+                config.setMaximumPoolSize(pool.getMaximumPoolSize());
+            }
+            config.setReadOnly(true);
+            // A replica down at startup is skipped rather than failing the startup
+            config.setInitializationFailTimeout(-1);
+            config.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(meterRegistry));
+            HikariDataSource replicaDataSource = new HikariDataSource(config);
+            replicaDataSources.add(replicaDataSource);
+            replicas.put(config.getPoolName(), replicaDataSource);
+        }
+        log.info("Routing read-only transactions to the replicas {}", replicas.keySet());
+        routingDataSource = new ReadReplicaRoutingDataSource(primaryDataSource, replicas, readReplica.getReadYourWrites(), meterRegistry);
+        return new LazyConnectionDataSourceProxy(routingDataSource);
+    }
+
+    @Scheduled(fixedDelayString = "#{T(org.springframework.boot.convert.DurationStyle)" +
+        ".detectAndParse('${application.read-replica.health-check-interval:5s}').toMillis()}")
+    public void checkReplicas() {
+        if (routingDataSource != null) {
+            routingDataSource.checkReplicas();
+        }
+    }
+
+    @PreDestroy
+    public void closeReplicas() {
+        replicaDataSources.forEach(HikariDataSource::close);
+    }
+}
@@ -0,0 +1,120 @@
+package com.mycompany.myapp.config;
+
+import com.mycompany.myapp.config.datasource.ShardRoutingDataSource;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.github.jhipster.config.JHipsterConstants;
+import io.micrometer.core.instrument.MeterRegistry;
+import liquibase.exception.LiquibaseException;
+import liquibase.integration.spring.SpringLiquibase;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.liquibase.LiquibaseProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.core.env.Profiles;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.annotation.PreDestroy;
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Spreads the restrictedEntities across the databases listed in {@code application.sharding.shards}, the
+ * {@code spring.datasource} one being shard 0.
+ * <p>
+ * Shard 0 is built from {@code spring.datasource} as Spring Boot would, and each other shard copies its settings,
+ * except for the connection ones, and gets its own Liquibase run. The {@link ShardRoutingDataSource} choosing between
+ * them is the primary {@link DataSource}, wrapped in a {@link LazyConnectionDataSourceProxy}.
+ * <p>
+ * The change feed is read from shard 0 only, so the services syncing from it cannot be enabled with shards.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "application.sharding", name = "shards[0].url")
+public class ShardingConfiguration {
+
+    private final Logger log = LoggerFactory.getLogger(ShardingConfiguration.class);
+
+    private final List<HikariDataSource> shardDataSources = new ArrayList<>();
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties dataSourceProperties) {
+        return dataSourceProperties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    @Bean
+    public ShardRoutingDataSource shardRoutingDataSource(HikariDataSource primaryDataSource,
+                                                         ApplicationProperties applicationProperties,
+                                                         LiquibaseProperties liquibaseProperties,
+                                                         ResourceLoader resourceLoader, Environment env,
+                                                         MeterRegistry meterRegistry) throws LiquibaseException {
+        if (!applicationProperties.getReadReplica().getPools().isEmpty()) {
+            throw new IllegalStateException("application.read-replica cannot be combined with application.sharding");
+        }
+        if (applicationProperties.getProjection().isEnabled() || applicationProperties.getReplica().isEnabled()) {
+            throw new IllegalStateException("application.projection and application.replica cannot be enabled " +
+                "with application.sharding, their change feed is read from shard 0 only");
+        }
+        List<DataSource> shards = new ArrayList<>();
+        shards.add(primaryDataSource);
+        for (ApplicationProperties.Sharding.Shard shard : applicationProperties.getSharding().getShards()) {
+            HikariConfig config = new HikariConfig();
+            primaryDataSource.copyStateTo(config);
+            config.setPoolName(primaryDataSource.getPoolName() + "-shard-" + shards.size());
+            config.setJdbcUrl(shard.getUrl());
+            config.setUsername(shard.getUsername());
+            config.setPassword(shard.getPassword());
+            if (shard.getMaximumPoolSize() != null) {
+                config.setMaximumPoolSize(shard.getMaximumPoolSize());
+            }
+            config.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(meterRegistry));
+            HikariDataSource shardDataSource = new HikariDataSource(config);
+            shardDataSources.add(shardDataSource);
+            migrate(shardDataSource, liquibaseProperties, resourceLoader, env);
+            shards.add(shardDataSource);
+        }
+        log.info("Spreading the restrictedEntities across {} shards", shards.size());
+        return new ShardRoutingDataSource(shards, meterRegistry);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(ShardRoutingDataSource shardRoutingDataSource) {
+        return new LazyConnectionDataSourceProxy(shardRoutingDataSource);
+    }
+
+    /**
+     * Run the Liquibase changelog on a shard other than shard 0, which is migrated by the {@code liquibase} bean.
+     * <p>
+     * The run is synchronous, so the shard is up to date before any request reaches it.
+     */
+    private void migrate(DataSource shardDataSource, LiquibaseProperties liquibaseProperties,
+                         ResourceLoader resourceLoader, Environment env) throws LiquibaseException {
+        if (env.acceptsProfiles(Profiles.of(JHipsterConstants.SPRING_PROFILE_NO_LIQUIBASE)) || !liquibaseProperties.isEnabled()) {
+            return;
+        }
+        SpringLiquibase liquibase = new SpringLiquibase();
+        liquibase.setResourceLoader(resourceLoader);
+        liquibase.setDataSource(shardDataSource);
+        liquibase.setChangeLog("classpath:config/liquibase/master.xml");
+        liquibase.setContexts(liquibaseProperties.getContexts());
+        liquibase.setDefaultSchema(liquibaseProperties.getDefaultSchema());
+        liquibase.setDropFirst(liquibaseProperties.isDropFirst());
+        liquibase.setChangeLogParameters(liquibaseProperties.getParameters());
+        liquibase.afterPropertiesSet();
+    }
+
+    @PreDestroy
+    public void closeShards() {
+        shardDataSources.forEach(HikariDataSource::close);
+    }
+}
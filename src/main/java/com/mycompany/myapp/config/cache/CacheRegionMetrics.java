@@ -0,0 +1,113 @@
+package com.mycompany.myapp.config.cache;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import org.ehcache.core.spi.service.StatisticsService;
+import org.ehcache.core.statistics.CacheStatistics;
+import org.ehcache.core.statistics.TierStatistics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.util.ReflectionUtils;
+
+import javax.cache.CacheManager;
+import java.lang.reflect.Field;
+import java.util.function.ToLongFunction;
+
+/**
+ * Binds the Ehcache statistics of the cache regions to Micrometer, tagged with the region name.
+ * <p>
+ * Hits, misses, puts, removals, evictions and expirations are exposed as counters, and the entries and bytes held by
+ * each tier ({@code OnHeap}, {@code OffHeap}, {@code Disk}) as gauges. The statistics are those of the Ehcache
+ * {@link StatisticsService} backing the JSR-107 statistics MBeans, so no statistics need to be enabled.
+ * Meters are named {@code cache.region.*}: Spring Boot already binds the same caches as {@code cache.*} with
+ * other tags, which Prometheus rejects for a same meter name.
+ */
+public class CacheRegionMetrics {
+
+    private static final String REGION_TAG = "region";
+
+    private final Logger log = LoggerFactory.getLogger(CacheRegionMetrics.class);
+
+    private final MeterRegistry meterRegistry;
+
+    public CacheRegionMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Register the meters of a cache region.
+     *
+     * @param cacheManager the JCache manager holding the region.
+     * @param cacheName the name of the region.
+     */
+    public void monitor(CacheManager cacheManager, String cacheName) {
+        StatisticsService statisticsService = statisticsService(cacheManager);
+        if (statisticsService == null) {
+            log.warn("Ehcache statistics are not available, cache region {} is not monitored", cacheName);
+            return;
+        }
+        Tags tags = Tags.of(REGION_TAG, cacheName);
+        counter("cache.region.gets", "The number of times cache lookup methods have returned a cached value",
+            tags.and("result", "hit"), statisticsService, cacheName, CacheStatistics::getCacheHits);
+        counter("cache.region.gets", "The number of times cache lookup methods have not returned a value",
+            tags.and("result", "miss"), statisticsService, cacheName, CacheStatistics::getCacheMisses);
+        counter("cache.region.puts", "The number of entries added to the cache",
+            tags, statisticsService, cacheName, CacheStatistics::getCachePuts);
+        counter("cache.region.removals", "The number of entries removed from the cache",
+            tags, statisticsService, cacheName, CacheStatistics::getCacheRemovals);
+        counter("cache.region.evictions", "The number of entries evicted from the cache",
+            tags, statisticsService, cacheName, CacheStatistics::getCacheEvictions);
+        counter("cache.region.expirations", "The number of entries expired from the cache",
+            tags, statisticsService, cacheName, CacheStatistics::getCacheExpirations);
+
+        for (String tier : statisticsService.getCacheStatistics(cacheName).getTierStatistics().keySet()) {
+            Tags tierTags = tags.and("tier", tier);
+            tierGauge("cache.region.tier.entries", "The number of entries held by the tier",
+                tierTags, statisticsService, cacheName, tier, TierStatistics::getMappings);
+            tierGauge("cache.region.tier.occupied.bytes", "The number of bytes used by the entries of the tier",
+                tierTags, statisticsService, cacheName, tier, TierStatistics::getOccupiedByteSize);
+            tierGauge("cache.region.tier.allocated.bytes", "The number of bytes reserved by the tier",
+                tierTags, statisticsService, cacheName, tier, TierStatistics::getAllocatedByteSize);
+        }
+    }
+
+    private void counter(String name, String description, Tags tags, StatisticsService statisticsService,
+                         String cacheName, ToLongFunction<CacheStatistics> statistic) {
+        FunctionCounter.builder(name, statisticsService, service -> read(service, cacheName, statistic))
+            .tags(tags)
+            .description(description)
+            .register(meterRegistry);
+    }
+
+    private void tierGauge(String name, String description, Tags tags, StatisticsService statisticsService,
+                           String cacheName, String tier, ToLongFunction<TierStatistics> statistic) {
+        Gauge.builder(name, statisticsService,
+            service -> read(service, cacheName, statistics -> statistic.applyAsLong(statistics.getTierStatistics().get(tier))))
+            .tags(tags)
+            .description(description)
+            .register(meterRegistry);
+    }
+
+    private static double read(StatisticsService statisticsService, String cacheName, ToLongFunction<CacheStatistics> statistic) {
+        try {
+            return statistic.applyAsLong(statisticsService.getCacheStatistics(cacheName));
+        } catch (RuntimeException e) {
+            // the region was destroyed or is being recreated
+            return Double.NaN;
+        }
+    }
+
+    /**
+     * The JSR-107 cache manager of Ehcache keeps its statistics service private, it is the only way to reach it.
+     */
+    private static StatisticsService statisticsService(CacheManager cacheManager) {
+        Field field = ReflectionUtils.findField(cacheManager.getClass(), "statisticsService", StatisticsService.class);
+        if (field == null) {
+            return null;
+        }
+        ReflectionUtils.makeAccessible(field);
+        return (StatisticsService) ReflectionUtils.getField(field, cacheManager);
+    }
+}
@@ -0,0 +1,292 @@
+package com.mycompany.myapp.config.cache;
+
+import org.ehcache.impl.serialization.PlainJavaSerializer;
+import org.ehcache.spi.serialization.Serializer;
+import org.ehcache.spi.serialization.SerializerException;
+import org.hibernate.cache.spi.entry.StandardCacheEntryImpl;
+
+import java.io.Serializable;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Ehcache {@link Serializer} for the values of the Hibernate second-level cache regions, used when entries leave
+ * the heap tier.
+ * <p>
+ * Entity entries ({@link StandardCacheEntryImpl}) are written property by property, each value prefixed by a one byte
+ * type tag and numbers as variable-length integers, where Java serialization writes class descriptors for every entry.
+ * Strings longer than the compression threshold are deflated when that makes them smaller. Any other value falls back
+ * to Java serialization.
+ */
+public class HibernateCacheEntrySerializer implements Serializer<Object> {
+
+    private static final byte JAVA_SERIALIZED = 0;
+    private static final byte CACHE_ENTRY = 1;
+
+    private static final byte NULL = 0;
+    private static final byte LONG = 1;
+    private static final byte INTEGER = 2;
+    private static final byte BOOLEAN = 3;
+    private static final byte STRING = 4;
+    private static final byte DEFLATED_STRING = 5;
+    private static final byte OBJECT = 6;
+
+    /**
+     * Output buffers larger than this are not kept for the next entry.
+     */
+    private static final int MAX_RETAINED_BUFFER_SIZE = 64 * 1024;
+
+    private static final Constructor<StandardCacheEntryImpl> CACHE_ENTRY_CONSTRUCTOR;
+
+    static {
+        try {
+            // the constructor Hibernate uses to copy entries is package-private
+            CACHE_ENTRY_CONSTRUCTOR = StandardCacheEntryImpl.class.getDeclaredConstructor(Serializable[].class, String.class, Object.class);
+            CACHE_ENTRY_CONSTRUCTOR.setAccessible(true);
+        } catch (NoSuchMethodException e) {
+            throw new IllegalStateException("Unsupported Hibernate version", e);
+        }
+    }
+
+    private final Serializer<Object> javaSerializer;
+
+    private final int compressionThreshold;
+
+    private final ThreadLocal<Output> outputs = ThreadLocal.withInitial(Output::new);
+
+    private final ThreadLocal<Deflater> deflaters = ThreadLocal.withInitial(() -> new Deflater(Deflater.BEST_SPEED));
+
+    private final ThreadLocal<Inflater> inflaters = ThreadLocal.withInitial(Inflater::new);
+
+    /**
+     * @param classLoader the class loader of the values serialized with Java serialization.
+     * @param compressionThreshold the length in bytes from which strings are compressed, or {@code 0} to never compress them.
+     */
+    public HibernateCacheEntrySerializer(ClassLoader classLoader, int compressionThreshold) {
+        this.javaSerializer = new PlainJavaSerializer<>(classLoader);
+        this.compressionThreshold = compressionThreshold;
+    }
+
+    @Override
+    public ByteBuffer serialize(Object object) throws SerializerException {
+        Output output = outputs.get();
+        output.reset();
+        try {
+            if (object instanceof StandardCacheEntryImpl) {
+                StandardCacheEntryImpl cacheEntry = (StandardCacheEntryImpl) object;
+                output.writeByte(CACHE_ENTRY);
+                writeValue(output, cacheEntry.getSubclass());
+                writeValue(output, cacheEntry.getVersion());
+                Serializable[] state = cacheEntry.getDisassembledState();
+                output.writeVarLong(state.length);
+                for (Serializable value : state) {
+                    writeValue(output, value);
+                }
+            } else {
+                output.writeByte(JAVA_SERIALIZED);
+                output.writeBytes(javaSerializer.serialize(object));
+            }
+            return ByteBuffer.wrap(output.toByteArray());
+        } finally {
+            if (output.capacity() > MAX_RETAINED_BUFFER_SIZE) {
+                outputs.remove();
+            }
+        }
+    }
+
+    @Override
+    public Object read(ByteBuffer binary) throws ClassNotFoundException, SerializerException {
+        if (binary.get() == JAVA_SERIALIZED) {
+            return javaSerializer.read(binary);
+        }
+        String subclass = (String) readValue(binary);
+        Object version = readValue(binary);
+        Serializable[] state = new Serializable[(int) readVarLong(binary)];
+        for (int i = 0; i < state.length; i++) {
+            state[i] = (Serializable) readValue(binary);
+        }
+        return newCacheEntry(state, subclass, version);
+    }
+
+    @Override
+    public boolean equals(Object object, ByteBuffer binary) throws ClassNotFoundException, SerializerException {
+        return object.equals(read(binary));
+    }
+
+    static StandardCacheEntryImpl newCacheEntry(Serializable[] state, String subclass, Object version) {
+        try {
+            return CACHE_ENTRY_CONSTRUCTOR.newInstance(state, subclass, version);
+        } catch (InstantiationException | IllegalAccessException | InvocationTargetException e) {
+            throw new SerializerException(e);
+        }
+    }
+
+    private void writeValue(Output output, Object value) {
+        if (value == null) {
+            output.writeByte(NULL);
+        } else if (value instanceof Long) {
+            output.writeByte(LONG);
+            output.writeVarLong((Long) value);
+        } else if (value instanceof Integer) {
+            output.writeByte(INTEGER);
+            output.writeVarLong((Integer) value);
+        } else if (value instanceof Boolean) {
+            output.writeByte(BOOLEAN);
+            output.writeByte((Boolean) value ? (byte) 1 : (byte) 0);
+        } else if (value instanceof String) {
+            writeString(output, (String) value);
+        } else {
+            output.writeByte(OBJECT);
+            ByteBuffer serialized = javaSerializer.serialize(value);
+            output.writeVarLong(serialized.remaining());
+            output.writeBytes(serialized);
+        }
+    }
+
+    private void writeString(Output output, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (compressionThreshold > 0 && bytes.length >= compressionThreshold) {
+            Deflater deflater = deflaters.get();
+            deflater.reset();
+            deflater.setInput(bytes);
+            deflater.finish();
+            byte[] compressed = new byte[bytes.length];
+            int compressedLength = deflater.deflate(compressed);
+            if (deflater.finished() && compressedLength < bytes.length) {
+                output.writeByte(DEFLATED_STRING);
+                output.writeVarLong(bytes.length);
+                output.writeVarLong(compressedLength);
+                output.writeBytes(compressed, compressedLength);
+                return;
+            }
+        }
+        output.writeByte(STRING);
+        output.writeVarLong(bytes.length);
+        output.writeBytes(bytes, bytes.length);
+    }
+
+    private Object readValue(ByteBuffer binary) throws ClassNotFoundException {
+        byte tag = binary.get();
+        switch (tag) {
+            case NULL:
+                return null;
+            case LONG:
+                return readVarLong(binary);
+            case INTEGER:
+                return (int) readVarLong(binary);
+            case BOOLEAN:
+                return binary.get() != 0;
+            case STRING:
+                return readString(binary, (int) readVarLong(binary));
+            case DEFLATED_STRING:
+                return readDeflatedString(binary);
+            case OBJECT:
+                int length = (int) readVarLong(binary);
+                ByteBuffer serialized = binary.slice();
+                serialized.limit(length);
+                binary.position(binary.position() + length);
+                return javaSerializer.read(serialized);
+            default:
+                throw new SerializerException("Unknown value tag " + tag);
+        }
+    }
+
+    private static String readString(ByteBuffer binary, int length) {
+        if (binary.hasArray()) {
+            String value = new String(binary.array(), binary.arrayOffset() + binary.position(), length, StandardCharsets.UTF_8);
+            binary.position(binary.position() + length);
+            return value;
+        }
+        byte[] bytes = new byte[length];
+        binary.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private String readDeflatedString(ByteBuffer binary) {
+        byte[] bytes = new byte[(int) readVarLong(binary)];
+        byte[] compressed = new byte[(int) readVarLong(binary)];
+        binary.get(compressed);
+        Inflater inflater = inflaters.get();
+        inflater.reset();
+        inflater.setInput(compressed);
+        try {
+            inflater.inflate(bytes);
+        } catch (DataFormatException e) {
+            throw new SerializerException(e);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static long readVarLong(ByteBuffer binary) {
+        long zigZag = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = binary.get();
+            zigZag |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return (zigZag >>> 1) ^ -(zigZag & 1);
+            }
+        }
+    }
+
+    /**
+     * A growable byte array, reused by a thread for all the entries it serializes.
+     */
+    private static final class Output {
+
+        private byte[] buffer = new byte[256];
+
+        private int length;
+
+        void reset() {
+            length = 0;
+        }
+
+        int capacity() {
+            return buffer.length;
+        }
+
+        void writeByte(byte b) {
+            ensureCapacity(1);
+            buffer[length++] = b;
+        }
+
+        void writeVarLong(long value) {
+            ensureCapacity(10);
+            long zigZag = (value << 1) ^ (value >> 63);
+            while ((zigZag & ~0x7FL) != 0) {
+                buffer[length++] = (byte) ((zigZag & 0x7F) | 0x80);
+                zigZag >>>= 7;
+            }
+            buffer[length++] = (byte) zigZag;
+        }
+
+        void writeBytes(byte[] bytes, int count) {
+            ensureCapacity(count);
+            System.arraycopy(bytes, 0, buffer, length, count);
+            length += count;
+        }
+
+        void writeBytes(ByteBuffer bytes) {
+            int count = bytes.remaining();
+            ensureCapacity(count);
+            bytes.get(buffer, length, count);
+            length += count;
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(buffer, length);
+        }
+
+        private void ensureCapacity(int count) {
+            if (length + count > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, length + count));
+            }
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.mycompany.myapp.config.cache;
+
+import org.ehcache.event.CacheEvent;
+import org.ehcache.event.CacheEventListener;
+import org.ehcache.expiry.ExpiryPolicy;
+
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+/**
+ * A time-to-live expiry policy that shortens the time-to-live of every entry by a random fraction, so that entries
+ * loaded together do not all expire together, and that can tell when a hit entry should be refreshed before it
+ * expires.
+ * <p>
+ * An entry read at {@code now} is refreshed when {@code now - delta * beta * ln(random()) >= expiry}, {@code delta}
+ * being the time a refresh takes. When early refreshes are enabled, the policy must also be registered as a
+ * synchronous {@link CacheEventListener}.
+ */
+public class JitteredExpiryPolicy implements ExpiryPolicy<Object, Object>, CacheEventListener<Object, Object> {
+
+    private final long timeToLiveNanos;
+
+    private final double jitter;
+
+    private final double earlyRefreshBeta;
+
+    private final ConcurrentMap<Object, Long> expirations = new ConcurrentHashMap<>();
+
+    /**
+     * @param timeToLive the longest time-to-live of the entries.
+     * @param jitter the largest fraction, between 0 and 1, of the time-to-live removed from each entry.
+     * @param earlyRefreshBeta how early hit entries are refreshed, 0 to never refresh them.
+     */
+    public JitteredExpiryPolicy(Duration timeToLive, double jitter, double earlyRefreshBeta) {
+        if (jitter < 0 || jitter >= 1) {
+            throw new IllegalArgumentException("The time-to-live jitter must be between 0 and 1, not " + jitter);
+        }
+        if (earlyRefreshBeta < 0) {
+            throw new IllegalArgumentException("The early refresh beta must be positive, not " + earlyRefreshBeta);
+        }
+        this.timeToLiveNanos = timeToLive.toNanos();
+        this.jitter = jitter;
+        this.earlyRefreshBeta = earlyRefreshBeta;
+    }
+
+    public boolean isEarlyRefreshEnabled() {
+        return earlyRefreshBeta > 0;
+    }
+
+    @Override
+    public Duration getExpiryForCreation(Object key, Object value) {
+        return expireLater(key);
+    }
+
+    @Override
+    public Duration getExpiryForAccess(Object key, Supplier<?> value) {
+        return null;
+    }
+
+    @Override
+    public Duration getExpiryForUpdate(Object key, Supplier<?> oldValue, Object newValue) {
+        return expireLater(key);
+    }
+
+    private Duration expireLater(Object key) {
+        long expiryNanos = timeToLiveNanos - (long) (timeToLiveNanos * jitter * ThreadLocalRandom.current().nextDouble());
+        if (isEarlyRefreshEnabled()) {
+            expirations.put(key, System.nanoTime() + expiryNanos);
+        }
+        return Duration.ofNanos(expiryNanos);
+    }
+
+    /**
+     * Tell whether an entry that was just read from the cache should be refreshed before it expires.
+     *
+     * @param key the key of the entry.
+     * @param deltaNanos the time a refresh takes, in nanoseconds.
+     * @return true if the entry should be refreshed.
+     */
+    public boolean shouldRefresh(Object key, long deltaNanos) {
+        if (!isEarlyRefreshEnabled()) {
+            return false;
+        }
+        Long expiration = expirations.get(key);
+        if (expiration == null) {
+            return false;
+        }
+        double earliness = deltaNanos * earlyRefreshBeta * -Math.log(1 - ThreadLocalRandom.current().nextDouble());
+        return System.nanoTime() + (long) earliness - expiration >= 0;
+    }
+
+    @Override
+    public void onEvent(CacheEvent<?, ?> event) {
+        expirations.remove(event.getKey());
+    }
+
+    int trackedEntries() {
+        return expirations.size();
+    }
+}
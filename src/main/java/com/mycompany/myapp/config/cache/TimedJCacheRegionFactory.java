@@ -0,0 +1,194 @@
+package com.mycompany.myapp.config.cache;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.hibernate.CacheMode;
+import org.hibernate.Session;
+import org.hibernate.Transaction;
+import org.hibernate.cache.cfg.spi.DomainDataRegionBuildingContext;
+import org.hibernate.cache.cfg.spi.DomainDataRegionConfig;
+import org.hibernate.cache.internal.DefaultCacheKeysFactory;
+import org.hibernate.cache.jcache.internal.JCacheAccessImpl;
+import org.hibernate.cache.jcache.internal.JCacheRegionFactory;
+import org.hibernate.cache.spi.support.DomainDataStorageAccess;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.cache.Cache;
+import java.io.Serializable;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * The Hibernate JCache region factory, timing the reads and writes of the second-level cache entity and
+ * collection regions.
+ * <p>
+ * The {@code cache.region.get.latency} timer is tagged with the region and whether the read was a hit or a miss,
+ * the {@code cache.region.put.latency} timer with the region.
+ * <p>
+ * Entity regions whose {@link JitteredExpiryPolicy} refreshes early reload their hit entries before they expire, on
+ * the given executor: the entity is read again from the database and put in the cache, while readers keep getting
+ * the current entry. Every refresh is timed by the {@code cache.region.refresh.latency} timer, tagged with the region.
+ */
+public class TimedJCacheRegionFactory extends JCacheRegionFactory {
+
+    /**
+     * Runs the refresh of an entity where it can be read, such as on the shard holding its row.
+     */
+    @FunctionalInterface
+    public interface RefreshRunner {
+
+        void run(String entityName, Serializable id, Runnable refresh);
+    }
+
+    private final MeterRegistry meterRegistry;
+
+    private final Executor refreshExecutor;
+
+    private final RefreshRunner refreshRunner;
+
+    private final Function<String, JitteredExpiryPolicy> expiryPolicies;
+
+    /**
+     * @param meterRegistry the registry of the timers.
+     * @param refreshExecutor the executor refreshing the entries.
+     * @param refreshRunner the runner of each refresh, on the executor.
+     * @param expiryPolicies the expiry policy of each cache, by cache name, or null if it has none.
+     */
+    public TimedJCacheRegionFactory(MeterRegistry meterRegistry, Executor refreshExecutor, RefreshRunner refreshRunner,
+                                    Function<String, JitteredExpiryPolicy> expiryPolicies) {
+        this.meterRegistry = meterRegistry;
+        this.refreshExecutor = refreshExecutor;
+        this.refreshRunner = refreshRunner;
+        this.expiryPolicies = expiryPolicies;
+    }
+
+    @Override
+    protected DomainDataStorageAccess createDomainDataStorageAccess(DomainDataRegionConfig regionConfig,
+                                                                    DomainDataRegionBuildingContext buildingContext) {
+        JCacheAccessImpl storageAccess = (JCacheAccessImpl) super.createDomainDataStorageAccess(regionConfig, buildingContext);
+        Cache cache = storageAccess.getUnderlyingCache();
+        JitteredExpiryPolicy expiryPolicy = expiryPolicies.apply(cache.getName());
+        // Only the keys of a single entity hierarchy tell which entity to reload
+        if (expiryPolicy != null && expiryPolicy.isEarlyRefreshEnabled() &&
+            regionConfig.getEntityCaching().size() == 1 && regionConfig.getCollectionCaching().isEmpty()) {
+            String entityName = regionConfig.getEntityCaching().get(0).getNavigableRole().getFullPath();
+            return new RefreshingJCacheAccess(cache, meterRegistry, expiryPolicy, entityName, refreshExecutor, refreshRunner);
+        }
+        return new TimedJCacheAccess(cache, meterRegistry);
+    }
+
+    private static class TimedJCacheAccess extends JCacheAccessImpl {
+
+        private final Timer hits;
+
+        private final Timer misses;
+
+        private final Timer puts;
+
+        TimedJCacheAccess(Cache cache, MeterRegistry meterRegistry) {
+            super(cache);
+            hits = Timer.builder("cache.region.get.latency").tag("region", cache.getName()).tag("result", "hit")
+                .description("Time taken to read an entry from the second-level cache").register(meterRegistry);
+            misses = Timer.builder("cache.region.get.latency").tag("region", cache.getName()).tag("result", "miss")
+                .description("Time taken to read an entry from the second-level cache").register(meterRegistry);
+            puts = Timer.builder("cache.region.put.latency").tag("region", cache.getName())
+                .description("Time taken to write an entry to the second-level cache").register(meterRegistry);
+        }
+
+        @Override
+        public Object getFromCache(Object key, SharedSessionContractImplementor session) {
+            long start = System.nanoTime();
+            Object value = super.getFromCache(key, session);
+            (value != null ? hits : misses).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            return value;
+        }
+
+        @Override
+        public void putIntoCache(Object key, Object value, SharedSessionContractImplementor session) {
+            puts.record(() -> super.putIntoCache(key, value, session));
+        }
+    }
+
+    private static final class RefreshingJCacheAccess extends TimedJCacheAccess {
+
+        /**
+         * The refresh time assumed before the first refresh is measured.
+         */
+        private static final long INITIAL_REFRESH_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+        private final Logger log = LoggerFactory.getLogger(RefreshingJCacheAccess.class);
+
+        private final JitteredExpiryPolicy expiryPolicy;
+
+        private final String entityName;
+
+        private final Executor refreshExecutor;
+
+        private final RefreshRunner refreshRunner;
+
+        private final Timer refreshes;
+
+        private final Set<Object> refreshing = ConcurrentHashMap.newKeySet();
+
+        private final AtomicLong averageRefreshNanos = new AtomicLong(INITIAL_REFRESH_NANOS);
+
+        RefreshingJCacheAccess(Cache cache, MeterRegistry meterRegistry, JitteredExpiryPolicy expiryPolicy,
+                               String entityName, Executor refreshExecutor, RefreshRunner refreshRunner) {
+            super(cache, meterRegistry);
+            this.expiryPolicy = expiryPolicy;
+            this.entityName = entityName;
+            this.refreshExecutor = refreshExecutor;
+            this.refreshRunner = refreshRunner;
+            refreshes = Timer.builder("cache.region.refresh.latency").tag("region", cache.getName())
+                .description("Time taken to refresh an entry of the second-level cache before it expires")
+                .register(meterRegistry);
+        }
+
+        @Override
+        public Object getFromCache(Object key, SharedSessionContractImplementor session) {
+            Object value = super.getFromCache(key, session);
+            if (value != null && expiryPolicy.shouldRefresh(key, averageRefreshNanos.get()) && refreshing.add(key)) {
+                SessionFactoryImplementor sessionFactory = session.getFactory();
+                try {
+                    refreshExecutor.execute(() -> refresh(key, sessionFactory));
+                } catch (RejectedExecutionException e) {
+                    // The entry will expire and be loaded by a reader instead
+                    refreshing.remove(key);
+                }
+            }
+            return value;
+        }
+
+        private void refresh(Object key, SessionFactoryImplementor sessionFactory) {
+            long start = System.nanoTime();
+            Serializable id = (Serializable) DefaultCacheKeysFactory.staticGetEntityId(key);
+            try {
+                refreshRunner.run(entityName, id, () -> {
+                    try (Session session = sessionFactory.openSession()) {
+                        // Skip the cache on the read, but put the entity read in it
+                        session.setCacheMode(CacheMode.REFRESH);
+                        session.setDefaultReadOnly(true);
+                        Transaction transaction = session.beginTransaction();
+                        session.get(entityName, id);
+                        transaction.commit();
+                    }
+                });
+            } catch (RuntimeException e) {
+                log.warn("Could not refresh {} in the second-level cache: {}", key, e.toString());
+            } finally {
+                refreshing.remove(key);
+                long refreshNanos = System.nanoTime() - start;
+                refreshes.record(refreshNanos, TimeUnit.NANOSECONDS);
+                averageRefreshNanos.updateAndGet(average -> average + (refreshNanos - average) / 8);
+            }
+        }
+    }
+}
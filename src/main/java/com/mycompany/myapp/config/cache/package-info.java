@@ -0,0 +1,4 @@
+/**
+ * Second-level cache specific code.
+ */
+package com.mycompany.myapp.config.cache;
@@ -0,0 +1,211 @@
+package com.mycompany.myapp.config.datasource;
+
+import com.mycompany.myapp.security.SecurityUtils;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A {@link DataSource} sending the connections of read-only transactions to replicas of the database, and all other
+ * connections to the primary.
+ * <p>
+ * Replicas are used in turn, a failing one being skipped until a health check finds it valid again. The read-only
+ * transactions of a user keep using the primary for the read-your-writes window after one of their writes. The route is
+ * decided when a connection is requested, so this data source must be wrapped in a
+ * {@link LazyConnectionDataSourceProxy}.
+ */
+public class ReadReplicaRoutingDataSource extends AbstractDataSource {
+
+    private final Logger log = LoggerFactory.getLogger(ReadReplicaRoutingDataSource.class);
+
+    static final String PRIMARY = "primary";
+
+    private static final int HEALTH_CHECK_TIMEOUT_SECONDS = 1;
+
+    private final Pool primary;
+
+    private final List<Pool> replicas;
+
+    private final long readYourWritesNanos;
+
+    private final ConcurrentMap<String, Long> lastWrites = new ConcurrentHashMap<>();
+
+    private final AtomicInteger next = new AtomicInteger();
+
+    private final Counter writeRoutes;
+
+    private final Counter readYourWritesRoutes;
+
+    private final Counter unavailableReplicaRoutes;
+
+    /**
+     * @param primary the primary data source.
+     * @param replicas the data sources of the replicas, by name.
+     * @param readYourWrites how long the read-only transactions of a user use the primary after one of their writes.
+     * @param meterRegistry the registry of the metrics.
+     */
+    public ReadReplicaRoutingDataSource(DataSource primary, Map<String, DataSource> replicas, Duration readYourWrites,
+                                        MeterRegistry meterRegistry) {
+        this.primary = new Pool(PRIMARY, primary, meterRegistry);
+        List<Pool> pools = new ArrayList<>();
+        replicas.forEach((name, dataSource) -> pools.add(new Pool(name, dataSource, meterRegistry)));
+        this.replicas = Collections.unmodifiableList(pools);
+        this.readYourWritesNanos = readYourWrites.toNanos();
+        this.writeRoutes = routes(meterRegistry, PRIMARY, "write");
+        this.readYourWritesRoutes = routes(meterRegistry, PRIMARY, "read.your.writes");
+        this.unavailableReplicaRoutes = routes(meterRegistry, PRIMARY, "replica.unavailable");
+    }
+
+    private static Counter routes(MeterRegistry meterRegistry, String pool, String reason) {
+        return Counter.builder("datasource.routes").tag("pool", pool).tag("reason", reason)
+            .description("Number of connections routed to a pool").register(meterRegistry);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return route(DataSource::getConnection);
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return route(dataSource -> dataSource.getConnection(username, password));
+    }
+
+    private Connection route(ConnectionOpener opener) throws SQLException {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            writeRoutes.increment();
+            recordWrite();
+            return primary.getConnection(opener);
+        }
+        if (isWithinReadYourWrites()) {
+            readYourWritesRoutes.increment();
+            return primary.getConnection(opener);
+        }
+        for (int attempt = 0; attempt < replicas.size(); attempt++) {
+            Pool replica = replicas.get(Math.floorMod(next.getAndIncrement(), replicas.size()));
+            if (replica.healthy) {
+                try {
+                    Connection connection = replica.getConnection(opener);
+                    replica.routes.increment();
+                    return connection;
+                } catch (SQLException e) {
+                    log.warn("Skipping the replica {} until it is healthy again: {}", replica.name, e.toString());
+                    replica.healthy = false;
+                }
+            }
+        }
+        unavailableReplicaRoutes.increment();
+        return primary.getConnection(opener);
+    }
+
+    /**
+     * Remember the user of a read-write transaction once it commits, for the read-your-writes window.
+     */
+    private void recordWrite() {
+        if (readYourWritesNanos <= 0 || !TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        Optional<String> login = SecurityUtils.getCurrentUserLogin();
+        login.ifPresent(user -> TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+            @Override
+            public void afterCommit() {
+                lastWrites.put(user, System.nanoTime());
+            }
+        }));
+    }
+
+    private boolean isWithinReadYourWrites() {
+        if (readYourWritesNanos <= 0 || lastWrites.isEmpty()) {
+            return false;
+        }
+        Long lastWrite = SecurityUtils.getCurrentUserLogin().map(lastWrites::get).orElse(null);
+        return lastWrite != null && System.nanoTime() - lastWrite < readYourWritesNanos;
+    }
+
+    /**
+     * Check whether every replica gives a valid connection, and forget the writes older than the read-your-writes
+     * window.
+     */
+    public void checkReplicas() {
+        for (Pool replica : replicas) {
+            boolean healthy;
+            long start = System.nanoTime();
+            try (Connection connection = replica.dataSource.getConnection()) {
+                healthy = connection.isValid(HEALTH_CHECK_TIMEOUT_SECONDS);
+            } catch (SQLException e) {
+                healthy = false;
+            }
+            replica.healthCheck.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            if (healthy != replica.healthy) {
+                log.info("The replica {} is {}", replica.name, healthy ? "healthy again" : "unhealthy");
+                replica.healthy = healthy;
+            }
+        }
+        long now = System.nanoTime();
+        lastWrites.values().removeIf(lastWrite -> now - lastWrite >= readYourWritesNanos);
+    }
+
+    boolean isHealthy(String replicaName) {
+        return replicas.stream().anyMatch(replica -> replica.name.equals(replicaName) && replica.healthy);
+    }
+
+    @FunctionalInterface
+    private interface ConnectionOpener {
+
+        Connection open(DataSource dataSource) throws SQLException;
+    }
+
+    private static final class Pool {
+
+        private final String name;
+
+        private final DataSource dataSource;
+
+        private final Counter routes;
+
+        private final Timer acquire;
+
+        private final Timer healthCheck;
+
+        private volatile boolean healthy = true;
+
+        Pool(String name, DataSource dataSource, MeterRegistry meterRegistry) {
+            this.name = name;
+            this.dataSource = dataSource;
+            this.routes = routes(meterRegistry, name, "read");
+            this.acquire = Timer.builder("datasource.connection.acquire").tag("pool", name)
+                .description("Time taken to get a connection from a pool").register(meterRegistry);
+            this.healthCheck = Timer.builder("datasource.health.check").tag("pool", name)
+                .description("Time taken to check a connection of a pool").register(meterRegistry);
+        }
+
+        Connection getConnection(ConnectionOpener opener) throws SQLException {
+            long start = System.nanoTime();
+            try {
+                return opener.open(dataSource);
+            } finally {
+                acquire.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            }
+        }
+    }
+}
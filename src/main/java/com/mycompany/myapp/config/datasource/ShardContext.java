@@ -0,0 +1,29 @@
+package com.mycompany.myapp.config.datasource;
+
+/**
+ * Holds the shard the connections of the current thread are taken from, read by the {@link ShardRoutingDataSource}.
+ * <p>
+ * Threads with no shard set use shard 0.
+ */
+public final class ShardContext {
+
+    private static final ThreadLocal<Integer> CURRENT_SHARD = new ThreadLocal<>();
+
+    private ShardContext() {
+    }
+
+    /**
+     * @return the shard of the current thread, or {@code null} if none is set.
+     */
+    public static Integer get() {
+        return CURRENT_SHARD.get();
+    }
+
+    public static void set(int shard) {
+        CURRENT_SHARD.set(shard);
+    }
+
+    public static void clear() {
+        CURRENT_SHARD.remove();
+    }
+}
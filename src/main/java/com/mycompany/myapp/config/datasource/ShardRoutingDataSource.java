@@ -0,0 +1,73 @@
+package com.mycompany.myapp.config.datasource;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A {@link DataSource} taking connections from the shard set in the {@link ShardContext} of the current thread, or
+ * from shard 0 when none is set.
+ * <p>
+ * The route is decided when a connection is requested, so this data source must be wrapped in a
+ * {@link LazyConnectionDataSourceProxy}: transaction managers request their connection before the shard of the
+ * transaction is known. Routes are counted by {@code datasource.routes}, tagged with the shard and the reason
+ * {@code shard}.
+ */
+public class ShardRoutingDataSource extends AbstractDataSource {
+
+    private final List<DataSource> shards;
+
+    private final List<Counter> routes = new ArrayList<>();
+
+    /**
+     * @param shards the data sources of the shards, shard 0 first.
+     * @param meterRegistry the registry of the metrics.
+     */
+    public ShardRoutingDataSource(List<DataSource> shards, MeterRegistry meterRegistry) {
+        this.shards = Collections.unmodifiableList(new ArrayList<>(shards));
+        for (int shard = 0; shard < shards.size(); shard++) {
+            routes.add(Counter.builder("datasource.routes").tag("pool", "shard-" + shard).tag("reason", "shard")
+                .description("Number of connections routed to a pool").register(meterRegistry));
+        }
+    }
+
+    /**
+     * @return the number of shards.
+     */
+    public int getShardCount() {
+        return shards.size();
+    }
+
+    /**
+     * @param shard the shard.
+     * @return the data source of the shard, bypassing the routing.
+     */
+    public DataSource getShard(int shard) {
+        return shards.get(shard);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return currentShard().getConnection();
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return currentShard().getConnection(username, password);
+    }
+
+    private DataSource currentShard() {
+        Integer shard = ShardContext.get();
+        int index = shard == null ? 0 : shard;
+        routes.get(index).increment();
+        return shards.get(index);
+    }
+}
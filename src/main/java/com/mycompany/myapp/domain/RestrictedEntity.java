@@ -1,6 +1,9 @@
 package com.mycompany.myapp.domain;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import org.hibernate.annotations.Cache;
 import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
 
 import javax.persistence.*;
 
@@ -18,12 +21,34 @@ public class RestrictedEntity implements Serializable {
 
     @Id
     @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "sequenceGenerator")
-    @SequenceGenerator(name = "sequenceGenerator")
+    @GenericGenerator(name = "sequenceGenerator", strategy = "com.mycompany.myapp.repository.AssignedSequenceGenerator",
+        parameters = {
+            @Parameter(name = "sequence_name", value = "sequence_generator"),
+            @Parameter(name = "increment_size", value = "50")
+        })
     private Long id;
 
     @Column(name = "my_field")
     private String myField;
 
+    @Version
+    @Column(name = "version", nullable = false)
+    private Long version;
+
+    /**
+     * Position of the last insert or update of this row in the change feed, assigned by the database.
+     */
+    @JsonIgnore
+    @Column(name = "change_seq", insertable = false, updatable = false)
+    private Long changeSeq;
+
+    /**
+     * Whether the id was assigned before the entity is persisted, and is kept by {@code AssignedSequenceGenerator}.
+     */
+    @Transient
+    @JsonIgnore
+    private boolean idAssigned;
+
     // jhipster-needle-entity-add-field - JHipster will add fields here, do not remove
     public Long getId() {
         return id;
@@ -33,6 +58,20 @@ public class RestrictedEntity implements Serializable {
         this.id = id;
     }
 
+    /**
+     * Assign the id of a new entity before it is persisted.
+     *
+     * @param id the id, taken from {@code sequence_generator}.
+     */
+    public void assignId(Long id) {
+        this.id = id;
+        this.idAssigned = true;
+    }
+
+    public boolean isIdAssigned() {
+        return idAssigned;
+    }
+
     public String getMyField() {
         return myField;
     }
@@ -45,6 +84,22 @@ public class RestrictedEntity implements Serializable {
     public void setMyField(String myField) {
         this.myField = myField;
     }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
+    public Long getChangeSeq() {
+        return changeSeq;
+    }
+
+    public void setChangeSeq(Long changeSeq) {
+        this.changeSeq = changeSeq;
+    }
     // jhipster-needle-entity-add-getters-setters - JHipster will add getters and setters here, do not remove
 
     @Override
@@ -68,6 +123,7 @@ public class RestrictedEntity implements Serializable {
         return "RestrictedEntity{" +
             "id=" + getId() +
             ", myField='" + getMyField() + "'" +
+            ", version=" + getVersion() +
             "}";
     }
 }
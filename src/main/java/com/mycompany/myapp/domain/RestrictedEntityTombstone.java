@@ -0,0 +1,77 @@
+package com.mycompany.myapp.domain;
+
+import javax.persistence.*;
+
+import java.io.Serializable;
+import java.time.Instant;
+
+/**
+ * A deleted RestrictedEntity, kept so that the change feed can report deletions.
+ * <p>
+ * Rows are only written by set-based statements run before the delete, see
+ * {@link com.mycompany.myapp.repository.RestrictedEntityRepositoryCustom#insertTombstones}.
+ */
+@Entity
+@Table(name = "restricted_entity_tombstone")
+public class RestrictedEntityTombstone implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    @Id
+    private Long id;
+
+    @Column(name = "change_seq", nullable = false, insertable = false, updatable = false)
+    private Long changeSeq;
+
+    @Column(name = "deleted_date", nullable = false)
+    private Instant deletedDate;
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Long getChangeSeq() {
+        return changeSeq;
+    }
+
+    public void setChangeSeq(Long changeSeq) {
+        this.changeSeq = changeSeq;
+    }
+
+    public Instant getDeletedDate() {
+        return deletedDate;
+    }
+
+    public void setDeletedDate(Instant deletedDate) {
+        this.deletedDate = deletedDate;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof RestrictedEntityTombstone)) {
+            return false;
+        }
+        return id != null && id.equals(((RestrictedEntityTombstone) o).id);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31;
+    }
+
+    @Override
+    public String toString() {
+        return "RestrictedEntityTombstone{" +
+            "id=" + getId() +
+            ", changeSeq=" + getChangeSeq() +
+            ", deletedDate='" + getDeletedDate() + "'" +
+            "}";
+    }
+}
@@ -0,0 +1,25 @@
+package com.mycompany.myapp.repository;
+
+import com.mycompany.myapp.domain.RestrictedEntity;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+
+import java.io.Serializable;
+
+/**
+ * A sequence generator keeping the id assigned to a new restrictedEntity by {@link RestrictedEntity#assignId}, and
+ * taking the next value of the sequence otherwise, even when the entity has an id.
+ * <p>
+ * When the restrictedEntities are sharded, {@link RestrictedEntityShards} assigns the id of a new entity before it is
+ * persisted, since the id tells which shard the row goes to.
+ */
+public class AssignedSequenceGenerator extends SequenceStyleGenerator {
+
+    @Override
+    public Serializable generate(SharedSessionContractImplementor session, Object object) {
+        if (object instanceof RestrictedEntity && ((RestrictedEntity) object).isIdAssigned()) {
+            return ((RestrictedEntity) object).getId();
+        }
+        return super.generate(session, object);
+    }
+}
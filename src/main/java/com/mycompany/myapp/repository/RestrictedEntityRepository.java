@@ -1,15 +1,143 @@
 package com.mycompany.myapp.repository;
 
 import com.mycompany.myapp.domain.RestrictedEntity;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.*;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.QueryHint;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_CACHE_MODE;
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
+
 
 /**
  * Spring Data  repository for the RestrictedEntity entity.
  */
 @SuppressWarnings("unused")
 @Repository
-public interface RestrictedEntityRepository extends JpaRepository<RestrictedEntity, Long> {
+public interface RestrictedEntityRepository extends JpaRepository<RestrictedEntity, Long>, RestrictedEntityRepositoryCustom {
+
+    /**
+     * Number of rows the JDBC driver fetches per round trip when streaming.
+     */
+    String STREAM_FETCH_SIZE = "500";
+
+    /**
+     * Name of the cache of the ids recently not found.
+     */
+    String NOT_FOUND_CACHE = "restrictedEntitiesNotFound";
+
+    /**
+     * Name of the cache of the JSON representations of the entities.
+     */
+    String JSON_CACHE = "restrictedEntitiesJson";
+
+    /**
+     * Keyset query: the rows whose id is strictly greater than {@code id}, walking the primary key index.
+     * <p>
+     * Returning a {@link Slice} makes Spring Data fetch one extra row to detect the next page instead of
+     * issuing a {@code COUNT} query, and callers always pass page 0 so no {@code OFFSET} is generated.
+     *
+     * @param id the exclusive lower bound.
+     * @param pageable the page size, sorted by id.
+     * @return the slice of entities.
+     */
+    Slice<RestrictedEntity> findByIdGreaterThan(Long id, Pageable pageable);
+
+    /**
+     * Stream the ids and change sequence values of all the rows through a forward-only cursor.
+     * <p>
+     * The stream must be consumed and closed inside a transaction.
+     *
+     * @return the stream of pairs of id and change sequence value.
+     */
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = STREAM_FETCH_SIZE))
+    @Query("select restrictedEntity.id, restrictedEntity.changeSeq from RestrictedEntity restrictedEntity")
+    Stream<Object[]> streamAllIds();
+
+    /**
+     * The ids and versions of the rows with the given ids.
+     *
+     * @param ids the ids.
+     * @return the pairs of id and version.
+     */
+    @Query("select restrictedEntity.id, restrictedEntity.version from RestrictedEntity restrictedEntity " +
+        "where restrictedEntity.id in :ids")
+    List<Object[]> findVersionsByIdIn(@Param("ids") Collection<Long> ids);
+
+    /**
+     * The ids, versions and myFields of the rows with the given ids.
+     *
+     * @param ids the ids.
+     * @return the triples of id, version and myField.
+     */
+    @Query("select restrictedEntity.id, restrictedEntity.version, restrictedEntity.myField from RestrictedEntity restrictedEntity " +
+        "where restrictedEntity.id in :ids")
+    List<Object[]> findRowsByIdIn(@Param("ids") Collection<Long> ids);
+
+    /**
+     * The ids, versions and myFields of the rows whose id is in a range.
+     *
+     * @param fromId the lower bound, inclusive.
+     * @param toId the upper bound, inclusive.
+     * @param pageable the page size, sorted by id.
+     * @return the triples of id, version and myField.
+     */
+    @Query("select restrictedEntity.id, restrictedEntity.version, restrictedEntity.myField from RestrictedEntity restrictedEntity " +
+        "where restrictedEntity.id between :fromId and :toId")
+    List<Object[]> findRowsByIdBetween(@Param("fromId") Long fromId, @Param("toId") Long toId, Pageable pageable);
+
+    /**
+     * The ids, versions, myFields and change sequence values of the rows inserted or updated after a change sequence
+     * value, up to another.
+     *
+     * @param since the exclusive lower bound.
+     * @param until the inclusive upper bound.
+     * @param pageable the page size, sorted by change sequence.
+     * @return the quadruples of id, version, myField and change sequence value.
+     */
+    @Query("select restrictedEntity.id, restrictedEntity.version, restrictedEntity.myField, restrictedEntity.changeSeq " +
+        "from RestrictedEntity restrictedEntity where restrictedEntity.changeSeq > :since and restrictedEntity.changeSeq <= :until")
+    List<Object[]> findRowsChangedBetween(@Param("since") Long since, @Param("until") Long until, Pageable pageable);
+
+    /**
+     * Stream the ids, versions, myFields and change sequence values of all the rows ordered by id through a
+     * forward-only cursor.
+     * <p>
+     * The stream must be consumed and closed inside a transaction.
+     *
+     * @return the stream of quadruples of id, version, myField and change sequence value.
+     */
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = STREAM_FETCH_SIZE))
+    @Query("select restrictedEntity.id, restrictedEntity.version, restrictedEntity.myField, restrictedEntity.changeSeq " +
+        "from RestrictedEntity restrictedEntity order by restrictedEntity.id")
+    Stream<Object[]> streamAllRows();
+
+    @Query("select restrictedEntity.version from RestrictedEntity restrictedEntity where restrictedEntity.id = :id")
+    Optional<Long> findVersionById(@Param("id") Long id);
 
+    /**
+     * Stream all the rows ordered by id through a forward-only cursor.
+     * <p>
+     * The stream must be consumed and closed inside a transaction. Entities are read-only and bypass the
+     * second-level cache so a full scan neither dirties the persistence context nor evicts the hot entries
+     * of the cache.
+     *
+     * @return the stream of entities.
+     */
+    @QueryHints({
+        @QueryHint(name = HINT_FETCH_SIZE, value = STREAM_FETCH_SIZE),
+        @QueryHint(name = HINT_READONLY, value = "true"),
+        @QueryHint(name = HINT_CACHE_MODE, value = "IGNORE")
+    })
+    @Query("select restrictedEntity from RestrictedEntity restrictedEntity order by restrictedEntity.id")
+    Stream<RestrictedEntity> streamAllOrderedById();
 }
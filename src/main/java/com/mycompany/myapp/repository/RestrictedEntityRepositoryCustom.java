@@ -0,0 +1,118 @@
+package com.mycompany.myapp.repository;
+
+import com.mycompany.myapp.domain.RestrictedEntity;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Set-based operations on the RestrictedEntity table that Spring Data cannot derive.
+ * <p>
+ * These statements never load the rows they change and do not invalidate the second-level cache:
+ * callers are responsible for evicting the affected entries.
+ */
+public interface RestrictedEntityRepositoryCustom {
+
+    /**
+     * Lock the given rows for update, one after the other in id order, whatever the plan of the statements changing
+     * them next would be.
+     *
+     * @param ids the ids of the rows to lock.
+     * @return the versions of the rows found, by id.
+     */
+    Map<Long, Long> lockForUpdate(Collection<Long> ids);
+
+    /**
+     * Set the {@code myField} column of the given rows and increment their version.
+     *
+     * @param ids the ids of the rows to update.
+     * @param myField the new value.
+     * @return the number of updated rows.
+     */
+    int bulkUpdateMyField(Collection<Long> ids, String myField);
+
+    /**
+     * Set the {@code myField} column of the rows whose id is in the given range and increment their version.
+     *
+     * @param fromId the lower bound, inclusive.
+     * @param toId the upper bound, inclusive.
+     * @param myField the new value.
+     * @return the number of updated rows.
+     */
+    int bulkUpdateMyFieldInRange(long fromId, long toId, String myField);
+
+    /**
+     * Set some columns of a row and increment its version, the other columns being left as they are.
+     *
+     * @param id the id of the row to update.
+     * @param version the version the row must have to be updated, or {@code null} for any version.
+     * @param columns the new values, by column name.
+     * @return the number of updated rows.
+     * @throws IllegalArgumentException if a column cannot be updated.
+     */
+    int updateColumns(long id, Long version, Map<String, Object> columns);
+
+    /**
+     * Insert the given rows, or update the {@code myField} column of those that already exist and increment their
+     * version, with a single statement: {@code INSERT ... ON CONFLICT} on PostgreSQL and {@code MERGE} on H2.
+     * <p>
+     * Existing rows whose {@code myField} is unchanged are left as they are, so upserting the same rows again changes
+     * nothing.
+     *
+     * @param restrictedEntities the rows, with their id and distinct ids.
+     * @return the number of inserted or updated rows.
+     */
+    int upsert(List<RestrictedEntity> restrictedEntities);
+
+    /**
+     * Delete the given rows.
+     *
+     * @param ids the ids of the rows to delete.
+     * @return the number of deleted rows.
+     */
+    int bulkDelete(Collection<Long> ids);
+
+    /**
+     * Delete the rows whose id is in the given range.
+     *
+     * @param fromId the lower bound, inclusive.
+     * @param toId the upper bound, inclusive.
+     * @return the number of deleted rows.
+     */
+    int bulkDeleteInRange(long fromId, long toId);
+
+    /**
+     * Record a tombstone for each of the given rows that still exists, before they are deleted.
+     *
+     * @param ids the ids of the rows about to be deleted.
+     * @return the number of recorded tombstones.
+     */
+    int insertTombstones(Collection<Long> ids);
+
+    /**
+     * Record a tombstone for each existing row whose id is in the given range, before they are deleted.
+     *
+     * @param fromId the lower bound, inclusive.
+     * @param toId the upper bound, inclusive.
+     * @return the number of recorded tombstones.
+     */
+    int insertTombstonesInRange(long fromId, long toId);
+
+    /**
+     * Lock the tombstones of the given rows for update, in id order.
+     *
+     * @param ids the ids of the rows.
+     * @return the ids having a tombstone.
+     */
+    Set<Long> lockTombstones(Collection<Long> ids);
+
+    /**
+     * Delete the tombstones of the given rows, before they are inserted again.
+     *
+     * @param ids the ids of the rows.
+     * @return the number of deleted tombstones.
+     */
+    int deleteTombstones(Collection<Long> ids);
+}
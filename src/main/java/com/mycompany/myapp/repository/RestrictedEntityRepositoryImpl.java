@@ -0,0 +1,173 @@
+package com.mycompany.myapp.repository;
+
+import com.mycompany.myapp.domain.RestrictedEntity;
+import org.hibernate.dialect.H2Dialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.jpa.TypedParameterValue;
+import org.hibernate.query.NativeQuery;
+import org.hibernate.type.StandardBasicTypes;
+import org.hibernate.type.Type;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.Query;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Implementation of {@link RestrictedEntityRepositoryCustom} with native statements.
+ * <p>
+ * A JPQL bulk statement makes Hibernate drop the whole RestrictedEntity cache region. Declaring an empty
+ * query space on a native statement keeps the region intact, so only the rows actually changed need to be evicted.
+ */
+public class RestrictedEntityRepositoryImpl implements RestrictedEntityRepositoryCustom {
+
+    /**
+     * The columns {@link #updateColumns} can set, with their type so {@code null} values are bound with the right one.
+     */
+    private static final Map<String, Type> UPDATABLE_COLUMNS = Collections.singletonMap("my_field", StandardBasicTypes.STRING);
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Map<Long, Long> lockForUpdate(Collection<Long> ids) {
+        List<Object[]> rows = createNativeQuery("select id, version from restricted_entity where id in (:ids) order by id for update")
+            .setParameter("ids", ids)
+            .getResultList();
+        Map<Long, Long> versions = new LinkedHashMap<>();
+        rows.forEach(row -> versions.put(((Number) row[0]).longValue(), ((Number) row[1]).longValue()));
+        return versions;
+    }
+
+    @Override
+    public int bulkUpdateMyField(Collection<Long> ids, String myField) {
+        return createNativeQuery("update restricted_entity set my_field = :myField, version = version + 1 where id in (:ids)")
+            .setParameter("myField", myField)
+            .setParameter("ids", ids)
+            .executeUpdate();
+    }
+
+    @Override
+    public int bulkUpdateMyFieldInRange(long fromId, long toId, String myField) {
+        return createNativeQuery("update restricted_entity set my_field = :myField, version = version + 1 where id between :fromId and :toId")
+            .setParameter("myField", myField)
+            .setParameter("fromId", fromId)
+            .setParameter("toId", toId)
+            .executeUpdate();
+    }
+
+    @Override
+    public int updateColumns(long id, Long version, Map<String, Object> columns) {
+        StringBuilder sql = new StringBuilder("update restricted_entity set ");
+        for (String column : columns.keySet()) {
+            if (!UPDATABLE_COLUMNS.containsKey(column)) {
+                throw new IllegalArgumentException("Column " + column + " cannot be updated");
+            }
+            sql.append(column).append(" = :").append(column).append(", ");
+        }
+        sql.append("version = version + 1 where id = :id");
+        if (version != null) {
+            sql.append(" and version = :version");
+        }
+        Query query = createNativeQuery(sql.toString()).setParameter("id", id);
+        columns.forEach((column, value) ->
+            query.setParameter(column, new TypedParameterValue(UPDATABLE_COLUMNS.get(column), value)));
+        if (version != null) {
+            query.setParameter("version", version);
+        }
+        return query.executeUpdate();
+    }
+
+    @Override
+    public int upsert(List<RestrictedEntity> restrictedEntities) {
+        StringBuilder values = new StringBuilder();
+        for (int i = 0; i < restrictedEntities.size(); i++) {
+            values.append(i == 0 ? "" : ", ").append("(:id").append(i).append(", :myField").append(i).append(")");
+        }
+        String sql = isH2()
+            ? "merge into restricted_entity using (select * from (values " + values + ") as upserted (id, my_field)) upserted " +
+                "on restricted_entity.id = upserted.id " +
+                "when matched and restricted_entity.my_field is distinct from upserted.my_field then " +
+                "update set my_field = upserted.my_field, version = restricted_entity.version + 1 " +
+                "when not matched then insert (id, my_field, version) values (upserted.id, upserted.my_field, 0)"
+            : "insert into restricted_entity (id, my_field, version) select id, my_field, 0 from (values " + values + ") " +
+                "as upserted (id, my_field) on conflict (id) do update " +
+                "set my_field = excluded.my_field, version = restricted_entity.version + 1 " +
+                "where restricted_entity.my_field is distinct from excluded.my_field";
+        Query query = createNativeQuery(sql);
+        for (int i = 0; i < restrictedEntities.size(); i++) {
+            RestrictedEntity restrictedEntity = restrictedEntities.get(i);
+            query.setParameter("id" + i, restrictedEntity.getId());
+            query.setParameter("myField" + i, new TypedParameterValue(StandardBasicTypes.STRING, restrictedEntity.getMyField()));
+        }
+        return query.executeUpdate();
+    }
+
+    @Override
+    public int bulkDelete(Collection<Long> ids) {
+        return createNativeQuery("delete from restricted_entity where id in (:ids)")
+            .setParameter("ids", ids)
+            .executeUpdate();
+    }
+
+    @Override
+    public int bulkDeleteInRange(long fromId, long toId) {
+        return createNativeQuery("delete from restricted_entity where id between :fromId and :toId")
+            .setParameter("fromId", fromId)
+            .setParameter("toId", toId)
+            .executeUpdate();
+    }
+
+    @Override
+    public int insertTombstones(Collection<Long> ids) {
+        return createNativeQuery("insert into restricted_entity_tombstone (id, deleted_date) " +
+            "select id, current_timestamp from restricted_entity where id in (:ids)")
+            .setParameter("ids", ids)
+            .executeUpdate();
+    }
+
+    @Override
+    public int insertTombstonesInRange(long fromId, long toId) {
+        return createNativeQuery("insert into restricted_entity_tombstone (id, deleted_date) " +
+            "select id, current_timestamp from restricted_entity where id between :fromId and :toId")
+            .setParameter("fromId", fromId)
+            .setParameter("toId", toId)
+            .executeUpdate();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Set<Long> lockTombstones(Collection<Long> ids) {
+        List<Number> rows = createNativeQuery("select id from restricted_entity_tombstone where id in (:ids) order by id for update")
+            .setParameter("ids", ids)
+            .getResultList();
+        return rows.stream().map(Number::longValue).collect(Collectors.toSet());
+    }
+
+    @Override
+    public int deleteTombstones(Collection<Long> ids) {
+        return createNativeQuery("delete from restricted_entity_tombstone where id in (:ids)")
+            .setParameter("ids", ids)
+            .executeUpdate();
+    }
+
+    private boolean isH2() {
+        return entityManager.getEntityManagerFactory().unwrap(SessionFactoryImplementor.class)
+            .getJdbcServices().getDialect() instanceof H2Dialect;
+    }
+
+    private Query createNativeQuery(String sql) {
+        // the empty query space also disables the automatic flush, so write pending changes explicitly
+        entityManager.flush();
+        return entityManager.createNativeQuery(sql)
+            .unwrap(NativeQuery.class)
+            .addSynchronizedQuerySpace("");
+    }
+}
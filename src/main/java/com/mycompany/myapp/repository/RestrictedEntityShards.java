@@ -0,0 +1,309 @@
+package com.mycompany.myapp.repository;
+
+import com.mycompany.myapp.config.datasource.ShardContext;
+import com.mycompany.myapp.config.datasource.ShardRoutingDataSource;
+import com.mycompany.myapp.domain.RestrictedEntity;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.IntConsumer;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Tells which shard holds each RestrictedEntity row, and runs the work on the shards.
+ * <p>
+ * A row is held by shard {@code id mod shard count}, its id taken from the {@code sequence_generator} of shard 0. The
+ * work on several shards runs in parallel, in one transaction per shard, timed by
+ * {@code restricted.entity.shard.fan.out}. Without {@code application.sharding.shards}, everything runs on the current
+ * thread and transaction.
+ */
+@Component
+public class RestrictedEntityShards implements DisposableBean {
+
+    /**
+     * The increment of the {@code sequence_generator} sequence.
+     */
+    static final int ID_ALLOCATION_SIZE = 50;
+
+    private final ShardRoutingDataSource shardRoutingDataSource;
+
+    private final EntityManagerFactory entityManagerFactory;
+
+    private final TransactionTemplate readOnlyTransactionTemplate;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final ExecutorService executor;
+
+    private final Timer readOnlyFanOut;
+
+    private final Timer fanOut;
+
+    private final int shardCount;
+
+    // Guarded by this
+    private long nextId;
+
+    private long lastId = -1;
+
+    public RestrictedEntityShards(ObjectProvider<ShardRoutingDataSource> shardRoutingDataSource,
+                                  EntityManagerFactory entityManagerFactory, PlatformTransactionManager transactionManager,
+                                  MeterRegistry meterRegistry) {
+        this.shardRoutingDataSource = shardRoutingDataSource.getIfAvailable();
+        this.entityManagerFactory = entityManagerFactory;
+        this.shardCount = this.shardRoutingDataSource == null ? 1 : this.shardRoutingDataSource.getShardCount();
+        this.readOnlyTransactionTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTransactionTemplate.setReadOnly(true);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.executor = isSharded()
+            ? Executors.newCachedThreadPool(new CustomizableThreadFactory("restricted-entity-shard-"))
+            : null;
+        this.readOnlyFanOut = fanOutTimer(meterRegistry, true);
+        this.fanOut = fanOutTimer(meterRegistry, false);
+    }
+
+    private static Timer fanOutTimer(MeterRegistry meterRegistry, boolean readOnly) {
+        return Timer.builder("restricted.entity.shard.fan.out").tag("read-only", String.valueOf(readOnly))
+            .description("Time taken to run work on several shards").register(meterRegistry);
+    }
+
+    public boolean isSharded() {
+        return shardCount > 1;
+    }
+
+    public int getShardCount() {
+        return shardCount;
+    }
+
+    /**
+     * @param id the id of a row.
+     * @return the shard holding the row.
+     */
+    public int shardOf(long id) {
+        return (int) Math.floorMod(id, (long) shardCount);
+    }
+
+    /**
+     * @return all the shards, in order.
+     */
+    public List<Integer> allShards() {
+        return IntStream.range(0, shardCount).boxed().collect(Collectors.toList());
+    }
+
+    /**
+     * Group items by the shard holding their row.
+     *
+     * @param items the items.
+     * @param idOf the id of the row of an item, {@code null} when not assigned yet and not sharded.
+     * @param <T> the type of the items.
+     * @return the items of each shard involved, by shard.
+     */
+    public <T> Map<Integer, List<T>> groupByShard(Collection<T> items, Function<T, Long> idOf) {
+        return items.stream().collect(Collectors.groupingBy(item -> {
+            Long id = idOf.apply(item);
+            return id == null ? 0 : shardOf(id);
+        }, TreeMap::new, Collectors.toList()));
+    }
+
+    /**
+     * Bind the current transaction to the shard holding a row, before it runs its first statement.
+     *
+     * @param id the id of the row.
+     * @throws IllegalStateException if the transaction is already bound to another shard.
+     */
+    public void bindTransaction(long id) {
+        if (!isSharded()) {
+            return;
+        }
+        int shard = shardOf(id);
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            throw new IllegalStateException("No transaction to bind to shard " + shard);
+        }
+        Integer current = ShardContext.get();
+        if (current != null) {
+            if (current != shard) {
+                throw new IllegalStateException("A transaction cannot span shards " + current + " and " + shard);
+            }
+            return;
+        }
+        ShardContext.set(shard);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+            @Override
+            public void afterCompletion(int status) {
+                ShardContext.clear();
+            }
+        });
+    }
+
+    /**
+     * Assign an id to each new entity when sharded, so the shard of each is known before it is persisted.
+     * <p>
+     * When not sharded, the entities take the next value of the sequence when persisted, as usual.
+     *
+     * @param restrictedEntities the new entities.
+     */
+    public synchronized void assignIds(Collection<RestrictedEntity> restrictedEntities) {
+        if (!isSharded()) {
+            return;
+        }
+        for (RestrictedEntity restrictedEntity : restrictedEntities) {
+            if (restrictedEntity.getId() != null) {
+                continue;
+            }
+            if (nextId > lastId) {
+                // Same blocks as the pooled optimizer of Hibernate: the value returned is the last id of the block
+                lastId = nextSequenceValue();
+                nextId = lastId - ID_ALLOCATION_SIZE + 1;
+            }
+            restrictedEntity.assignId(nextId++);
+        }
+    }
+
+    private long nextSequenceValue() {
+        String sql = entityManagerFactory.unwrap(SessionFactoryImplementor.class).getJdbcServices().getDialect()
+            .getSequenceNextValString("sequence_generator");
+        // Straight to shard 0, outside of the transaction of the caller which may be bound to another shard
+        return new JdbcTemplate(shardRoutingDataSource.getShard(0)).queryForObject(sql, Long.class);
+    }
+
+    /**
+     * Run work outside of any transaction on the shard holding a row, the work opening its own transactions.
+     *
+     * @param id the id of the row.
+     * @param work the work.
+     * @param <T> the type of the result.
+     * @return the result of the work.
+     */
+    public <T> T onShardOf(long id, Supplier<T> work) {
+        if (!isSharded()) {
+            return work.get();
+        }
+        ShardContext.set(shardOf(id));
+        try {
+            return work.get();
+        } finally {
+            ShardContext.clear();
+        }
+    }
+
+    /**
+     * Run work on several shards in parallel, each in its own transaction.
+     * <p>
+     * When not sharded, the work runs on the current thread, in the transaction of the caller if any.
+     *
+     * @param shards the shards.
+     * @param readOnly whether the transactions are read-only.
+     * @param work the work, given the shard.
+     * @param <T> the type of the results.
+     * @return the results, in the order of the shards.
+     */
+    public <T> List<T> fanOut(Collection<Integer> shards, boolean readOnly, IntFunction<T> work) {
+        if (!isSharded()) {
+            return shards.stream().map(work::apply).collect(Collectors.toList());
+        }
+        TransactionTemplate template = readOnly ? readOnlyTransactionTemplate : transactionTemplate;
+        long start = System.nanoTime();
+        List<CompletableFuture<T>> results = shards.stream()
+            .map(shard -> CompletableFuture.supplyAsync(() -> {
+                ShardContext.set(shard);
+                try {
+                    return template.execute(status -> work.apply(shard));
+                } finally {
+                    ShardContext.clear();
+                }
+            }, executor))
+            .collect(Collectors.toList());
+        try {
+            return results.stream().map(CompletableFuture::join).collect(Collectors.toList());
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw e;
+        } finally {
+            (readOnly ? readOnlyFanOut : fanOut).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Run work on several shards in parallel, each in its own read-write transaction, and wait for all of them to
+     * commit or roll back. Unlike {@link #fanOut}, a failure on a shard does not hide which other shards committed.
+     * <p>
+     * When not sharded, the work runs on the current thread, in the transaction of the caller if any, and its failure
+     * is thrown.
+     *
+     * @param shards the shards.
+     * @param work the work, given the shard.
+     * @return the failures of the shards whose transaction was rolled back, by shard, empty if they all committed.
+     */
+    public Map<Integer, RuntimeException> fanOutSettled(Collection<Integer> shards, IntConsumer work) {
+        if (!isSharded()) {
+            shards.forEach(work::accept);
+            return Collections.emptyMap();
+        }
+        long start = System.nanoTime();
+        Map<Integer, CompletableFuture<Void>> results = new TreeMap<>();
+        shards.forEach(shard -> results.put(shard, CompletableFuture.runAsync(() -> {
+            ShardContext.set(shard);
+            try {
+                transactionTemplate.execute(status -> {
+                    work.accept(shard);
+                    return null;
+                });
+            } finally {
+                ShardContext.clear();
+            }
+        }, executor)));
+        Map<Integer, RuntimeException> failures = new TreeMap<>();
+        try {
+            results.forEach((shard, result) -> {
+                try {
+                    result.join();
+                } catch (CompletionException e) {
+                    if (e.getCause() instanceof Error) {
+                        throw (Error) e.getCause();
+                    }
+                    failures.put(shard, e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e);
+                }
+            });
+        } finally {
+            fanOut.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+        return failures;
+    }
+
+    @Override
+    public void destroy() {
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+}
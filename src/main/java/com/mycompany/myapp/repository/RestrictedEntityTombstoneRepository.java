@@ -0,0 +1,28 @@
+package com.mycompany.myapp.repository;
+
+import com.mycompany.myapp.domain.RestrictedEntityTombstone;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+/**
+ * Spring Data  repository for the RestrictedEntityTombstone entity.
+ */
+@Repository
+public interface RestrictedEntityTombstoneRepository extends JpaRepository<RestrictedEntityTombstone, Long> {
+
+    /**
+     * The tombstones recorded after a change sequence value, up to another.
+     *
+     * @param since the exclusive lower bound.
+     * @param until the inclusive upper bound.
+     * @param pageable the page size, sorted by change sequence.
+     * @return the tombstones.
+     */
+    @Query("select tombstone from RestrictedEntityTombstone tombstone where tombstone.changeSeq > :since and tombstone.changeSeq <= :until")
+    List<RestrictedEntityTombstone> findChangedBetween(@Param("since") Long since, @Param("until") Long until, Pageable pageable);
+}
\ No newline at end of file
@@ -0,0 +1,98 @@
+package com.mycompany.myapp.service;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A thread-safe Bloom filter of {@code long} values: {@link #mightContain(long)} never answers {@code false} for a
+ * value that was put, and answers {@code true} for a value that was not with about the configured probability as long
+ * as no more than the expected number of values are put.
+ * <p>
+ * Values cannot be removed: the filter must be rebuilt to forget them.
+ */
+final class BloomFilter {
+
+    private final AtomicLongArray bits;
+
+    private final long bitSize;
+
+    private final int hashFunctions;
+
+    /**
+     * @param expectedInsertions the number of values the filter is sized for.
+     * @param falsePositiveRate the probability, between 0 and 1, of a false positive once full.
+     */
+    BloomFilter(long expectedInsertions, double falsePositiveRate) {
+        if (expectedInsertions <= 0) {
+            throw new IllegalArgumentException("The expected insertions must be positive, not " + expectedInsertions);
+        }
+        if (falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+            throw new IllegalArgumentException("The false positive rate must be between 0 and 1, not " + falsePositiveRate);
+        }
+        long optimalBitSize = (long) Math.ceil(-expectedInsertions * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        this.bits = new AtomicLongArray(Math.toIntExact(Math.max(1, (optimalBitSize + Long.SIZE - 1) / Long.SIZE)));
+        this.bitSize = (long) bits.length() * Long.SIZE;
+        this.hashFunctions = Math.max(1, (int) Math.round((double) bitSize / expectedInsertions * Math.log(2)));
+    }
+
+    /**
+     * Put a value in the filter.
+     *
+     * @param value the value.
+     * @return true if the filter changed, in which case the value was certainly not put before.
+     */
+    boolean put(long value) {
+        long hash1 = mix(value);
+        long hash2 = mix(hash1);
+        boolean changed = false;
+        for (int i = 0; i < hashFunctions; i++) {
+            long bitIndex = Math.floorMod(hash1 + i * hash2, bitSize);
+            int index = (int) (bitIndex >>> 6);
+            long mask = 1L << bitIndex;
+            long word;
+            while (((word = bits.get(index)) & mask) == 0) {
+                if (bits.compareAndSet(index, word, word | mask)) {
+                    changed = true;
+                    break;
+                }
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * @param value the value.
+     * @return false if the value was certainly never put, true if it might have been.
+     */
+    boolean mightContain(long value) {
+        long hash1 = mix(value);
+        long hash2 = mix(hash1);
+        for (int i = 0; i < hashFunctions; i++) {
+            long bitIndex = Math.floorMod(hash1 + i * hash2, bitSize);
+            if ((bits.get((int) (bitIndex >>> 6)) & (1L << bitIndex)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the probability of a false positive with the values put so far, from the share of bits set.
+     */
+    double expectedFalsePositiveRate() {
+        long bitsSet = 0;
+        for (int i = 0; i < bits.length(); i++) {
+            bitsSet += Long.bitCount(bits.get(i));
+        }
+        return Math.pow((double) bitsSet / bitSize, hashFunctions);
+    }
+
+    /**
+     * The SplitMix64 finalizer, spreading consecutive ids over the whole range.
+     */
+    private static long mix(long value) {
+        long z = value + 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,70 @@
+package com.mycompany.myapp.service;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A count-min sketch estimating how often {@code long} values were recorded, in a fixed amount of memory.
+ * <p>
+ * Every counter is halved once a sample of ten times the width of the sketch was recorded, so the estimates favour
+ * recent activity over activity long past. Estimates may exceed the true counts, never fall below their halved value.
+ */
+final class FrequencySketch {
+
+    private static final int DEPTH = 4;
+
+    private static final long[] SEEDS = {0x97CB3127L, 0xB492B66FL, 0x9AE16A3BL, 0xC3A5C85CL};
+
+    private final AtomicIntegerArray counters;
+
+    private final int widthMask;
+
+    private final long sampleSize;
+
+    private final AtomicLong samples = new AtomicLong();
+
+    /**
+     * @param expectedValues the number of distinct values the sketch should tell apart.
+     */
+    FrequencySketch(int expectedValues) {
+        int width = Integer.highestOneBit(Math.max(16, expectedValues) * 2 - 1);
+        this.counters = new AtomicIntegerArray(DEPTH * width);
+        this.widthMask = width - 1;
+        this.sampleSize = 10L * width;
+    }
+
+    void increment(long value) {
+        for (int row = 0; row < DEPTH; row++) {
+            counters.incrementAndGet(index(value, row));
+        }
+        if (samples.incrementAndGet() % sampleSize == 0) {
+            reset();
+        }
+    }
+
+    int estimate(long value) {
+        int estimate = Integer.MAX_VALUE;
+        for (int row = 0; row < DEPTH; row++) {
+            estimate = Math.min(estimate, counters.get(index(value, row)));
+        }
+        return estimate;
+    }
+
+    private void reset() {
+        for (int i = 0; i < counters.length(); i++) {
+            int count;
+            do {
+                count = counters.get(i);
+            } while (!counters.compareAndSet(i, count, count >>> 1));
+        }
+    }
+
+    private int index(long value, int row) {
+        // SplitMix64 finalizer, seeded per row so that values colliding in one row rarely collide in the others
+        long hash = value + SEEDS[row];
+        hash = (hash ^ (hash >>> 30)) * 0xBF58476D1CE4E5B9L;
+        hash = (hash ^ (hash >>> 27)) * 0x94D049BB133111EBL;
+        hash ^= hash >>> 31;
+        return row * (widthMask + 1) + ((int) hash & widthMask);
+    }
+}
@@ -0,0 +1,256 @@
+package com.mycompany.myapp.service;
+
+import com.mycompany.myapp.config.ApplicationProperties;
+import com.mycompany.myapp.config.cache.HibernateCacheEntrySerializer;
+import com.mycompany.myapp.domain.RestrictedEntity;
+import com.mycompany.myapp.repository.RestrictedEntityRepository;
+import com.mycompany.myapp.repository.RestrictedEntityShards;
+import org.ehcache.impl.serialization.PlainJavaSerializer;
+import org.ehcache.spi.serialization.Serializer;
+import org.hibernate.cache.internal.DefaultCacheKeysFactory;
+import org.hibernate.cache.spi.entry.CacheEntry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Service;
+
+import javax.cache.Cache;
+import javax.cache.CacheManager;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.function.Function;
+
+/**
+ * Saves the most accessed entries of the {@link RestrictedEntity} second-level cache region to a local file on
+ * graceful shutdown, and loads them back on startup, so a restarted instance does not start with an empty cache.
+ * <p>
+ * Accesses are counted by a {@link FrequencySketch}. Loaded entries are only put in the cache if their version is
+ * still the version of the row, so entities changed or deleted while the instance was down are read again from the
+ * database. The snapshot is loaded in an early lifecycle phase, before the instance registers with Eureka, and saved
+ * in a late one, once it has deregistered.
+ */
+@Service
+public class RestrictedEntityCacheSnapshotService implements SmartLifecycle {
+
+    private final Logger log = LoggerFactory.getLogger(RestrictedEntityCacheSnapshotService.class);
+
+    /**
+     * Lifecycle phase of the snapshot, before the phase 0 of the Eureka registration.
+     */
+    public static final int PHASE = -100;
+
+    private static final int SNAPSHOT_FORMAT = 0x52455331;
+
+    /**
+     * Maximum number of ids bound to a single {@code IN (...)} clause.
+     */
+    private static final int IN_CLAUSE_CHUNK_SIZE = 500;
+
+    private final RestrictedEntityRepository restrictedEntityRepository;
+
+    private final RestrictedEntityShards restrictedEntityShards;
+
+    private final CacheManager cacheManager;
+
+    private final ApplicationProperties.Cache.Snapshot snapshot;
+
+    private final Serializer<Object> keySerializer;
+
+    private final Serializer<Object> valueSerializer;
+
+    private final FrequencySketch frequencySketch;
+
+    private volatile boolean running;
+
+    public RestrictedEntityCacheSnapshotService(RestrictedEntityRepository restrictedEntityRepository,
+                                                RestrictedEntityShards restrictedEntityShards, CacheManager cacheManager,
+                                                ApplicationProperties applicationProperties) {
+        this.restrictedEntityRepository = restrictedEntityRepository;
+        this.restrictedEntityShards = restrictedEntityShards;
+        this.cacheManager = cacheManager;
+        this.snapshot = applicationProperties.getCache().getSnapshot();
+        ClassLoader classLoader = getClass().getClassLoader();
+        this.keySerializer = new PlainJavaSerializer<>(classLoader);
+        this.valueSerializer = new HibernateCacheEntrySerializer(classLoader,
+            applicationProperties.getCache().getEhcache().getCompressionThreshold());
+        this.frequencySketch = new FrequencySketch(snapshot.getMaxEntries());
+    }
+
+    /**
+     * Count an access to a restrictedEntity, ranking its cache entry for the next snapshot.
+     *
+     * @param id the id of the entity.
+     */
+    public void recordAccess(Long id) {
+        if (snapshot.isEnabled()) {
+            frequencySketch.increment(id);
+        }
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        if (snapshot.isEnabled()) {
+            Path path = Paths.get(snapshot.getPath());
+            if (Files.exists(path)) {
+                try {
+                    load(path);
+                } catch (IOException | ClassNotFoundException | RuntimeException e) {
+                    log.warn("Could not load the cache snapshot {}: {}", path, e.toString());
+                }
+            }
+        }
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        if (snapshot.isEnabled()) {
+            Path path = Paths.get(snapshot.getPath());
+            try {
+                save(path);
+            } catch (IOException | RuntimeException e) {
+                log.warn("Could not save the cache snapshot {}: {}", path, e.toString());
+            }
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        return PHASE;
+    }
+
+    private void save(Path path) throws IOException {
+        Cache<Object, Object> cache = cacheManager.getCache(RestrictedEntity.class.getName());
+        PriorityQueue<RankedEntry> hottest = new PriorityQueue<>(Comparator.comparingInt(RankedEntry::getFrequency));
+        for (Cache.Entry<Object, Object> entry : cache) {
+            Object id = DefaultCacheKeysFactory.staticGetEntityId(entry.getKey());
+            if (id instanceof Long) {
+                hottest.add(new RankedEntry(entry.getKey(), entry.getValue(), frequencySketch.estimate((Long) id)));
+                if (hottest.size() > snapshot.getMaxEntries()) {
+                    hottest.poll();
+                }
+            }
+        }
+        Files.createDirectories(path.toAbsolutePath().getParent());
+        Path tempPath = Files.createTempFile(path.toAbsolutePath().getParent(), path.getFileName().toString(), ".tmp");
+        try (OutputStream outputStream = Files.newOutputStream(tempPath);
+             DataOutputStream output = new DataOutputStream(new BufferedOutputStream(outputStream))) {
+            output.writeInt(SNAPSHOT_FORMAT);
+            output.writeInt(hottest.size());
+            for (RankedEntry entry : hottest) {
+                write(output, keySerializer.serialize(entry.getKey()));
+                write(output, valueSerializer.serialize(entry.getValue()));
+            }
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(tempPath);
+            throw e;
+        }
+        Files.move(tempPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        log.info("Saved {} RestrictedEntity cache entries to {}", hottest.size(), path);
+    }
+
+    private void load(Path path) throws IOException, ClassNotFoundException {
+        Map<Long, Map.Entry<Object, Object>> entries = new LinkedHashMap<>();
+        try (InputStream inputStream = Files.newInputStream(path);
+             DataInputStream input = new DataInputStream(new BufferedInputStream(inputStream))) {
+            if (input.readInt() != SNAPSHOT_FORMAT) {
+                log.warn("Ignoring the cache snapshot {}, written in another format", path);
+                return;
+            }
+            int size = input.readInt();
+            for (int i = 0; i < size; i++) {
+                Object key = keySerializer.read(read(input));
+                Object value = valueSerializer.read(read(input));
+                entries.put((Long) DefaultCacheKeysFactory.staticGetEntityId(key), new AbstractMap.SimpleImmutableEntry<>(key, value));
+            }
+        }
+
+        Cache<Object, Object> cache = cacheManager.getCache(RestrictedEntity.class.getName());
+        List<Long> ids = new ArrayList<>(entries.keySet());
+        int loaded = 0;
+        Map<Integer, List<Long>> byShard = restrictedEntityShards.groupByShard(ids, Function.identity());
+        List<Object[]> versions = new ArrayList<>();
+        restrictedEntityShards.fanOut(byShard.keySet(), true, shard -> {
+            List<Long> shardIds = byShard.get(shard);
+            List<Object[]> shardVersions = new ArrayList<>();
+            for (int from = 0; from < shardIds.size(); from += IN_CLAUSE_CHUNK_SIZE) {
+                List<Long> chunk = shardIds.subList(from, Math.min(from + IN_CLAUSE_CHUNK_SIZE, shardIds.size()));
+                shardVersions.addAll(restrictedEntityRepository.findVersionsByIdIn(chunk));
+            }
+            return shardVersions;
+        }).forEach(versions::addAll);
+        for (Object[] row : versions) {
+            Map.Entry<Object, Object> entry = entries.get((Long) row[0]);
+            if (entry.getValue() instanceof CacheEntry &&
+                Objects.equals(((CacheEntry) entry.getValue()).getVersion(), row[1]) &&
+                cache.putIfAbsent(entry.getKey(), entry.getValue())) {
+                loaded++;
+            }
+        }
+        log.info("Loaded {} of the {} RestrictedEntity cache entries of {}, the others are stale", loaded, entries.size(), path);
+    }
+
+    private static void write(DataOutputStream output, ByteBuffer binary) throws IOException {
+        byte[] bytes = new byte[binary.remaining()];
+        binary.duplicate().get(bytes);
+        output.writeInt(bytes.length);
+        output.write(bytes);
+    }
+
+    private static ByteBuffer read(DataInputStream input) throws IOException {
+        byte[] binary = new byte[input.readInt()];
+        input.readFully(binary);
+        return ByteBuffer.wrap(binary);
+    }
+
+    private static final class RankedEntry {
+
+        private final Object key;
+
+        private final Object value;
+
+        private final int frequency;
+
+        RankedEntry(Object key, Object value, int frequency) {
+            this.key = key;
+            this.value = value;
+            this.frequency = frequency;
+        }
+
+        Object getKey() {
+            return key;
+        }
+
+        Object getValue() {
+            return value;
+        }
+
+        int getFrequency() {
+            return frequency;
+        }
+    }
+}
@@ -0,0 +1,231 @@
+package com.mycompany.myapp.service;
+
+import com.mycompany.myapp.config.ApplicationProperties;
+import com.mycompany.myapp.domain.RestrictedEntity;
+import com.mycompany.myapp.repository.RestrictedEntityRepository;
+import com.mycompany.myapp.repository.RestrictedEntityShards;
+import com.mycompany.myapp.repository.RestrictedEntityTombstoneRepository;
+import com.mycompany.myapp.service.dto.RestrictedEntityChangeDTO;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.hibernate.dialect.H2Dialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManagerFactory;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Reads the changes made to the {@link RestrictedEntity} rows, from their change sequence and from the tombstones of
+ * the deleted rows, for {@code GET /restricted-entities/changes} and for the syncs of the instances.
+ * <p>
+ * A change sequence value is taken when the row is written, not when it commits, so the changes are only read from
+ * the primary database up to a horizon below which every transaction has committed (on H2, up to the current value).
+ * Tombstones older than {@code application.change-feed.tombstone-retention} are purged, and reading after a purged
+ * watermark throws a {@link RestrictedEntityResyncRequiredException}. When sharded, each shard has its own sequence.
+ */
+@Service
+public class RestrictedEntityChangeFeed {
+
+    private final Logger log = LoggerFactory.getLogger(RestrictedEntityChangeFeed.class);
+
+    /**
+     * Number of changes read at once by {@link #sync}.
+     */
+    public static final int SYNC_PAGE_SIZE = 1000;
+
+    /**
+     * Maximum number of samples of the sequence kept while waiting for the transactions running when they were taken.
+     */
+    private static final int MAX_SAMPLES = 1024;
+
+    private final RestrictedEntityRepository restrictedEntityRepository;
+
+    private final RestrictedEntityTombstoneRepository restrictedEntityTombstoneRepository;
+
+    private final RestrictedEntityShards restrictedEntityShards;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final EntityManagerFactory entityManagerFactory;
+
+    private final Duration tombstoneRetention;
+
+    private final Counter purgedTombstones;
+
+    private final Horizon[] horizons;
+
+    public RestrictedEntityChangeFeed(RestrictedEntityRepository restrictedEntityRepository,
+                                      RestrictedEntityTombstoneRepository restrictedEntityTombstoneRepository,
+                                      RestrictedEntityShards restrictedEntityShards, JdbcTemplate jdbcTemplate,
+                                      PlatformTransactionManager transactionManager, EntityManagerFactory entityManagerFactory,
+                                      ApplicationProperties applicationProperties, MeterRegistry meterRegistry) {
+        this.restrictedEntityRepository = restrictedEntityRepository;
+        this.restrictedEntityTombstoneRepository = restrictedEntityTombstoneRepository;
+        this.restrictedEntityShards = restrictedEntityShards;
+        this.jdbcTemplate = jdbcTemplate;
+        // Read-write, so the changes are read from the primary
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.entityManagerFactory = entityManagerFactory;
+        this.tombstoneRetention = applicationProperties.getChangeFeed().getTombstoneRetention();
+        this.purgedTombstones = Counter.builder("restricted.entity.tombstones.purged")
+            .description("Number of tombstones of restricted entities purged past their retention").register(meterRegistry);
+        this.horizons = new Horizon[restrictedEntityShards.getShardCount()];
+        for (int shard = 0; shard < horizons.length; shard++) {
+            horizons[shard] = new Horizon();
+        }
+    }
+
+    /**
+     * Get the committed changes made after a watermark, rows and tombstones merged in change sequence order, so the
+     * {@code changeSeq} of the last one is the watermark of the next call.
+     * <p>
+     * Must run in a read-write transaction bound to the shard.
+     *
+     * @param shard the shard, 0 when not sharded.
+     * @param since the watermark, exclusive, 0 to read all the rows.
+     * @param limit the maximum number of changes to return.
+     * @return the changes, ordered by change sequence.
+     * @throws RestrictedEntityResyncRequiredException if tombstones recorded after the watermark were purged.
+     */
+    public List<RestrictedEntityChangeDTO> read(int shard, long since, int limit) {
+        if (since > 0) {
+            long purged = jdbcTemplate.queryForObject("select purged_change_seq from restricted_entity_tombstone_purge", Long.class);
+            if (since < purged) {
+                throw new RestrictedEntityResyncRequiredException("The tombstones after " + since + " were purged up to " + purged);
+            }
+        }
+        long until = horizon(shard);
+        List<RestrictedEntityChangeDTO> changes = new ArrayList<>();
+        if (until <= since) {
+            return changes;
+        }
+        PageRequest page = PageRequest.of(0, limit, Sort.by("changeSeq"));
+        restrictedEntityRepository.findRowsChangedBetween(since, until, page).forEach(row -> {
+            RestrictedEntity restrictedEntity = new RestrictedEntity().myField((String) row[2]);
+            restrictedEntity.setId((Long) row[0]);
+            restrictedEntity.setVersion((Long) row[1]);
+            restrictedEntity.setChangeSeq((Long) row[3]);
+            changes.add(RestrictedEntityChangeDTO.upserted(restrictedEntity));
+        });
+        restrictedEntityTombstoneRepository.findChangedBetween(since, until, page)
+            .forEach(tombstone -> changes.add(RestrictedEntityChangeDTO.deleted(tombstone)));
+        changes.sort(Comparator.comparing(RestrictedEntityChangeDTO::getChangeSeq));
+        return changes.size() > limit ? new ArrayList<>(changes.subList(0, limit)) : changes;
+    }
+
+    /**
+     * Pass the committed changes made after a watermark to a consumer, in change sequence order, reading them page
+     * after page in transactions of their own. Not sharded.
+     *
+     * @param watermark the watermark, exclusive, 0 to read all the rows.
+     * @param consumer the consumer of the changes.
+     * @return the new watermark.
+     * @throws RestrictedEntityResyncRequiredException if tombstones recorded after the watermark were purged.
+     */
+    public long sync(long watermark, Consumer<RestrictedEntityChangeDTO> consumer) {
+        List<RestrictedEntityChangeDTO> page;
+        do {
+            long since = watermark;
+            page = transactionTemplate.execute(status -> read(0, since, SYNC_PAGE_SIZE));
+            for (RestrictedEntityChangeDTO change : page) {
+                consumer.accept(change);
+                watermark = change.getChangeSeq();
+            }
+        } while (page.size() == SYNC_PAGE_SIZE);
+        return watermark;
+    }
+
+    /**
+     * Get the watermark to read the changes from after a full read of the rows begun after this call: every change up
+     * to it is committed, so visible to the full read. Not sharded.
+     *
+     * @return the watermark.
+     */
+    public long horizon() {
+        return transactionTemplate.execute(status -> horizon(0));
+    }
+
+    private long horizon(int shard) {
+        if (entityManagerFactory.unwrap(SessionFactoryImplementor.class).getJdbcServices().getDialect() instanceof H2Dialect) {
+            return jdbcTemplate.queryForObject("select current_value from information_schema.sequences " +
+                "where sequence_name = 'RESTRICTED_ENTITY_CHANGE_SEQ'", Long.class);
+        }
+        return horizons[shard].next();
+    }
+
+    /**
+     * Purge the tombstones past their retention, on every shard. The tombstones above the horizon are kept, as
+     * transactions still running may commit more below them.
+     */
+    @Scheduled(fixedDelayString = "#{T(org.springframework.boot.convert.DurationStyle)" +
+        ".detectAndParse('${application.change-feed.purge-interval:1h}').toMillis()}")
+    public void purgeTombstones() {
+        Timestamp before = Timestamp.from(Instant.now().minus(tombstoneRetention));
+        restrictedEntityShards.fanOut(restrictedEntityShards.allShards(), false, shard -> transactionTemplate.execute(status -> {
+            Long purged = jdbcTemplate.queryForObject("select max(change_seq) from restricted_entity_tombstone " +
+                "where deleted_date < ? and change_seq <= ?", Long.class, before, horizon(shard));
+            if (purged == null) {
+                return 0;
+            }
+            jdbcTemplate.update("update restricted_entity_tombstone_purge set purged_change_seq = ? where purged_change_seq < ?",
+                purged, purged);
+            int deleted = jdbcTemplate.update("delete from restricted_entity_tombstone where change_seq <= ?", purged);
+            purgedTombstones.increment(deleted);
+            log.info("Purged {} RestrictedEntity tombstones of shard {} up to change {}", deleted, shard, purged);
+            return deleted;
+        }));
+    }
+
+    /**
+     * The committed horizon of the change sequence of a database.
+     */
+    private final class Horizon {
+
+        // Pairs of the next transaction id and of the last value of the sequence, the sequence being read first: a
+        // transaction took its id before any value up to the one read, so its id is below the next one read after.
+        // Read the other way round, a transaction given its id in between could still take a value below. Guarded by this
+        private final Deque<long[]> samples = new ArrayDeque<>();
+
+        private long value;
+
+        /**
+         * Take a new sample and return the last value of the most recent sample none of whose transactions is still
+         * running. Must run on the connection of the database.
+         */
+        synchronized long next() {
+            long lastValue = jdbcTemplate.queryForObject(
+                "select case when is_called then last_value else last_value - 1 end from restricted_entity_change_seq", Long.class);
+            long[] snapshot = jdbcTemplate.queryForObject(
+                "select txid_snapshot_xmin(snapshot), txid_snapshot_xmax(snapshot) from txid_current_snapshot() snapshot",
+                (rs, rowNum) -> new long[]{rs.getLong(1), rs.getLong(2)});
+            if (samples.size() == MAX_SAMPLES) {
+                samples.removeFirst();
+            }
+            samples.addLast(new long[]{snapshot[1], lastValue});
+            // Every transaction below xmin has ended
+            while (!samples.isEmpty() && samples.peekFirst()[0] <= snapshot[0]) {
+                value = Math.max(value, samples.removeFirst()[1]);
+            }
+            return value;
+        }
+    }
+}
@@ -0,0 +1,212 @@
+package com.mycompany.myapp.service;
+
+import com.mycompany.myapp.config.ApplicationProperties;
+import com.mycompany.myapp.service.dto.RestrictedEntityChangeEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Service pushing {@link RestrictedEntityChangeEvent}s to server-sent events subscribers.
+ * <p>
+ * Events are queued after commit in a bounded buffer per subscriber, drained by the {@code changeStreamExecutor}. A
+ * full buffer is replaced by a single {@code resync} event, and a subscriber whose send is blocked for
+ * {@code application.change-stream.send-timeout} is dropped.
+ */
+@Service
+public class RestrictedEntityChangeStreamService {
+
+    public static final String CHANGE_EVENT_NAME = "change";
+
+    public static final String RESYNC_EVENT_NAME = "resync";
+
+    private final Logger log = LoggerFactory.getLogger(RestrictedEntityChangeStreamService.class);
+
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+
+    private final Executor executor;
+
+    private final ApplicationProperties.ChangeStream changeStreamProperties;
+
+    private final long sendTimeoutNanos;
+
+    private final Counter droppedEvents;
+
+    private final Counter blockedSubscribers;
+
+    public RestrictedEntityChangeStreamService(@Qualifier("changeStreamExecutor") Executor executor,
+                                               ApplicationProperties applicationProperties, MeterRegistry meterRegistry) {
+        this.executor = executor;
+        this.changeStreamProperties = applicationProperties.getChangeStream();
+        this.sendTimeoutNanos = changeStreamProperties.getSendTimeout().toNanos();
+        Gauge.builder("restricted.entity.change.stream.subscribers", subscribers, Set::size)
+            .description("Number of subscribers to the RestrictedEntity change stream")
+            .register(meterRegistry);
+        this.droppedEvents = Counter.builder("restricted.entity.change.stream.dropped")
+            .description("Number of RestrictedEntity change events dropped because a subscriber was too slow")
+            .register(meterRegistry);
+        this.blockedSubscribers = Counter.builder("restricted.entity.change.stream.blocked")
+            .description("Number of RestrictedEntity change stream subscribers dropped because a send was blocked")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Subscribe to the change events committed from now on.
+     *
+     * @return the emitter the events are sent to.
+     */
+    public SseEmitter subscribe() {
+        SseEmitter emitter = new SseEmitter(changeStreamProperties.getTimeout().toMillis());
+        Subscriber subscriber = new Subscriber(emitter, changeStreamProperties.getBufferSize());
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onTimeout(() -> subscribers.remove(subscriber));
+        emitter.onError(e -> subscribers.remove(subscriber));
+        subscribers.add(subscriber);
+        log.debug("New RestrictedEntity change stream subscriber, {} in total", subscribers.size());
+        return emitter;
+    }
+
+    /**
+     * Queue a committed change for every subscriber.
+     *
+     * @param event the change.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onChange(RestrictedEntityChangeEvent event) {
+        subscribers.forEach(subscriber -> subscriber.offer(event));
+    }
+
+    /**
+     * Drop the subscribers whose current send has been blocked for longer than the send timeout.
+     */
+    @Scheduled(fixedDelayString = "#{T(org.springframework.boot.convert.DurationStyle)" +
+        ".detectAndParse('${application.change-stream.send-timeout:10s}').toMillis()}")
+    public void dropBlockedSubscribers() {
+        long now = System.nanoTime();
+        subscribers.forEach(subscriber -> subscriber.dropIfBlocked(now));
+    }
+
+    private final class Subscriber {
+
+        private final SseEmitter emitter;
+
+        private final BlockingQueue<RestrictedEntityChangeEvent> events;
+
+        private final AtomicBoolean draining = new AtomicBoolean();
+
+        private volatile boolean overflowed;
+
+        private volatile Thread sender;
+
+        /**
+         * When the current send started, or 0 when not sending.
+         */
+        private volatile long sendStart;
+
+        Subscriber(SseEmitter emitter, int bufferSize) {
+            this.emitter = emitter;
+            this.events = new ArrayBlockingQueue<>(bufferSize);
+        }
+
+        void offer(RestrictedEntityChangeEvent event) {
+            if (!events.offer(event)) {
+                droppedEvents.increment(events.size() + 1);
+                events.clear();
+                overflowed = true;
+            }
+            scheduleDrain();
+        }
+
+        private void scheduleDrain() {
+            if (draining.compareAndSet(false, true)) {
+                try {
+                    executor.execute(this::drain);
+                } catch (RejectedExecutionException e) {
+                    draining.set(false);
+                    close(e);
+                }
+            }
+        }
+
+        private void drain() {
+            sender = Thread.currentThread();
+            try {
+                while (subscribers.contains(this)) {
+                    if (overflowed) {
+                        overflowed = false;
+                        send(SseEmitter.event().name(RESYNC_EVENT_NAME).data(""));
+                    }
+                    RestrictedEntityChangeEvent event = events.poll();
+                    if (event == null) {
+                        break;
+                    }
+                    send(SseEmitter.event().name(CHANGE_EVENT_NAME).data(event, MediaType.APPLICATION_JSON));
+                }
+            } catch (IOException | IllegalStateException e) {
+                close(e);
+                return;
+            } finally {
+                sender = null;
+                // an interruption meant for a blocked send must not reach the next task of the thread
+                Thread.interrupted();
+                draining.set(false);
+            }
+            // an event may have been queued after the last poll but before the flag was reset
+            if (subscribers.contains(this) && (overflowed || !events.isEmpty())) {
+                scheduleDrain();
+            }
+        }
+
+        private void send(SseEmitter.SseEventBuilder event) throws IOException {
+            sendStart = System.nanoTime() | 1;
+            try {
+                emitter.send(event);
+            } finally {
+                sendStart = 0;
+            }
+        }
+
+        /**
+         * Stop queueing events for this subscriber and interrupt its sender if the current send is blocked. The
+         * emitter is not completed here, as it stays locked by the blocked send: the failed send completes it.
+         */
+        void dropIfBlocked(long now) {
+            long start = sendStart;
+            Thread blockedSender = sender;
+            if (start == 0 || now - start < sendTimeoutNanos || !subscribers.remove(this)) {
+                return;
+            }
+            log.debug("Dropping RestrictedEntity change stream subscriber blocked for {} ms",
+                TimeUnit.NANOSECONDS.toMillis(now - start));
+            blockedSubscribers.increment();
+            events.clear();
+            if (blockedSender != null && sendStart == start) {
+                blockedSender.interrupt();
+            }
+        }
+
+        private void close(Exception e) {
+            log.debug("Dropping RestrictedEntity change stream subscriber: {}", e.getMessage());
+            subscribers.remove(this);
+            emitter.completeWithError(e);
+        }
+    }
+}
@@ -0,0 +1,269 @@
+package com.mycompany.myapp.service;
+
+import com.mycompany.myapp.config.ApplicationProperties;
+import com.mycompany.myapp.domain.RestrictedEntity;
+import com.mycompany.myapp.repository.RestrictedEntityRepository;
+import com.mycompany.myapp.repository.RestrictedEntityShards;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.cache.Cache;
+import javax.cache.CacheManager;
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Tells which {@link RestrictedEntity} ids certainly do not exist, so they can be reported as not found without
+ * reading the database.
+ * <p>
+ * A Bloom filter of the existing ids, kept up to date from the {@link RestrictedEntityChangeFeed} and rebuilt
+ * periodically, and a cache of the ids recently not found are consulted, only for the ids up to the highest one seen.
+ * Disabled unless {@code application.not-found.enabled} is set, since an entity created by another instance may be
+ * reported as not found until the next sync. When sharded, only the cache is consulted.
+ */
+@Service
+public class RestrictedEntityExistenceService {
+
+    private final Logger log = LoggerFactory.getLogger(RestrictedEntityExistenceService.class);
+
+    private static final long MIN_EXPECTED_INSERTIONS = 1024;
+
+    /**
+     * Share of the ids of the last build that may be deleted before the filter is rebuilt.
+     */
+    private static final double MAX_DELETED_RATIO = 0.1;
+
+    private final RestrictedEntityRepository restrictedEntityRepository;
+
+    private final RestrictedEntityChangeFeed restrictedEntityChangeFeed;
+
+    private final RestrictedEntityShards restrictedEntityShards;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final Cache<Object, Object> notFoundCache;
+
+    private final boolean enabled;
+
+    private final double falsePositiveRate;
+
+    private final long rebuildIntervalNanos;
+
+    private final Counter bloomFilterNotFound;
+
+    private final Counter notFoundCacheNotFound;
+
+    private final Counter databaseNotFound;
+
+    private final Counter falsePositives;
+
+    private volatile BloomFilter bloomFilter;
+
+    private volatile BloomFilter nextBloomFilter;
+
+    private final AtomicLong highestId = new AtomicLong(Long.MIN_VALUE);
+
+    // Only used by the sync
+    private long watermark;
+
+    private long builtAt;
+
+    private long builtCount;
+
+    private long deletions;
+
+    private long expectedInsertions;
+
+    private long insertions;
+
+    public RestrictedEntityExistenceService(RestrictedEntityRepository restrictedEntityRepository,
+                                            RestrictedEntityChangeFeed restrictedEntityChangeFeed,
+                                            RestrictedEntityShards restrictedEntityShards,
+                                            PlatformTransactionManager transactionManager, CacheManager cacheManager,
+                                            ApplicationProperties applicationProperties, MeterRegistry meterRegistry) {
+        this.restrictedEntityRepository = restrictedEntityRepository;
+        this.restrictedEntityChangeFeed = restrictedEntityChangeFeed;
+        this.restrictedEntityShards = restrictedEntityShards;
+        // Read-write, so the ids are read from the primary, which has every change up to the horizon of the feed
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.notFoundCache = cacheManager.getCache(RestrictedEntityRepository.NOT_FOUND_CACHE);
+        this.enabled = applicationProperties.getNotFound().isEnabled();
+        this.falsePositiveRate = applicationProperties.getNotFound().getFalsePositiveRate();
+        this.rebuildIntervalNanos = applicationProperties.getNotFound().getRebuildInterval().toNanos();
+        this.bloomFilterNotFound = notFoundCounter(meterRegistry, "bloom.filter");
+        this.notFoundCacheNotFound = notFoundCounter(meterRegistry, "negative.cache");
+        this.databaseNotFound = notFoundCounter(meterRegistry, "database");
+        this.falsePositives = Counter.builder("restricted.entity.bloom.filter.false.positives")
+            .description("Number of missing ids the Bloom filter could not rule out").register(meterRegistry);
+        Gauge.builder("restricted.entity.bloom.filter.false.positive.rate", this,
+            service -> falsePositiveRate(service.falsePositives.count(), service.bloomFilterNotFound.count()))
+            .description("Share of the missing ids the Bloom filter could not rule out").register(meterRegistry);
+        Gauge.builder("restricted.entity.bloom.filter.expected.false.positive.rate", this,
+            service -> service.bloomFilter != null ? service.bloomFilter.expectedFalsePositiveRate() : Double.NaN)
+            .description("Probability of a false positive of the Bloom filter, from its fill ratio").register(meterRegistry);
+    }
+
+    private static Counter notFoundCounter(MeterRegistry meterRegistry, String source) {
+        return Counter.builder("restricted.entity.not.found").tag("source", source)
+            .description("Number of restricted entity ids not found").register(meterRegistry);
+    }
+
+    private static double falsePositiveRate(double falsePositives, double trueNegatives) {
+        return falsePositives + trueNegatives == 0 ? 0 : falsePositives / (falsePositives + trueNegatives);
+    }
+
+    /**
+     * @param id the id of the entity.
+     * @return true if the entity certainly does not exist, false if it may.
+     */
+    public boolean isKnownAbsent(Long id) {
+        if (!enabled || id > highestId.get()) {
+            return false;
+        }
+        BloomFilter filter = bloomFilter;
+        if (filter != null && !filter.mightContain(id)) {
+            bloomFilterNotFound.increment();
+            return true;
+        }
+        if (notFoundCache.containsKey(id)) {
+            notFoundCacheNotFound.increment();
+            if (filter != null) {
+                falsePositives.increment();
+            }
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Remember that the database has no entity with the given id.
+     *
+     * @param id the id of the entity.
+     */
+    public void notFound(Long id) {
+        databaseNotFound.increment();
+        if (!enabled) {
+            return;
+        }
+        if (bloomFilter != null) {
+            falsePositives.increment();
+        }
+        notFoundCache.put(id, Boolean.TRUE);
+    }
+
+    /**
+     * Record the ids of new entities, now and again once the transaction completes, so a concurrent read cannot
+     * remember one of them as not found.
+     *
+     * @param ids the ids of the new entities.
+     */
+    public void created(Collection<Long> ids) {
+        if (!enabled) {
+            return;
+        }
+        Runnable registration = () -> ids.forEach(this::add);
+        registration.run();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCompletion(int status) {
+                    registration.run();
+                }
+            });
+        }
+    }
+
+    private void add(Long id) {
+        highestId.accumulateAndGet(id, Math::max);
+        BloomFilter filter = bloomFilter;
+        if (filter != null) {
+            filter.put(id);
+        }
+        BloomFilter nextFilter = nextBloomFilter;
+        if (nextFilter != null) {
+            nextFilter.put(id);
+        }
+        notFoundCache.remove(id);
+    }
+
+    /**
+     * Build the Bloom filter at startup, then add the ids created since the last run, by this or other instances,
+     * and rebuild the filter once too many ids were deleted or created since it was built, when the change feed
+     * cannot be read from the watermark any more, and once it is older than the rebuild interval.
+     */
+    @Scheduled(fixedDelayString = "#{T(org.springframework.boot.convert.DurationStyle)" +
+        ".detectAndParse('${application.not-found.sync-interval:5s}').toMillis()}")
+    public synchronized void sync() {
+        if (!enabled || restrictedEntityShards.isSharded()) {
+            return;
+        }
+        if (bloomFilter == null || insertions > expectedInsertions ||
+            deletions > Math.max(MIN_EXPECTED_INSERTIONS, builtCount) * MAX_DELETED_RATIO ||
+            System.nanoTime() - builtAt > rebuildIntervalNanos) {
+            rebuild();
+            return;
+        }
+        BloomFilter filter = bloomFilter;
+        try {
+            watermark = restrictedEntityChangeFeed.sync(watermark, change -> {
+                if (change.isDeleted()) {
+                    deletions++;
+                    return;
+                }
+                if (filter.put(change.getId())) {
+                    insertions++;
+                }
+                highestId.accumulateAndGet(change.getId(), Math::max);
+                notFoundCache.remove(change.getId());
+            });
+        } catch (RestrictedEntityResyncRequiredException e) {
+            log.info("Rebuilding the Bloom filter of the RestrictedEntity ids: {}", e.getMessage());
+            rebuild();
+        }
+    }
+
+    /**
+     * Build a new Bloom filter sized for twice the current number of entities. The ids saved meanwhile are added to
+     * both the current and the new filter. The sync then resumes from the horizon of the change feed taken before
+     * the ids are read, so the rows committed meanwhile are read again rather than missed.
+     */
+    private void rebuild() {
+        long horizon = restrictedEntityChangeFeed.horizon();
+        long count = restrictedEntityRepository.count();
+        long capacity = Math.max(MIN_EXPECTED_INSERTIONS, count * 2);
+        BloomFilter filter = new BloomFilter(capacity, falsePositiveRate);
+        nextBloomFilter = filter;
+        try {
+            transactionTemplate.execute(status -> {
+                try (Stream<Object[]> rows = restrictedEntityRepository.streamAllIds()) {
+                    rows.forEach(row -> {
+                        filter.put((Long) row[0]);
+                        highestId.accumulateAndGet((Long) row[0], Math::max);
+                    });
+                }
+                return null;
+            });
+            // Swapped before the new filter stops receiving the saved ids, so none is missed
+            bloomFilter = filter;
+        } finally {
+            nextBloomFilter = null;
+        }
+        watermark = horizon;
+        builtAt = System.nanoTime();
+        builtCount = count;
+        deletions = 0;
+        expectedInsertions = capacity;
+        insertions = count;
+        log.debug("Built the Bloom filter of the {} RestrictedEntity ids", count);
+    }
+}
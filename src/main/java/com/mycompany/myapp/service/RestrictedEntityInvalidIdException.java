@@ -0,0 +1,26 @@
+package com.mycompany.myapp.service;
+
+import java.util.List;
+
+/**
+ * Thrown when restrictedEntities are upserted with ids that have neither a row nor a tombstone, which may still be
+ * given to new entities, or with ids no partition of the table can hold anymore.
+ */
+public class RestrictedEntityInvalidIdException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final List<Long> ids;
+
+    public RestrictedEntityInvalidIdException(List<Long> ids, String message) {
+        super(message);
+        this.ids = ids;
+    }
+
+    /**
+     * @return the invalid ids.
+     */
+    public List<Long> getIds() {
+        return ids;
+    }
+}
@@ -0,0 +1,173 @@
+package com.mycompany.myapp.service;
+
+import com.mycompany.myapp.config.ApplicationProperties;
+import com.mycompany.myapp.domain.RestrictedEntity;
+import com.mycompany.myapp.repository.RestrictedEntityRepository;
+import com.mycompany.myapp.repository.RestrictedEntityShards;
+import com.mycompany.myapp.service.dto.RestrictedEntityChangeEvent;
+import com.mycompany.myapp.service.dto.RestrictedEntityJson;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.cache.Cache;
+import javax.cache.CacheManager;
+import java.io.UncheckedIOException;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Service serving restrictedEntities as ready-to-send JSON bytes.
+ * <p>
+ * The bytes are cached by id along with the version they were serialized from, which is the entity tag of the
+ * response. The entries are evicted by the {@link RestrictedEntityChangeEvent}s of this instance, and by the changes
+ * of other instances read from the {@link RestrictedEntityChangeFeed} every {@code application.cache.json.sync-interval}.
+ * Inside a transaction the cache is bypassed, and nothing is cached with read replicas or shards.
+ */
+@Service
+public class RestrictedEntityJsonService {
+
+    private final Logger log = LoggerFactory.getLogger(RestrictedEntityJsonService.class);
+
+    private final RestrictedEntityQueryService restrictedEntityQueryService;
+
+    private final RestrictedEntityChangeFeed restrictedEntityChangeFeed;
+
+    private final ObjectWriter objectWriter;
+
+    private final Cache<Object, Object> cache;
+
+    private final boolean cacheEnabled;
+
+    private final AtomicLong evictions = new AtomicLong();
+
+    // Only used by the sync
+    private boolean synced;
+
+    private long watermark;
+
+    public RestrictedEntityJsonService(RestrictedEntityQueryService restrictedEntityQueryService,
+                                       RestrictedEntityChangeFeed restrictedEntityChangeFeed,
+                                       RestrictedEntityShards restrictedEntityShards, ObjectMapper objectMapper,
+                                       CacheManager cacheManager, ApplicationProperties applicationProperties) {
+        this.restrictedEntityQueryService = restrictedEntityQueryService;
+        this.restrictedEntityChangeFeed = restrictedEntityChangeFeed;
+        this.objectWriter = objectMapper.writerFor(RestrictedEntity.class);
+        this.cache = cacheManager.getCache(RestrictedEntityRepository.JSON_CACHE);
+        this.cacheEnabled = applicationProperties.getReadReplica().getPools().isEmpty() && !restrictedEntityShards.isSharded();
+    }
+
+    /**
+     * Get the cached JSON of one restrictedEntity.
+     *
+     * @param id the id of the entity.
+     * @return the JSON of the entity, or empty if it is not cached.
+     */
+    public Optional<RestrictedEntityJson> findCached(Long id) {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable((RestrictedEntityJson) cache.get(id));
+    }
+
+    /**
+     * Get the JSON of one restrictedEntity, serializing and caching it if it is not cached.
+     *
+     * @param id the id of the entity.
+     * @return the JSON of the entity, or empty if it does not exist.
+     */
+    public Optional<RestrictedEntityJson> findOne(Long id) {
+        Optional<RestrictedEntityJson> cached = findCached(id);
+        if (cached.isPresent()) {
+            return cached;
+        }
+        boolean cacheable = cacheEnabled && !TransactionSynchronizationManager.isActualTransactionActive();
+        long evictionsBefore = evictions.get();
+        Optional<RestrictedEntityJson> json = restrictedEntityQueryService.findOne(id).map(this::serialize);
+        if (cacheable && json.isPresent()) {
+            cache.put(id, json.get());
+            // An eviction counted after this check also removes the entry put above
+            if (evictions.get() != evictionsBefore) {
+                log.debug("Not caching the JSON of RestrictedEntity {}, changed meanwhile", id);
+                cache.remove(id);
+            }
+        }
+        return json;
+    }
+
+    private RestrictedEntityJson serialize(RestrictedEntity restrictedEntity) {
+        try {
+            return new RestrictedEntityJson(restrictedEntity.getVersion(), objectWriter.writeValueAsBytes(restrictedEntity));
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Evict the entries of the changed restrictedEntities as soon as the change is published.
+     *
+     * @param event the change.
+     */
+    @EventListener
+    public void onChange(RestrictedEntityChangeEvent event) {
+        evict(event);
+    }
+
+    /**
+     * Evict the entries of the changed restrictedEntities again once the transaction completes, in case a concurrent
+     * read cached the previous version meanwhile.
+     *
+     * @param event the change.
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMPLETION, fallbackExecution = true)
+    public void afterChange(RestrictedEntityChangeEvent event) {
+        evict(event);
+    }
+
+    /**
+     * Evict the entries of the restrictedEntities changed or deleted since the last run, by this or other instances.
+     * The first run, and a run finding the change feed purged past its watermark, clears the cache instead.
+     */
+    @Scheduled(fixedDelayString = "#{T(org.springframework.boot.convert.DurationStyle)" +
+        ".detectAndParse('${application.cache.json.sync-interval:5s}').toMillis()}")
+    public synchronized void sync() {
+        if (!cacheEnabled) {
+            return;
+        }
+        if (synced) {
+            try {
+                watermark = restrictedEntityChangeFeed.sync(watermark, change -> {
+                    evictions.incrementAndGet();
+                    cache.remove(change.getId());
+                });
+                return;
+            } catch (RestrictedEntityResyncRequiredException e) {
+                log.info("Clearing the RestrictedEntity JSON cache: {}", e.getMessage());
+            }
+        }
+        // Taken before clearing, so the changes committed meanwhile are read again rather than missed
+        long horizon = restrictedEntityChangeFeed.horizon();
+        evictions.incrementAndGet();
+        cache.removeAll();
+        watermark = horizon;
+        synced = true;
+    }
+
+    private void evict(RestrictedEntityChangeEvent event) {
+        evictions.incrementAndGet();
+        if (event.getIds() != null) {
+            event.getIds().forEach(cache::remove);
+        } else {
+            cache.removeAll();
+        }
+    }
+}
@@ -0,0 +1,388 @@
+package com.mycompany.myapp.service;
+
+import com.mycompany.myapp.service.dto.RestrictedEntityMappedJson;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * An append-only file of the JSON representations of the {@link com.mycompany.myapp.domain.RestrictedEntity} rows,
+ * mapped in memory and read from the mapped pages, so the rows take neither heap nor a copy in the Java process.
+ * <p>
+ * The file starts with a header holding the end of the records and their change sequence watermark. Each record holds
+ * an id, a version and the JSON bytes, or a tombstone. Only the index of the ids is kept on the heap, rebuilt when the
+ * file is opened again. There must be a single writer, readers may run concurrently with it.
+ */
+final class RestrictedEntityMappedStore implements Closeable {
+
+    /**
+     * Format of the file. The second format keeps a single watermark of the committed changes, the first one kept
+     * watermarks of the rows and of the tombstones read with an overlap, which may have passed changes committed late.
+     */
+    private static final int FORMAT = 0x52455232;
+
+    private static final int HEADER_SIZE = 64;
+
+    private static final int END_OFFSET = 8;
+
+    private static final int WATERMARK_OFFSET = 16;
+
+    /**
+     * Size of the id, the version and the length of the JSON of a record.
+     */
+    private static final int RECORD_HEADER_SIZE = 20;
+
+    private static final int TOMBSTONE = -1;
+
+    private static final int PADDING = -2;
+
+    private static final int MIN_CAPACITY = 16;
+
+    /**
+     * Offset in the index of the deleted ids.
+     */
+    private static final long DELETED = -1;
+
+    private final FileChannel channel;
+
+    private final int segmentSize;
+
+    private volatile MappedByteBuffer[] segments;
+
+    private final StampedLock lock = new StampedLock();
+
+    private long[] ids = new long[MIN_CAPACITY];
+
+    private long[] offsets = new long[MIN_CAPACITY];
+
+    // Entries used in the index, deleted ids included
+    private int length;
+
+    private int deleted;
+
+    // Only used by the writer
+    private long end;
+
+    private long liveBytes;
+
+    private int dirtySegment;
+
+    private long watermark;
+
+    private RestrictedEntityMappedStore(FileChannel channel, int segmentSize) {
+        this.channel = channel;
+        this.segmentSize = segmentSize;
+        this.segments = new MappedByteBuffer[0];
+    }
+
+    /**
+     * Open a store, creating the file if it does not exist.
+     *
+     * @param path the path of the file.
+     * @param segmentSize the size of the segments the file is mapped in, which bounds the size of a record.
+     * @return the store.
+     * @throws IOException if the file cannot be mapped or was written in another format.
+     */
+    static RestrictedEntityMappedStore open(Path path, int segmentSize) throws IOException {
+        if (segmentSize < HEADER_SIZE + RECORD_HEADER_SIZE) {
+            throw new IllegalArgumentException("The segment size must be at least " + (HEADER_SIZE + RECORD_HEADER_SIZE) + " bytes");
+        }
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        RestrictedEntityMappedStore store = new RestrictedEntityMappedStore(channel, segmentSize);
+        try {
+            boolean created = channel.size() == 0;
+            store.mapSegments(Math.max(1, (int) ((channel.size() + segmentSize - 1) / segmentSize)));
+            if (created) {
+                store.segments[0].putInt(0, FORMAT).putInt(4, segmentSize);
+                store.end = HEADER_SIZE;
+                store.commit(0);
+            } else {
+                store.load();
+            }
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+        return store;
+    }
+
+    private void load() throws IOException {
+        MappedByteBuffer header = segments[0];
+        if (header.getInt(0) != FORMAT || header.getInt(4) != segmentSize) {
+            throw new IOException("The file was written in another format");
+        }
+        long committedEnd = header.getLong(END_OFFSET);
+        watermark = header.getLong(WATERMARK_OFFSET);
+        end = HEADER_SIZE;
+        while (end < committedEnd) {
+            skipSegmentEnd(RECORD_HEADER_SIZE);
+            MappedByteBuffer segment = segments[segmentIndex(end)];
+            int position = segmentPosition(end);
+            int jsonLength = segment.getInt(position + 16);
+            if (jsonLength == PADDING) {
+                end = (long) (segmentIndex(end) + 1) * segmentSize;
+            } else if (jsonLength == TOMBSTONE) {
+                markDeleted(segment.getLong(position));
+                end += RECORD_HEADER_SIZE;
+            } else {
+                index(segment.getLong(position), end, RECORD_HEADER_SIZE + jsonLength);
+                end += RECORD_HEADER_SIZE + jsonLength;
+            }
+        }
+        dirtySegment = segmentIndex(end);
+    }
+
+    /**
+     * @return the change sequence value of the last change the records are current with.
+     */
+    long getWatermark() {
+        return watermark;
+    }
+
+    /**
+     * @param id the id of the row.
+     * @return the version of the row, or {@code -1} if there is no such row.
+     */
+    long version(long id) {
+        long offset = offset(id);
+        return offset < 0 ? -1 : segments[segmentIndex(offset)].getLong(segmentPosition(offset) + 8);
+    }
+
+    /**
+     * @param id the id of the row.
+     * @return the version and a read-only view of the mapped JSON of the row, or {@code null} if there is no such row.
+     */
+    RestrictedEntityMappedJson get(long id) {
+        long offset = offset(id);
+        if (offset < 0) {
+            return null;
+        }
+        MappedByteBuffer segment = segments[segmentIndex(offset)];
+        int position = segmentPosition(offset);
+        ByteBuffer json = segment.duplicate();
+        json.limit(position + RECORD_HEADER_SIZE + segment.getInt(position + 16)).position(position + RECORD_HEADER_SIZE);
+        return new RestrictedEntityMappedJson(segment.getLong(position + 8), json.slice().asReadOnlyBuffer());
+    }
+
+    private long offset(long id) {
+        long stamp = lock.tryOptimisticRead();
+        long offset = readOffset(id);
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                offset = readOffset(id);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return offset;
+    }
+
+    private long readOffset(long id) {
+        // A concurrent write may replace the arrays between these reads, the result is then discarded by the caller
+        long[] ids = this.ids;
+        long[] offsets = this.offsets;
+        int index = Arrays.binarySearch(ids, 0, Math.min(length, ids.length), id);
+        return index < 0 || index >= offsets.length ? DELETED : offsets[index];
+    }
+
+    /**
+     * Append a version of a row.
+     *
+     * @param id the id of the row.
+     * @param version the version of the row.
+     * @param json the JSON of the row.
+     * @throws IOException if the file cannot be extended.
+     */
+    void append(long id, long version, ByteBuffer json) throws IOException {
+        int recordSize = RECORD_HEADER_SIZE + json.remaining();
+        if (recordSize > segmentSize - HEADER_SIZE) {
+            throw new IllegalArgumentException("The JSON of RestrictedEntity " + id + " does not fit in a segment");
+        }
+        skipSegmentEnd(recordSize);
+        ByteBuffer record = segments[segmentIndex(end)].duplicate();
+        record.position(segmentPosition(end));
+        record.putLong(id).putLong(version).putInt(json.remaining()).put(json.duplicate());
+        index(id, end, recordSize);
+        end += recordSize;
+    }
+
+    /**
+     * Append a tombstone of a row, if the row is there.
+     *
+     * @param id the id of the row.
+     * @throws IOException if the file cannot be extended.
+     */
+    void remove(long id) throws IOException {
+        if (offset(id) < 0) {
+            return;
+        }
+        skipSegmentEnd(RECORD_HEADER_SIZE);
+        ByteBuffer record = segments[segmentIndex(end)].duplicate();
+        record.position(segmentPosition(end));
+        record.putLong(id).putLong(0).putInt(TOMBSTONE);
+        markDeleted(id);
+        end += RECORD_HEADER_SIZE;
+    }
+
+    /**
+     * Move the end to the next segment if the current one cannot hold a record of the given size, padding the rest of
+     * the current one.
+     */
+    private void skipSegmentEnd(int recordSize) throws IOException {
+        int position = segmentPosition(end);
+        if (segmentSize - position < recordSize) {
+            if (segmentSize - position >= RECORD_HEADER_SIZE) {
+                segments[segmentIndex(end)].putInt(position + 16, PADDING);
+            }
+            end = (long) (segmentIndex(end) + 1) * segmentSize;
+        }
+        if (segmentIndex(end) >= segments.length) {
+            mapSegments(segmentIndex(end) + 1);
+        }
+    }
+
+    private void mapSegments(int count) throws IOException {
+        MappedByteBuffer[] mapped = Arrays.copyOf(segments, count);
+        for (int i = segments.length; i < count; i++) {
+            mapped[i] = channel.map(FileChannel.MapMode.READ_WRITE, (long) i * segmentSize, segmentSize);
+        }
+        segments = mapped;
+    }
+
+    private void index(long id, long offset, int recordSize) {
+        long stamp = lock.writeLock();
+        try {
+            int index = Arrays.binarySearch(ids, 0, length, id);
+            if (index >= 0) {
+                if (offsets[index] == DELETED) {
+                    deleted--;
+                } else {
+                    liveBytes -= recordSize(offsets[index]);
+                }
+                offsets[index] = offset;
+            } else {
+                index = -index - 1;
+                if (length == ids.length) {
+                    ids = Arrays.copyOf(ids, length + (length >> 1));
+                    offsets = Arrays.copyOf(offsets, ids.length);
+                }
+                System.arraycopy(ids, index, ids, index + 1, length - index);
+                System.arraycopy(offsets, index, offsets, index + 1, length - index);
+                ids[index] = id;
+                offsets[index] = offset;
+                length++;
+            }
+            liveBytes += recordSize;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    private void markDeleted(long id) {
+        long stamp = lock.writeLock();
+        try {
+            int index = Arrays.binarySearch(ids, 0, length, id);
+            if (index >= 0 && offsets[index] != DELETED) {
+                liveBytes -= recordSize(offsets[index]);
+                offsets[index] = DELETED;
+                deleted++;
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    private int recordSize(long offset) {
+        return RECORD_HEADER_SIZE + segments[segmentIndex(offset)].getInt(segmentPosition(offset) + 16);
+    }
+
+    /**
+     * Write the records appended so far to the disk, then the header making them part of the file.
+     *
+     * @param watermark the change sequence value of the last change the records are current with.
+     */
+    void commit(long watermark) {
+        MappedByteBuffer[] mapped = segments;
+        for (int i = dirtySegment; i < mapped.length; i++) {
+            mapped[i].force();
+        }
+        mapped[0].putLong(END_OFFSET, end).putLong(WATERMARK_OFFSET, watermark);
+        mapped[0].force();
+        this.watermark = watermark;
+        this.dirtySegment = segmentIndex(end);
+    }
+
+    /**
+     * @return the number of rows, deleted ones excluded.
+     */
+    int size() {
+        long stamp = lock.readLock();
+        try {
+            return length - deleted;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * @return the number of bytes of the records of the rows, deleted ones and previous versions excluded.
+     */
+    long liveBytes() {
+        return liveBytes;
+    }
+
+    /**
+     * @return the number of bytes of the records and of the header.
+     */
+    long usedBytes() {
+        return end;
+    }
+
+    /**
+     * Copy the last record of every row to a new store, dropping previous versions and tombstones.
+     *
+     * @param path the path of the file of the new store, which must not exist.
+     * @return the new store, committed with the watermark of this one.
+     * @throws IOException if the new store cannot be written.
+     */
+    RestrictedEntityMappedStore compactTo(Path path) throws IOException {
+        RestrictedEntityMappedStore compacted = open(path, segmentSize);
+        try {
+            for (int i = 0; i < length; i++) {
+                if (offsets[i] != DELETED) {
+                    RestrictedEntityMappedJson record = get(ids[i]);
+                    compacted.append(ids[i], record.getVersion(), record.getJson());
+                }
+            }
+            compacted.commit(watermark);
+        } catch (IOException | RuntimeException e) {
+            compacted.close();
+            throw e;
+        }
+        return compacted;
+    }
+
+    private int segmentIndex(long offset) {
+        return (int) (offset / segmentSize);
+    }
+
+    private int segmentPosition(long offset) {
+        return (int) (offset % segmentSize);
+    }
+
+    /**
+     * Close the file. The views already returned stay readable until they are garbage collected.
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,28 @@
+package com.mycompany.myapp.service;
+
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Thrown when the restrictedEntities of a bulk save were saved on some shards only, the transactions of the other
+ * shards having been rolled back: the saved entities stay saved, and only the others should be saved again.
+ */
+public class RestrictedEntityPartialSaveException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final List<Long> committedIds;
+
+    public RestrictedEntityPartialSaveException(List<Long> committedIds, RuntimeException cause) {
+        super("Saved " + committedIds.stream().filter(Objects::nonNull).count() + " of " + committedIds.size() +
+            " RestrictedEntities", cause);
+        this.committedIds = committedIds;
+    }
+
+    /**
+     * @return the id of every saved entity in the order of the save, {@code null} for the entities not saved.
+     */
+    public List<Long> getCommittedIds() {
+        return committedIds;
+    }
+}
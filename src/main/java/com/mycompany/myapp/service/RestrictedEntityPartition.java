@@ -0,0 +1,120 @@
+package com.mycompany.myapp.service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A partition of the {@code restricted_entity} table, holding the ids of a range, and the planning of the partitions
+ * to create and to retire.
+ */
+final class RestrictedEntityPartition {
+
+    private static final Pattern RANGE_BOUND = Pattern.compile(
+        "FOR VALUES FROM \\((MINVALUE|'?(-?\\d+)'?)\\) TO \\((MAXVALUE|'?(-?\\d+)'?)\\)");
+
+    static final Comparator<RestrictedEntityPartition> BY_LOWER_BOUND =
+        Comparator.comparing(RestrictedEntityPartition::getLower, Comparator.nullsFirst(Comparator.naturalOrder()));
+
+    private final String name;
+
+    private final Long lower;
+
+    private final Long upper;
+
+    RestrictedEntityPartition(String name, Long lower, Long upper) {
+        this.name = name;
+        this.lower = lower;
+        this.upper = upper;
+    }
+
+    /**
+     * @param name the name of the partition.
+     * @param bound the bound of the partition, as given by {@code pg_get_expr(relpartbound, oid)}.
+     * @return the partition, or {@code null} for the default partition.
+     */
+    static RestrictedEntityPartition parse(String name, String bound) {
+        Matcher matcher = RANGE_BOUND.matcher(bound);
+        if (!matcher.matches()) {
+            return null;
+        }
+        return new RestrictedEntityPartition(name,
+            matcher.group(2) == null ? null : Long.valueOf(matcher.group(2)),
+            matcher.group(4) == null ? null : Long.valueOf(matcher.group(4)));
+    }
+
+    /**
+     * @return the name of the partition.
+     */
+    String getName() {
+        return name;
+    }
+
+    /**
+     * @return the lowest id of the partition, or {@code null} if unbounded.
+     */
+    Long getLower() {
+        return lower;
+    }
+
+    /**
+     * @return the id above the highest id of the partition, or {@code null} if unbounded.
+     */
+    Long getUpper() {
+        return upper;
+    }
+
+    boolean contains(long id) {
+        return (lower == null || lower <= id) && (upper == null || id < upper);
+    }
+
+    /**
+     * The lower bounds of the partitions to create so the ids up to {@code lastId} have a partition, and
+     * {@code partitionsAhead} partitions are ready above it. The new partitions are as wide as the last one.
+     *
+     * @param partitions the partitions, by lower bound.
+     * @param lastId the last id taken from the sequence.
+     * @param partitionsAhead the number of partitions to keep above {@code lastId}.
+     * @return the lower bounds of the partitions to create, in order.
+     */
+    static List<Long> lowerBoundsToCreate(List<RestrictedEntityPartition> partitions, long lastId, int partitionsAhead) {
+        List<Long> lowerBounds = new ArrayList<>();
+        if (partitions.isEmpty()) {
+            return lowerBounds;
+        }
+        RestrictedEntityPartition last = partitions.get(partitions.size() - 1);
+        if (last.getLower() == null || last.getUpper() == null) {
+            return lowerBounds;
+        }
+        long size = last.getUpper() - last.getLower();
+        long ahead = partitions.stream().filter(partition -> partition.getLower() != null && partition.getLower() > lastId).count();
+        for (long lower = last.getUpper(); lower <= lastId || ahead < partitionsAhead; lower += size) {
+            lowerBounds.add(lower);
+            if (lower > lastId) {
+                ahead++;
+            }
+        }
+        return lowerBounds;
+    }
+
+    /**
+     * The partitions that no new id can go to: those below the partition preceding the one holding {@code lastId},
+     * since the ids taken from the sequence but not inserted yet may be just below it.
+     *
+     * @param partitions the partitions, by lower bound.
+     * @param lastId the last id taken from the sequence.
+     * @return the retired partitions.
+     */
+    static List<RestrictedEntityPartition> retired(List<RestrictedEntityPartition> partitions, long lastId) {
+        int active = partitions.size();
+        for (int i = 0; i < partitions.size(); i++) {
+            if (partitions.get(i).contains(lastId)) {
+                active = i;
+                break;
+            }
+        }
+        return new ArrayList<>(partitions.subList(0, Math.max(0, active - 1)));
+    }
+}
@@ -0,0 +1,171 @@
+package com.mycompany.myapp.service;
+
+import com.mycompany.myapp.config.ApplicationProperties;
+import com.mycompany.myapp.repository.RestrictedEntityShards;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Maintains the partitions of the {@code restricted_entity} table, partitioned by id range by the
+ * {@code partitioned} Liquibase context on PostgreSQL.
+ * <p>
+ * Every {@code application.partitioning.maintenance-interval}, {@code application.partitioning.partitions-ahead}
+ * partitions are kept ready above the last value of {@code sequence_generator}. The partitions no new id can go to are
+ * dropped once all their rows are deleted, never deleting rows, and the
+ * {@code restricted.entity.partitions.retired.kept} gauge counts those still holding rows.
+ */
+@Service
+@ConditionalOnProperty(prefix = "application.partitioning", name = "enabled", havingValue = "true")
+public class RestrictedEntityPartitionService {
+
+    private final Logger log = LoggerFactory.getLogger(RestrictedEntityPartitionService.class);
+
+    private static final String TABLE = "restricted_entity";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final RestrictedEntityShards restrictedEntityShards;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final int partitionsAhead;
+
+    private final Counter created;
+
+    private final Counter dropped;
+
+    private final Map<Integer, Integer> retiredKept = new ConcurrentHashMap<>();
+
+    public RestrictedEntityPartitionService(JdbcTemplate jdbcTemplate, RestrictedEntityShards restrictedEntityShards,
+                                            PlatformTransactionManager transactionManager,
+                                            ApplicationProperties applicationProperties, MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.restrictedEntityShards = restrictedEntityShards;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.partitionsAhead = applicationProperties.getPartitioning().getPartitionsAhead();
+        this.created = changeCounter(meterRegistry, "created");
+        this.dropped = changeCounter(meterRegistry, "dropped");
+        Gauge.builder("restricted.entity.partitions.retired.kept", retiredKept,
+            kept -> kept.values().stream().mapToInt(Integer::intValue).sum())
+            .description("Number of retired partitions of the restricted entity table kept since they hold rows")
+            .register(meterRegistry);
+    }
+
+    private static Counter changeCounter(MeterRegistry meterRegistry, String change) {
+        return Counter.builder("restricted.entity.partition.changes").tag("change", change)
+            .description("Number of partitions of the restricted entity table created or dropped").register(meterRegistry);
+    }
+
+    /**
+     * Create the partitions for the next ids and drop the empty partitions no new id can go to, keeping the others.
+     */
+    @Scheduled(fixedDelayString = "#{T(org.springframework.boot.convert.DurationStyle)" +
+        ".detectAndParse('${application.partitioning.maintenance-interval:1h}').toMillis()}")
+    public void maintain() {
+        long lastId = restrictedEntityShards.fanOut(restrictedEntityShards.allShards().subList(0, 1), true,
+            shard -> transactionTemplate.execute(status ->
+                jdbcTemplate.queryForObject("select last_value from sequence_generator", Long.class))).get(0);
+        restrictedEntityShards.fanOut(restrictedEntityShards.allShards(), false, shard -> {
+            maintain(shard, lastId);
+            return null;
+        });
+    }
+
+    private void maintain(int shard, long lastId) {
+        List<RestrictedEntityPartition> partitions = transactionTemplate.execute(status -> findPartitions());
+        if (partitions.isEmpty()) {
+            log.warn("The {} table of shard {} is not partitioned, run the 'partitioned' Liquibase context", TABLE, shard);
+            return;
+        }
+        List<Long> lowerBounds = RestrictedEntityPartition.lowerBoundsToCreate(partitions, lastId, partitionsAhead);
+        RestrictedEntityPartition last = partitions.get(partitions.size() - 1);
+        for (Long lower : lowerBounds) {
+            long upper = lower + last.getUpper() - last.getLower();
+            String name = TABLE + "_p" + lower;
+            transactionTemplate.execute(status -> {
+                jdbcTemplate.execute("create table " + name + " partition of " + TABLE +
+                    " for values from (" + lower + ") to (" + upper + ")");
+                return null;
+            });
+            created.increment();
+            log.info("Created partition {} of shard {} for the ids from {} to {}", name, shard, lower, upper - 1);
+        }
+        List<String> kept = new ArrayList<>();
+        for (RestrictedEntityPartition partition : RestrictedEntityPartition.retired(partitions, lastId)) {
+            Boolean drop = transactionTemplate.execute(status -> dropIfEmpty(partition));
+            if (Boolean.TRUE.equals(drop)) {
+                dropped.increment();
+                log.info("Dropped empty partition {} of shard {}", partition.getName(), shard);
+            } else {
+                kept.add(partition.getName());
+            }
+        }
+        retiredKept.put(shard, kept.size());
+        if (!kept.isEmpty()) {
+            log.info("Kept the retired partitions {} of shard {}, which still hold rows", kept, shard);
+        }
+    }
+
+    /**
+     * Find the ids no partition of the shard of the current transaction can hold: those below the partitions kept,
+     * in the range of a dropped partition, or above the partitions created. Rows with these ids cannot be inserted.
+     *
+     * @param ids the ids.
+     * @return the ids without a partition, empty if the table has a default partition or is not partitioned.
+     */
+    public List<Long> findIdsWithoutPartition(Collection<Long> ids) {
+        List<RestrictedEntityPartition> partitions = findAllPartitions();
+        if (partitions.isEmpty() || partitions.contains(null)) {
+            return Collections.emptyList();
+        }
+        return ids.stream()
+            .filter(id -> partitions.stream().noneMatch(partition -> partition.contains(id)))
+            .collect(Collectors.toList());
+    }
+
+    private List<RestrictedEntityPartition> findPartitions() {
+        return findAllPartitions().stream()
+            .filter(Objects::nonNull)
+            .sorted(RestrictedEntityPartition.BY_LOWER_BOUND)
+            .collect(Collectors.toList());
+    }
+
+    /**
+     * @return the partitions, {@code null} standing for the default partition.
+     */
+    private List<RestrictedEntityPartition> findAllPartitions() {
+        return jdbcTemplate.query("select child.relname, pg_get_expr(child.relpartbound, child.oid) from pg_inherits " +
+                "join pg_class child on child.oid = pg_inherits.inhrelid where pg_inherits.inhparent = '" + TABLE + "'::regclass",
+            (rs, rowNum) -> RestrictedEntityPartition.parse(rs.getString(1), rs.getString(2)));
+    }
+
+    private boolean dropIfEmpty(RestrictedEntityPartition partition) {
+        String name = '"' + partition.getName() + '"';
+        // Locked first, so no row is inserted or restored between the check and the drop
+        jdbcTemplate.execute("lock table " + name + " in access exclusive mode");
+        if (Boolean.TRUE.equals(jdbcTemplate.queryForObject("select exists (select 1 from " + name + ")", Boolean.class))) {
+            return false;
+        }
+        jdbcTemplate.execute("alter table " + TABLE + " detach partition " + name);
+        jdbcTemplate.execute("drop table " + name);
+        return true;
+    }
+}
@@ -0,0 +1,290 @@
+package com.mycompany.myapp.service;
+
+import com.mycompany.myapp.domain.RestrictedEntity;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * An in-memory copy of the id, version and myField columns of the {@link RestrictedEntity} rows, held in parallel
+ * arrays sorted by id rather than in a map of boxed ids.
+ * <p>
+ * Ids come from a sequence, so new rows are almost always appended. A row is only replaced by a version at least as
+ * recent as the one held. Deleted rows are kept as tombstones, so a late update of a deleted row cannot bring it back,
+ * until {@link #compact()} drops them. Lookups by id read optimistically, without taking the lock.
+ */
+final class RestrictedEntityProjection {
+
+    private static final int MIN_CAPACITY = 16;
+
+    /**
+     * Version of the tombstones, more recent than any version of a row.
+     */
+    private static final long DELETED = Long.MAX_VALUE;
+
+    private final StampedLock lock = new StampedLock();
+
+    private long[] ids;
+
+    private long[] versions;
+
+    private String[] myFields;
+
+    // Slots used, tombstones included
+    private int length;
+
+    private int deleted;
+
+    /**
+     * @param expectedRows the number of rows the projection is first sized for.
+     */
+    RestrictedEntityProjection(int expectedRows) {
+        int capacity = Math.max(MIN_CAPACITY, expectedRows);
+        this.ids = new long[capacity];
+        this.versions = new long[capacity];
+        this.myFields = new String[capacity];
+    }
+
+    /**
+     * @param id the id of the row.
+     * @return a new entity holding the row, or {@code null} if there is no such row.
+     */
+    RestrictedEntity get(long id) {
+        long stamp = lock.tryOptimisticRead();
+        RestrictedEntity restrictedEntity = read(id);
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                restrictedEntity = read(id);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return restrictedEntity;
+    }
+
+    private RestrictedEntity read(long id) {
+        // A concurrent write may replace the arrays between these reads, the result is then discarded by the caller
+        long[] ids = this.ids;
+        long[] versions = this.versions;
+        String[] myFields = this.myFields;
+        int index = Arrays.binarySearch(ids, 0, Math.min(length, ids.length), id);
+        if (index < 0 || index >= versions.length || index >= myFields.length || versions[index] == DELETED) {
+            return null;
+        }
+        return toEntity(id, versions[index], myFields[index]);
+    }
+
+    /**
+     * @param ids the ids of the rows.
+     * @return new entities holding the rows found, by id.
+     */
+    Map<Long, RestrictedEntity> getAll(Collection<Long> ids) {
+        Map<Long, RestrictedEntity> restrictedEntities = new HashMap<>();
+        long stamp = lock.readLock();
+        try {
+            for (Long id : ids) {
+                RestrictedEntity restrictedEntity = read(id);
+                if (restrictedEntity != null) {
+                    restrictedEntities.put(id, restrictedEntity);
+                }
+            }
+        } finally {
+            lock.unlockRead(stamp);
+        }
+        return restrictedEntities;
+    }
+
+    /**
+     * @return new entities holding all the rows, ordered by id.
+     */
+    List<RestrictedEntity> getAll() {
+        return getAfter(Long.MIN_VALUE, Integer.MAX_VALUE);
+    }
+
+    /**
+     * @param afterId the exclusive lower bound.
+     * @param limit the maximum number of rows to return.
+     * @return new entities holding the rows whose id is greater than {@code afterId}, ordered by id.
+     */
+    List<RestrictedEntity> getAfter(long afterId, int limit) {
+        long stamp = lock.readLock();
+        try {
+            int index = Arrays.binarySearch(ids, 0, length, afterId);
+            int from = index >= 0 ? index + 1 : -index - 1;
+            List<RestrictedEntity> restrictedEntities = new ArrayList<>(Math.min(limit, length - from));
+            for (int i = from; i < length && restrictedEntities.size() < limit; i++) {
+                if (versions[i] != DELETED) {
+                    restrictedEntities.add(toEntity(ids[i], versions[i], myFields[i]));
+                }
+            }
+            return restrictedEntities;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Add a row, or replace it if the version is at least as recent as the one held.
+     *
+     * @param id the id of the row.
+     * @param version the version of the row.
+     * @param myField the myField of the row.
+     */
+    void put(long id, long version, String myField) {
+        long stamp = lock.writeLock();
+        try {
+            int index = Arrays.binarySearch(ids, 0, length, id);
+            if (index >= 0) {
+                if (version >= versions[index]) {
+                    versions[index] = version;
+                    myFields[index] = myField;
+                }
+            } else {
+                insert(-index - 1, id, version, myField);
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Remove a row, leaving a tombstone even if the row is not held yet.
+     *
+     * @param id the id of the row.
+     */
+    void remove(long id) {
+        long stamp = lock.writeLock();
+        try {
+            int index = Arrays.binarySearch(ids, 0, length, id);
+            if (index >= 0) {
+                markDeleted(index);
+            } else {
+                insert(-index - 1, id, DELETED, null);
+                deleted++;
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Remove the rows held whose id is in a range.
+     *
+     * @param fromId the lower bound, inclusive.
+     * @param toId the upper bound, inclusive.
+     */
+    void removeRange(long fromId, long toId) {
+        long stamp = lock.writeLock();
+        try {
+            int index = Arrays.binarySearch(ids, 0, length, fromId);
+            for (int i = index >= 0 ? index : -index - 1; i < length && ids[i] <= toId; i++) {
+                markDeleted(i);
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    private void markDeleted(int index) {
+        if (versions[index] != DELETED) {
+            versions[index] = DELETED;
+            myFields[index] = null;
+            deleted++;
+        }
+    }
+
+    private void insert(int index, long id, long version, String myField) {
+        if (length == ids.length) {
+            int capacity = length + (length >> 1);
+            ids = Arrays.copyOf(ids, capacity);
+            versions = Arrays.copyOf(versions, capacity);
+            myFields = Arrays.copyOf(myFields, capacity);
+        }
+        if (index < length) {
+            System.arraycopy(ids, index, ids, index + 1, length - index);
+            System.arraycopy(versions, index, versions, index + 1, length - index);
+            System.arraycopy(myFields, index, myFields, index + 1, length - index);
+        }
+        ids[index] = id;
+        versions[index] = version;
+        myFields[index] = myField;
+        length++;
+    }
+
+    /**
+     * Drop the tombstones once they make up a quarter of the slots. A row deleted just before may then be brought back
+     * by a late update, until the next sync reads its tombstone from the database.
+     *
+     * @return true if the tombstones were dropped.
+     */
+    boolean compact() {
+        long stamp = lock.writeLock();
+        try {
+            if (deleted < MIN_CAPACITY || deleted * 4 < length) {
+                return false;
+            }
+            int live = 0;
+            for (int i = 0; i < length; i++) {
+                if (versions[i] != DELETED) {
+                    ids[live] = ids[i];
+                    versions[live] = versions[i];
+                    myFields[live] = myFields[i];
+                    live++;
+                }
+            }
+            Arrays.fill(myFields, live, length, null);
+            length = live;
+            deleted = 0;
+            return true;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * @return the number of rows held, tombstones excluded.
+     */
+    int size() {
+        long stamp = lock.readLock();
+        try {
+            return length - deleted;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * @return the ids and the versions of the rows held, ordered by id, in two arrays of the same length.
+     */
+    long[][] idsAndVersions() {
+        long stamp = lock.readLock();
+        try {
+            long[] liveIds = new long[length - deleted];
+            long[] liveVersions = new long[length - deleted];
+            int live = 0;
+            for (int i = 0; i < length; i++) {
+                if (versions[i] != DELETED) {
+                    liveIds[live] = ids[i];
+                    liveVersions[live] = versions[i];
+                    live++;
+                }
+            }
+            return new long[][] {liveIds, liveVersions};
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    private static RestrictedEntity toEntity(long id, long version, String myField) {
+        RestrictedEntity restrictedEntity = new RestrictedEntity().myField(myField);
+        restrictedEntity.setId(id);
+        restrictedEntity.setVersion(version);
+        return restrictedEntity;
+    }
+}
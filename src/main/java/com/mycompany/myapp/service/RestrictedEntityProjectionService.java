@@ -0,0 +1,351 @@
+package com.mycompany.myapp.service;
+
+import com.mycompany.myapp.config.ApplicationProperties;
+import com.mycompany.myapp.domain.RestrictedEntity;
+import com.mycompany.myapp.repository.RestrictedEntityRepository;
+import com.mycompany.myapp.service.dto.RestrictedEntityChangeEvent;
+import com.mycompany.myapp.service.dto.RestrictedEntityChangeEvent.Type;
+import com.mycompany.myapp.service.dto.RestrictedEntityProjectionCheckDTO;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeSet;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Keeps an in-memory projection of all the {@link RestrictedEntity} rows when {@code application.projection.enabled}
+ * is set, so reads are served without Hibernate nor a database connection.
+ * <p>
+ * The projection is built before the instance registers with Eureka. The changes of this instance are applied once
+ * committed, those of other instances are read from the {@link RestrictedEntityChangeFeed} every
+ * {@code application.projection.sync-interval}. Inside a transaction the projection is not used.
+ */
+@Service
+public class RestrictedEntityProjectionService implements SmartLifecycle {
+
+    private final Logger log = LoggerFactory.getLogger(RestrictedEntityProjectionService.class);
+
+    /**
+     * Lifecycle phase of the build, before the phase 0 of the Eureka registration.
+     */
+    public static final int PHASE = -100;
+
+    private static final int SYNC_PAGE_SIZE = 1000;
+
+    /**
+     * Maximum number of ids bound to a single {@code IN (...)} clause.
+     */
+    private static final int IN_CLAUSE_CHUNK_SIZE = 500;
+
+    private final RestrictedEntityRepository restrictedEntityRepository;
+
+    private final RestrictedEntityChangeFeed restrictedEntityChangeFeed;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final TransactionTemplate rebuildTransactionTemplate;
+
+    private final boolean enabled;
+
+    private volatile RestrictedEntityProjection projection;
+
+    private volatile RestrictedEntityProjection nextProjection;
+
+    private volatile boolean running;
+
+    // Only used by the sync and the rebuild
+    private long watermark;
+
+    public RestrictedEntityProjectionService(RestrictedEntityRepository restrictedEntityRepository,
+                                             RestrictedEntityChangeFeed restrictedEntityChangeFeed,
+                                             PlatformTransactionManager transactionManager,
+                                             ApplicationProperties applicationProperties, MeterRegistry meterRegistry) {
+        this.restrictedEntityRepository = restrictedEntityRepository;
+        this.restrictedEntityChangeFeed = restrictedEntityChangeFeed;
+        // Changes are applied after the commit, while the resources of the committed transaction are still bound
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.transactionTemplate.setReadOnly(true);
+        // Read-write, so the rows are read from the primary, which has every change up to the horizon of the feed
+        this.rebuildTransactionTemplate = new TransactionTemplate(transactionManager);
+        this.rebuildTransactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.enabled = applicationProperties.getProjection().isEnabled();
+        Gauge.builder("restricted.entity.projection.size", this,
+            service -> service.projection != null ? service.projection.size() : Double.NaN)
+            .description("Number of restricted entities held by the in-memory projection").register(meterRegistry);
+    }
+
+    /**
+     * @return true if reads can be served from the projection: it is enabled, built, and no transaction is active.
+     */
+    public boolean isServing() {
+        return projection != null && !TransactionSynchronizationManager.isActualTransactionActive();
+    }
+
+    /**
+     * Get one restrictedEntity by id from the projection.
+     *
+     * @param id the id of the entity.
+     * @return a new entity, or empty if it does not exist.
+     */
+    public Optional<RestrictedEntity> findOne(Long id) {
+        return Optional.ofNullable(requireProjection().get(id));
+    }
+
+    /**
+     * Get the version of one restrictedEntity from the projection.
+     *
+     * @param id the id of the entity.
+     * @return the version of the entity, or empty if it does not exist.
+     */
+    public Optional<Long> findVersion(Long id) {
+        return findOne(id).map(RestrictedEntity::getVersion);
+    }
+
+    /**
+     * Get all the restrictedEntities from the projection.
+     *
+     * @return new entities, ordered by id.
+     */
+    public List<RestrictedEntity> findAll() {
+        return requireProjection().getAll();
+    }
+
+    /**
+     * Get a page of restrictedEntities from the projection using keyset pagination.
+     *
+     * @param afterId the id of the last entity of the previous page, or {@code null} for the first page.
+     * @param size the maximum number of entities to return.
+     * @return the slice of new entities, ordered by id.
+     */
+    public Slice<RestrictedEntity> findAllAfter(Long afterId, int size) {
+        List<RestrictedEntity> restrictedEntities = requireProjection().getAfter(afterId == null ? Long.MIN_VALUE : afterId, size + 1);
+        boolean hasNext = restrictedEntities.size() > size;
+        return new SliceImpl<>(hasNext ? restrictedEntities.subList(0, size) : restrictedEntities,
+            PageRequest.of(0, size, Sort.by("id")), hasNext);
+    }
+
+    /**
+     * Get several restrictedEntities by id from the projection.
+     *
+     * @param ids the ids of the entities.
+     * @return the new entities found, by id.
+     */
+    public Map<Long, RestrictedEntity> findAllById(Collection<Long> ids) {
+        return requireProjection().getAll(ids);
+    }
+
+    private RestrictedEntityProjection requireProjection() {
+        RestrictedEntityProjection current = projection;
+        if (current == null) {
+            throw new IllegalStateException("The RestrictedEntity projection is not " + (enabled ? "built yet" : "enabled"));
+        }
+        return current;
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        if (enabled) {
+            try {
+                rebuild();
+            } catch (RuntimeException e) {
+                log.warn("Could not build the RestrictedEntity projection, reads use the database until the next sync: {}", e.toString());
+            }
+        }
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        return PHASE;
+    }
+
+    /**
+     * Apply a committed change to the projection. If the changed rows cannot be read, they are left to the next sync.
+     *
+     * @param event the change.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onChange(RestrictedEntityChangeEvent event) {
+        if (projection == null && nextProjection == null) {
+            return;
+        }
+        try {
+            if (event.getType() == Type.DELETED) {
+                if (event.getIds() != null) {
+                    event.getIds().forEach(id -> apply(target -> target.remove(id)));
+                } else {
+                    apply(target -> target.removeRange(event.getFromId(), event.getToId()));
+                }
+            } else if (event.getIds() != null) {
+                List<Long> ids = new ArrayList<>(new TreeSet<>(event.getIds()));
+                for (int from = 0; from < ids.size(); from += IN_CLAUSE_CHUNK_SIZE) {
+                    List<Long> chunk = ids.subList(from, Math.min(from + IN_CLAUSE_CHUNK_SIZE, ids.size()));
+                    transactionTemplate.execute(status -> {
+                        restrictedEntityRepository.findRowsByIdIn(chunk).forEach(this::put);
+                        return null;
+                    });
+                }
+            } else {
+                long fromId = event.getFromId();
+                List<Object[]> page;
+                do {
+                    long lowerBound = fromId;
+                    page = transactionTemplate.execute(status -> restrictedEntityRepository.findRowsByIdBetween(lowerBound,
+                        event.getToId(), PageRequest.of(0, SYNC_PAGE_SIZE, Sort.by("id"))));
+                    for (Object[] row : page) {
+                        put(row);
+                        fromId = (Long) row[0] + 1;
+                    }
+                } while (page.size() == SYNC_PAGE_SIZE);
+            }
+        } catch (RuntimeException e) {
+            log.warn("Could not apply {} to the RestrictedEntity projection, left to the next sync: {}", event, e.toString());
+        }
+    }
+
+    private void put(Object[] row) {
+        apply(target -> target.put((Long) row[0], (Long) row[1], (String) row[2]));
+    }
+
+    /**
+     * Apply a change to the current projection and to the one being built, so the build does not miss it.
+     */
+    private void apply(Consumer<RestrictedEntityProjection> change) {
+        RestrictedEntityProjection current = projection;
+        if (current != null) {
+            change.accept(current);
+        }
+        RestrictedEntityProjection next = nextProjection;
+        if (next != null) {
+            change.accept(next);
+        }
+    }
+
+    /**
+     * Build the projection if it could not be built at startup, then apply the rows changed and deleted since the
+     * last run, by this or other instances.
+     */
+    @Scheduled(fixedDelayString = "#{T(org.springframework.boot.convert.DurationStyle)" +
+        ".detectAndParse('${application.projection.sync-interval:5s}').toMillis()}")
+    public synchronized void sync() {
+        if (!enabled) {
+            return;
+        }
+        if (projection == null) {
+            rebuild();
+            return;
+        }
+        try {
+            watermark = restrictedEntityChangeFeed.sync(watermark, change -> {
+                if (change.isDeleted()) {
+                    apply(target -> target.remove(change.getId()));
+                } else {
+                    RestrictedEntity restrictedEntity = change.getRestrictedEntity();
+                    apply(target -> target.put(restrictedEntity.getId(), restrictedEntity.getVersion(), restrictedEntity.getMyField()));
+                }
+            });
+        } catch (RestrictedEntityResyncRequiredException e) {
+            log.info("Rebuilding the RestrictedEntity projection: {}", e.getMessage());
+            rebuild();
+            return;
+        }
+        projection.compact();
+    }
+
+    /**
+     * Build a new projection from the database and swap it with the current one. Reads are served from the current
+     * projection meanwhile, and the changes applied meanwhile are applied to both. The sync then resumes from the
+     * horizon of the change feed taken before the rows are read, so the changes committed meanwhile are read again
+     * rather than missed.
+     */
+    public synchronized void rebuild() {
+        if (!enabled) {
+            throw new IllegalStateException("The RestrictedEntity projection is not enabled");
+        }
+        long horizon = restrictedEntityChangeFeed.horizon();
+        RestrictedEntityProjection next = new RestrictedEntityProjection(Math.toIntExact(restrictedEntityRepository.count()));
+        nextProjection = next;
+        try {
+            rebuildTransactionTemplate.execute(status -> {
+                try (Stream<Object[]> rows = restrictedEntityRepository.streamAllRows()) {
+                    rows.forEach(row -> next.put((Long) row[0], (Long) row[1], (String) row[2]));
+                }
+                return null;
+            });
+            // Swapped before the new projection stops receiving the changes, so none is missed
+            projection = next;
+        } finally {
+            nextProjection = null;
+        }
+        watermark = horizon;
+        log.info("Built the RestrictedEntity projection of {} rows", next.size());
+    }
+
+    /**
+     * Compare the projection with the database. Changes made during the comparison may be reported as differences.
+     *
+     * @return the differences found.
+     */
+    public RestrictedEntityProjectionCheckDTO check() {
+        long[][] idsAndVersions = requireProjection().idsAndVersions();
+        long[] ids = idsAndVersions[0];
+        long[] versions = idsAndVersions[1];
+        return transactionTemplate.execute(status -> {
+            long rows = 0;
+            long missing = 0;
+            long stale = 0;
+            long extra = 0;
+            int index = 0;
+            try (Stream<Object[]> stream = restrictedEntityRepository.streamAllRows()) {
+                for (Object[] row : (Iterable<Object[]>) stream::iterator) {
+                    long id = (Long) row[0];
+                    for (; index < ids.length && ids[index] < id; index++) {
+                        extra++;
+                    }
+                    if (index < ids.length && ids[index] == id) {
+                        if (versions[index] != (Long) row[1]) {
+                            stale++;
+                        }
+                        index++;
+                    } else {
+                        missing++;
+                    }
+                    rows++;
+                }
+            }
+            extra += ids.length - index;
+            return new RestrictedEntityProjectionCheckDTO(rows, ids.length, missing, stale, extra);
+        });
+    }
+}
@@ -0,0 +1,91 @@
+package com.mycompany.myapp.service;
+
+import com.mycompany.myapp.domain.RestrictedEntity;
+import org.springframework.data.domain.Slice;
+import org.springframework.stereotype.Service;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Service reading {@link RestrictedEntity}, from the {@link RestrictedEntityProjectionService} when it is serving and
+ * from {@link RestrictedEntityService} otherwise.
+ * <p>
+ * It is not transactional on purpose: a read served from the projection neither opens a transaction nor borrows a
+ * database connection.
+ */
+@Service
+public class RestrictedEntityQueryService {
+
+    private final RestrictedEntityService restrictedEntityService;
+
+    private final RestrictedEntityProjectionService restrictedEntityProjectionService;
+
+    public RestrictedEntityQueryService(RestrictedEntityService restrictedEntityService,
+                                        RestrictedEntityProjectionService restrictedEntityProjectionService) {
+        this.restrictedEntityService = restrictedEntityService;
+        this.restrictedEntityProjectionService = restrictedEntityProjectionService;
+    }
+
+    /**
+     * Get all the restrictedEntities.
+     *
+     * @return the list of entities.
+     */
+    public List<RestrictedEntity> findAll() {
+        return restrictedEntityProjectionService.isServing()
+            ? restrictedEntityProjectionService.findAll()
+            : restrictedEntityService.findAll();
+    }
+
+    /**
+     * Get a page of restrictedEntities using keyset pagination.
+     *
+     * @param afterId the id of the last entity of the previous page, or {@code null} for the first page.
+     * @param size the maximum number of entities to return.
+     * @return the slice of entities, ordered by id.
+     */
+    public Slice<RestrictedEntity> findAllAfter(Long afterId, int size) {
+        return restrictedEntityProjectionService.isServing()
+            ? restrictedEntityProjectionService.findAllAfter(afterId, size)
+            : restrictedEntityService.findAllAfter(afterId, size);
+    }
+
+    /**
+     * Get one restrictedEntity by id.
+     *
+     * @param id the id of the entity.
+     * @return the entity.
+     */
+    public Optional<RestrictedEntity> findOne(Long id) {
+        return restrictedEntityProjectionService.isServing()
+            ? restrictedEntityProjectionService.findOne(id)
+            : restrictedEntityService.findOne(id);
+    }
+
+    /**
+     * Get the version of one restrictedEntity.
+     *
+     * @param id the id of the entity.
+     * @return the version of the entity.
+     */
+    public Optional<Long> findVersion(Long id) {
+        return restrictedEntityProjectionService.isServing()
+            ? restrictedEntityProjectionService.findVersion(id)
+            : restrictedEntityService.findVersion(id);
+    }
+
+    /**
+     * Get several restrictedEntities by id.
+     *
+     * @param ids the ids of the entities.
+     * @return the entities found, by id.
+     */
+    public Map<Long, RestrictedEntity> findAllById(Collection<Long> ids) {
+        return restrictedEntityProjectionService.isServing()
+            ? restrictedEntityProjectionService.findAllById(ids)
+            : restrictedEntityService.findAllById(ids);
+    }
+}
@@ -0,0 +1,228 @@
+package com.mycompany.myapp.service;
+
+import com.mycompany.myapp.config.ApplicationProperties;
+import com.mycompany.myapp.domain.RestrictedEntity;
+import com.mycompany.myapp.service.dto.RestrictedEntityMappedJson;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Optional;
+
+/**
+ * Serves the JSON of the {@link RestrictedEntity} rows from a memory-mapped file when
+ * {@code application.replica.enabled} is set, so read-only instances can hold large data sets with a small heap.
+ * <p>
+ * The file is a {@link RestrictedEntityMappedStore}, kept current from the {@link RestrictedEntityChangeFeed} every
+ * {@code application.replica.sync-interval} from the watermark saved in it, and compacted once its stale records take
+ * more space than the current ones.
+ */
+@Service
+public class RestrictedEntityReplicaService implements SmartLifecycle {
+
+    private final Logger log = LoggerFactory.getLogger(RestrictedEntityReplicaService.class);
+
+    /**
+     * Lifecycle phase of the opening of the file, before the phase 0 of the Eureka registration.
+     */
+    public static final int PHASE = -100;
+
+    /**
+     * Size of the regions of the file mapped at once, which bounds the size of a record.
+     */
+    private static final int SEGMENT_SIZE = 64 << 20;
+
+    private static final long MIN_COMPACTION_BYTES = 16 << 20;
+
+    private final RestrictedEntityChangeFeed restrictedEntityChangeFeed;
+
+    private final ObjectWriter objectWriter;
+
+    private final boolean enabled;
+
+    private final Path path;
+
+    private volatile RestrictedEntityMappedStore store;
+
+    private volatile boolean running;
+
+    public RestrictedEntityReplicaService(RestrictedEntityChangeFeed restrictedEntityChangeFeed,
+                                          ObjectMapper objectMapper, ApplicationProperties applicationProperties,
+                                          MeterRegistry meterRegistry) {
+        this.restrictedEntityChangeFeed = restrictedEntityChangeFeed;
+        this.objectWriter = objectMapper.writerFor(RestrictedEntity.class);
+        this.enabled = applicationProperties.getReplica().isEnabled();
+        this.path = Paths.get(applicationProperties.getReplica().getPath());
+        Gauge.builder("restricted.entity.replica.size", this,
+            service -> service.store != null ? service.store.size() : Double.NaN)
+            .description("Number of restricted entities held by the memory-mapped replica").register(meterRegistry);
+        Gauge.builder("restricted.entity.replica.used.bytes", this,
+            service -> service.store != null ? service.store.usedBytes() : Double.NaN)
+            .description("Size of the records of the memory-mapped replica, previous versions included").register(meterRegistry);
+    }
+
+    /**
+     * @return true if reads can be served from the replica: it is enabled and opened.
+     */
+    public boolean isServing() {
+        return store != null;
+    }
+
+    /**
+     * Get the JSON of one restrictedEntity from the replica.
+     *
+     * @param id the id of the entity.
+     * @return the version and a view of the mapped JSON of the entity, or empty if it does not exist.
+     */
+    public Optional<RestrictedEntityMappedJson> findOne(Long id) {
+        RestrictedEntityMappedStore current = store;
+        if (current == null) {
+            throw new IllegalStateException("The RestrictedEntity replica is not " + (enabled ? "opened yet" : "enabled"));
+        }
+        return Optional.ofNullable(current.get(id));
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        if (enabled) {
+            try {
+                sync();
+            } catch (RuntimeException e) {
+                log.warn("Could not open the RestrictedEntity replica {}, reads use the database until the next sync: {}", path, e.toString());
+            }
+        }
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        return PHASE;
+    }
+
+    /**
+     * Open the file if it is not opened yet, then append the rows changed and deleted since the watermark of the
+     * file, and compact it if needed.
+     */
+    @Scheduled(fixedDelayString = "#{T(org.springframework.boot.convert.DurationStyle)" +
+        ".detectAndParse('${application.replica.sync-interval:5s}').toMillis()}")
+    public synchronized void sync() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            if (store == null) {
+                store = open();
+            }
+            RestrictedEntityMappedStore current = store;
+            try {
+                apply(current);
+            } catch (RestrictedEntityResyncRequiredException e) {
+                log.info("Writing the RestrictedEntity replica {} again: {}", path, e.getMessage());
+                resync(current);
+                return;
+            }
+
+            long garbageBytes = current.usedBytes() - current.liveBytes();
+            if (garbageBytes > Math.max(MIN_COMPACTION_BYTES, current.liveBytes())) {
+                compact(current);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void apply(RestrictedEntityMappedStore target) {
+        long watermark = restrictedEntityChangeFeed.sync(target.getWatermark(), change -> {
+            try {
+                if (change.isDeleted()) {
+                    target.remove(change.getId());
+                    return;
+                }
+                RestrictedEntity restrictedEntity = change.getRestrictedEntity();
+                if (restrictedEntity.getVersion() > target.version(restrictedEntity.getId())) {
+                    target.append(restrictedEntity.getId(), restrictedEntity.getVersion(), serialize(restrictedEntity));
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        target.commit(watermark);
+    }
+
+    private RestrictedEntityMappedStore open() throws IOException {
+        Files.createDirectories(path.toAbsolutePath().getParent());
+        try {
+            RestrictedEntityMappedStore opened = RestrictedEntityMappedStore.open(path, SEGMENT_SIZE);
+            log.info("Opened the RestrictedEntity replica {} of {} rows", path, opened.size());
+            return opened;
+        } catch (IOException e) {
+            log.warn("Replacing the RestrictedEntity replica {}, which cannot be read: {}", path, e.toString());
+            Files.deleteIfExists(path);
+            return RestrictedEntityMappedStore.open(path, SEGMENT_SIZE);
+        }
+    }
+
+    /**
+     * Write a new file from all the rows and swap it with the current one, which keeps serving reads meanwhile.
+     */
+    private void resync(RestrictedEntityMappedStore current) throws IOException {
+        Path resyncedPath = path.resolveSibling(path.getFileName() + ".resynced");
+        Files.deleteIfExists(resyncedPath);
+        RestrictedEntityMappedStore resynced = RestrictedEntityMappedStore.open(resyncedPath, SEGMENT_SIZE);
+        try {
+            apply(resynced);
+            Files.move(resyncedPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException | RuntimeException e) {
+            resynced.close();
+            throw e;
+        }
+        store = resynced;
+        // The pages of the previous file stay mapped until the views read from them are garbage collected
+        current.close();
+        log.info("Wrote the RestrictedEntity replica {} again with {} rows", path, resynced.size());
+    }
+
+    private void compact(RestrictedEntityMappedStore current) throws IOException {
+        Path compactedPath = path.resolveSibling(path.getFileName() + ".compacted");
+        Files.deleteIfExists(compactedPath);
+        RestrictedEntityMappedStore compacted = current.compactTo(compactedPath);
+        Files.move(compactedPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        store = compacted;
+        // The pages of the previous file stay mapped until the views read from them are garbage collected
+        current.close();
+        log.info("Compacted the RestrictedEntity replica {} from {} to {} bytes", path, current.usedBytes(), compacted.usedBytes());
+    }
+
+    private ByteBuffer serialize(RestrictedEntity restrictedEntity) {
+        try {
+            return ByteBuffer.wrap(objectWriter.writeValueAsBytes(restrictedEntity));
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
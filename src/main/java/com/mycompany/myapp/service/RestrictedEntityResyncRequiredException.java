@@ -0,0 +1,14 @@
+package com.mycompany.myapp.service;
+
+/**
+ * Thrown when the changes made after a watermark cannot be read anymore, since tombstones recorded after it were
+ * purged: the reader must start over from a full read of the rows.
+ */
+public class RestrictedEntityResyncRequiredException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public RestrictedEntityResyncRequiredException(String message) {
+        super(message);
+    }
+}
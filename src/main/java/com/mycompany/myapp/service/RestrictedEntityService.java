@@ -1,18 +1,64 @@
 package com.mycompany.myapp.service;
 
+import com.mycompany.myapp.config.ApplicationProperties;
 import com.mycompany.myapp.domain.RestrictedEntity;
 import com.mycompany.myapp.repository.RestrictedEntityRepository;
+import com.mycompany.myapp.repository.RestrictedEntityShards;
+import com.mycompany.myapp.repository.RestrictedEntityTombstoneRepository;
+import com.mycompany.myapp.service.dto.RestrictedEntityChangeDTO;
+import com.mycompany.myapp.service.dto.RestrictedEntityChangeEvent;
+import com.mycompany.myapp.service.dto.RestrictedEntityChangeEvent.Type;
+import com.mycompany.myapp.service.dto.RestrictedEntityChangesDTO;
+import com.mycompany.myapp.service.dto.RestrictedEntityPatch;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.hibernate.CacheMode;
+import org.hibernate.Session;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import javax.persistence.Cache;
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * Service Implementation for managing {@link RestrictedEntity}.
+ * <p>
+ * Every change publishes a {@link RestrictedEntityChangeEvent}, delivered to transactional listeners once committed.
+ * <p>
+ * When the rows are sharded, see {@link RestrictedEntityShards}, the work on a single id runs on the shard holding it,
+ * and the other work runs on every shard involved in parallel, the results being merged in id order.
  */
 @Service
 @Transactional
@@ -20,10 +66,66 @@ public class RestrictedEntityService {
 
     private final Logger log = LoggerFactory.getLogger(RestrictedEntityService.class);
 
+    /**
+     * Maximum number of ids bound to a single {@code IN (...)} clause.
+     */
+    private static final int IN_CLAUSE_CHUNK_SIZE = 500;
+
+    /**
+     * Number of entities read from every shard at once when streaming sharded rows.
+     */
+    private static final int SHARDED_STREAM_PAGE_SIZE = 500;
+
     private final RestrictedEntityRepository restrictedEntityRepository;
 
-    public RestrictedEntityService(RestrictedEntityRepository restrictedEntityRepository) {
+    private final RestrictedEntityTombstoneRepository restrictedEntityTombstoneRepository;
+
+    private final EntityManager entityManager;
+
+    private final ApplicationEventPublisher applicationEventPublisher;
+
+    private final RestrictedEntityExistenceService restrictedEntityExistenceService;
+
+    private final RestrictedEntityCacheSnapshotService restrictedEntityCacheSnapshotService;
+
+    private final RestrictedEntityShards restrictedEntityShards;
+
+    private final RestrictedEntityChangeFeed restrictedEntityChangeFeed;
+
+    private final ObjectProvider<RestrictedEntityPartitionService> restrictedEntityPartitionService;
+
+    private final TransactionTemplate findOneTransactionTemplate;
+
+    private final boolean replicated;
+
+    private final SingleFlight<Long, Optional<RestrictedEntity>> findOneInFlight;
+
+    @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:50}")
+    private int jdbcBatchSize;
+
+    public RestrictedEntityService(RestrictedEntityRepository restrictedEntityRepository,
+                                   RestrictedEntityTombstoneRepository restrictedEntityTombstoneRepository,
+                                   EntityManager entityManager, ApplicationEventPublisher applicationEventPublisher,
+                                   RestrictedEntityExistenceService restrictedEntityExistenceService,
+                                   RestrictedEntityCacheSnapshotService restrictedEntityCacheSnapshotService,
+                                   RestrictedEntityShards restrictedEntityShards,
+                                   RestrictedEntityChangeFeed restrictedEntityChangeFeed,
+                                   ObjectProvider<RestrictedEntityPartitionService> restrictedEntityPartitionService,
+                                   PlatformTransactionManager transactionManager, ApplicationProperties applicationProperties,
+                                   MeterRegistry meterRegistry) {
         this.restrictedEntityRepository = restrictedEntityRepository;
+        this.restrictedEntityTombstoneRepository = restrictedEntityTombstoneRepository;
+        this.entityManager = entityManager;
+        this.applicationEventPublisher = applicationEventPublisher;
+        this.restrictedEntityExistenceService = restrictedEntityExistenceService;
+        this.restrictedEntityCacheSnapshotService = restrictedEntityCacheSnapshotService;
+        this.restrictedEntityShards = restrictedEntityShards;
+        this.restrictedEntityChangeFeed = restrictedEntityChangeFeed;
+        this.restrictedEntityPartitionService = restrictedEntityPartitionService;
+        this.replicated = !applicationProperties.getReadReplica().getPools().isEmpty();
+        this.findOneTransactionTemplate = new TransactionTemplate(transactionManager);
+        this.findOneTransactionTemplate.setReadOnly(true);
+        this.findOneInFlight = new SingleFlight<>(meterRegistry, "restricted.entity.find.one");
     }
 
     /**
@@ -34,7 +136,171 @@ public class RestrictedEntityService {
      */
     public RestrictedEntity save(RestrictedEntity restrictedEntity) {
         log.debug("Request to save RestrictedEntity : {}", restrictedEntity);
-        return restrictedEntityRepository.save(restrictedEntity);
+        Type type = restrictedEntity.getId() == null ? Type.CREATED : Type.UPDATED;
+        restrictedEntityShards.assignIds(Collections.singletonList(restrictedEntity));
+        if (restrictedEntity.getId() != null) {
+            restrictedEntityShards.bindTransaction(restrictedEntity.getId());
+        }
+        RestrictedEntity result = restrictedEntityRepository.save(restrictedEntity);
+        if (type == Type.CREATED) {
+            restrictedEntityExistenceService.created(Collections.singletonList(result.getId()));
+        }
+        applicationEventPublisher.publishEvent(RestrictedEntityChangeEvent.of(type, result.getId()));
+        return result;
+    }
+
+    /**
+     * Update an existing restrictedEntity, which must still have the version it was read with.
+     *
+     * @param restrictedEntity the entity to update, with its id and version.
+     * @return the updated entity, or empty if it does not exist.
+     * @throws ObjectOptimisticLockingFailureException if the entity does not have the version given.
+     */
+    public Optional<RestrictedEntity> update(RestrictedEntity restrictedEntity) {
+        log.debug("Request to update RestrictedEntity : {}", restrictedEntity);
+        restrictedEntityShards.bindTransaction(restrictedEntity.getId());
+        // Locked first: merging an entity whose row is gone would insert it again
+        if (restrictedEntityRepository.lockForUpdate(Collections.singletonList(restrictedEntity.getId())).isEmpty()) {
+            return Optional.empty();
+        }
+        RestrictedEntity result = restrictedEntityRepository.save(restrictedEntity);
+        applicationEventPublisher.publishEvent(RestrictedEntityChangeEvent.of(Type.UPDATED, result.getId()));
+        return Optional.of(result);
+    }
+
+    /**
+     * Change some fields of a restrictedEntity with a single statement, without loading it.
+     * <p>
+     * Only the columns of the fields set are written. The row is read only when it is not updated, to tell a missing
+     * row from a version mismatch.
+     *
+     * @param id the id of the entity.
+     * @param patch the fields to change.
+     * @param expectedVersion the version the entity must have, or {@code null} for any version.
+     * @return true if the entity exists, false otherwise.
+     * @throws ObjectOptimisticLockingFailureException if the entity does not have the expected version.
+     */
+    public boolean patch(Long id, RestrictedEntityPatch patch, Long expectedVersion) {
+        log.debug("Request to patch RestrictedEntity {} : {}", id, patch);
+        restrictedEntityShards.bindTransaction(id);
+        Map<String, Object> columns = new LinkedHashMap<>();
+        if (patch.isMyFieldSet()) {
+            columns.put("my_field", patch.getMyField());
+        }
+        if (columns.isEmpty() || restrictedEntityRepository.updateColumns(id, expectedVersion, columns) == 0) {
+            Optional<Long> version = restrictedEntityRepository.findVersionById(id);
+            if (version.isPresent() && expectedVersion != null && !expectedVersion.equals(version.get())) {
+                throw new ObjectOptimisticLockingFailureException(RestrictedEntity.class, id);
+            }
+            return version.isPresent();
+        }
+        evictFromCache(Collections.singletonList(id));
+        applicationEventPublisher.publishEvent(RestrictedEntityChangeEvent.of(Type.UPDATED, id));
+        return true;
+    }
+
+    /**
+     * Create several restrictedEntities in a single transaction, or in one transaction per shard when sharded.
+     * <p>
+     * Entities are persisted without any prior read, in JDBC batches of {@code hibernate.jdbc.batch_size}. When
+     * sharded, the shards do not commit together: if some of them fail, the ids of the entities saved are reported.
+     *
+     * @param restrictedEntities the new entities to save.
+     * @return the persisted entities, in the same order.
+     * @throws RestrictedEntityPartialSaveException if the entities were saved on some shards only.
+     */
+    public List<RestrictedEntity> saveAll(List<RestrictedEntity> restrictedEntities) {
+        log.debug("Request to save {} RestrictedEntities", restrictedEntities.size());
+        restrictedEntityShards.assignIds(restrictedEntities);
+        Map<Integer, List<RestrictedEntity>> byShard = restrictedEntityShards.groupByShard(restrictedEntities, RestrictedEntity::getId);
+        Map<Integer, RuntimeException> failures = restrictedEntityShards.fanOutSettled(byShard.keySet(), shard -> {
+            List<RestrictedEntity> shardEntities = byShard.get(shard);
+            for (int i = 0; i < shardEntities.size(); i++) {
+                entityManager.persist(shardEntities.get(i));
+                if ((i + 1) % jdbcBatchSize == 0) {
+                    entityManager.flush();
+                    entityManager.clear();
+                }
+            }
+            entityManager.flush();
+        });
+        List<Long> committedIds = restrictedEntities.stream()
+            .map(restrictedEntity -> failures.containsKey(restrictedEntityShards.shardOf(restrictedEntity.getId())) ? null : restrictedEntity.getId())
+            .collect(Collectors.toList());
+        List<Long> ids = committedIds.stream().filter(Objects::nonNull).collect(Collectors.toList());
+        restrictedEntityExistenceService.created(ids);
+        if (!failures.isEmpty()) {
+            log.warn("Saved {} of {} RestrictedEntities, the shards {} failed", ids.size(), restrictedEntities.size(), failures.keySet());
+            // No event is published, the syncs read the saved entities from the change feed
+            throw new RestrictedEntityPartialSaveException(committedIds, failures.values().iterator().next());
+        }
+        applicationEventPublisher.publishEvent(RestrictedEntityChangeEvent.of(Type.CREATED, ids));
+        return restrictedEntities;
+    }
+
+    /**
+     * Create or update several restrictedEntities by id, without reading them first.
+     * <p>
+     * Entities are sorted by id and upserted in chunks, whose rows and tombstones are locked in id order first. Only
+     * existing rows and deleted rows whose tombstone is not purged yet can be upserted, as the other ids may still be
+     * given to new entities. An entity with a version is only upserted if its row has that version. When sharded, the
+     * shards do not commit together.
+     *
+     * @param restrictedEntities the entities, with distinct ids.
+     * @return the number of created or updated entities.
+     * @throws RestrictedEntityInvalidIdException if an id has neither a row nor a tombstone, or has no partition.
+     * @throws ObjectOptimisticLockingFailureException if an entity does not have the version given.
+     */
+    public int upsertAll(Collection<RestrictedEntity> restrictedEntities) {
+        log.debug("Request to upsert {} RestrictedEntities", restrictedEntities.size());
+        Map<Integer, List<RestrictedEntity>> byShard = restrictedEntityShards.groupByShard(restrictedEntities, RestrictedEntity::getId);
+        int upserted = sum(restrictedEntityShards.fanOut(byShard.keySet(), false, shard -> {
+            List<RestrictedEntity> shardEntities = new ArrayList<>(byShard.get(shard));
+            shardEntities.sort(Comparator.comparing(RestrictedEntity::getId));
+            List<List<RestrictedEntity>> chunks = new ArrayList<>();
+            for (int from = 0; from < shardEntities.size(); from += IN_CLAUSE_CHUNK_SIZE) {
+                List<RestrictedEntity> chunk = shardEntities.subList(from, Math.min(from + IN_CLAUSE_CHUNK_SIZE, shardEntities.size()));
+                lockAndCheck(chunk);
+                chunks.add(chunk);
+            }
+            int shardUpserted = 0;
+            for (List<RestrictedEntity> chunk : chunks) {
+                restrictedEntityRepository.deleteTombstones(chunk.stream().map(RestrictedEntity::getId).collect(Collectors.toList()));
+                shardUpserted += restrictedEntityRepository.upsert(chunk);
+            }
+            return shardUpserted;
+        }));
+        List<Long> ids = restrictedEntities.stream().map(RestrictedEntity::getId).collect(Collectors.toList());
+        evictFromCache(ids);
+        restrictedEntityExistenceService.created(ids);
+        applicationEventPublisher.publishEvent(RestrictedEntityChangeEvent.of(Type.UPDATED, ids));
+        return upserted;
+    }
+
+    private void lockAndCheck(List<RestrictedEntity> chunk) {
+        List<Long> chunkIds = chunk.stream().map(RestrictedEntity::getId).collect(Collectors.toList());
+        // The rows first: a delete committing meanwhile has recorded its tombstone once the row lock is granted
+        Map<Long, Long> versions = restrictedEntityRepository.lockForUpdate(chunkIds);
+        Set<Long> tombstoned = restrictedEntityRepository.lockTombstones(chunkIds);
+        List<Long> unknown = chunkIds.stream()
+            .filter(id -> !versions.containsKey(id) && !tombstoned.contains(id))
+            .collect(Collectors.toList());
+        if (!unknown.isEmpty()) {
+            throw new RestrictedEntityInvalidIdException(unknown, "The ids " + unknown + " have neither a row nor a tombstone");
+        }
+        RestrictedEntityPartitionService partitionService = restrictedEntityPartitionService.getIfAvailable();
+        if (partitionService != null && !tombstoned.isEmpty()) {
+            List<Long> withoutPartition = partitionService.findIdsWithoutPartition(tombstoned);
+            if (!withoutPartition.isEmpty()) {
+                throw new RestrictedEntityInvalidIdException(withoutPartition, "The ids " + withoutPartition + " have no partition");
+            }
+        }
+        for (RestrictedEntity restrictedEntity : chunk) {
+            Long version = restrictedEntity.getVersion();
+            if (version != null && !version.equals(versions.get(restrictedEntity.getId()))) {
+                throw new ObjectOptimisticLockingFailureException(RestrictedEntity.class, restrictedEntity.getId());
+            }
+        }
     }
 
     /**
@@ -45,20 +311,212 @@ public class RestrictedEntityService {
     @Transactional(readOnly = true)
     public List<RestrictedEntity> findAll() {
         log.debug("Request to get all RestrictedEntities");
-        return restrictedEntityRepository.findAll();
+        List<List<RestrictedEntity>> shardEntities = restrictedEntityShards.fanOut(restrictedEntityShards.allShards(), true,
+            shard -> {
+                skipCachePutsOnReplica();
+                return restrictedEntityRepository.findAll();
+            });
+        if (shardEntities.size() == 1) {
+            return shardEntities.get(0);
+        }
+        return shardEntities.stream().flatMap(List::stream)
+            .sorted(Comparator.comparing(RestrictedEntity::getId))
+            .collect(Collectors.toList());
     }
 
+    /**
+     * Get a page of restrictedEntities using keyset pagination.
+     *
+     * @param afterId the id of the last entity of the previous page, or {@code null} for the first page.
+     * @param size the maximum number of entities to return.
+     * @return the slice of entities, ordered by id.
+     */
+    @Transactional(readOnly = true)
+    public Slice<RestrictedEntity> findAllAfter(Long afterId, int size) {
+        log.debug("Request to get a page of RestrictedEntities after : {}", afterId);
+        long lowerBound = afterId == null ? Long.MIN_VALUE : afterId;
+        PageRequest page = PageRequest.of(0, size, Sort.by("id"));
+        List<Slice<RestrictedEntity>> slices = restrictedEntityShards.fanOut(restrictedEntityShards.allShards(), true,
+            shard -> {
+                skipCachePutsOnReplica();
+                return restrictedEntityRepository.findByIdGreaterThan(lowerBound, page);
+            });
+        if (slices.size() == 1) {
+            return slices.get(0);
+        }
+        List<RestrictedEntity> restrictedEntities = slices.stream().flatMap(slice -> slice.getContent().stream())
+            .sorted(Comparator.comparing(RestrictedEntity::getId))
+            .collect(Collectors.toList());
+        boolean hasNext = restrictedEntities.size() > size || slices.stream().anyMatch(Slice::hasNext);
+        return new SliceImpl<>(new ArrayList<>(restrictedEntities.subList(0, Math.min(size, restrictedEntities.size()))),
+            page, hasNext);
+    }
+
+    /**
+     * Pass every restrictedEntity, ordered by id, to the given consumer without loading them all in memory.
+     * <p>
+     * Each entity is detached from the persistence context once consumed, so heap usage does not
+     * depend on the table size. When sharded, the entities are read by pages from every shard instead.
+     *
+     * @param consumer the consumer of the entities.
+     */
+    @Transactional(readOnly = true)
+    public void streamAll(Consumer<RestrictedEntity> consumer) {
+        log.debug("Request to stream all RestrictedEntities");
+        if (restrictedEntityShards.isSharded()) {
+            Slice<RestrictedEntity> page;
+            Long afterId = null;
+            do {
+                page = findAllAfter(afterId, SHARDED_STREAM_PAGE_SIZE);
+                page.forEach(consumer);
+                if (page.hasContent()) {
+                    afterId = page.getContent().get(page.getNumberOfElements() - 1).getId();
+                }
+            } while (page.hasNext());
+            return;
+        }
+        skipCachePutsOnReplica();
+        try (Stream<RestrictedEntity> restrictedEntities = restrictedEntityRepository.streamAllOrderedById()) {
+            restrictedEntities.forEach(restrictedEntity -> {
+                consumer.accept(restrictedEntity);
+                entityManager.detach(restrictedEntity);
+            });
+        }
+    }
 
     /**
      * Get one restrictedEntity by id.
+     * <p>
+     * Outside of a transaction, concurrent calls for the same id are coalesced into one read, and the entity returned
+     * is shared between the callers, which must not modify it. Ids known by the {@link RestrictedEntityExistenceService}
+     * not to exist are not looked up. With read replicas, the entities read are not put in the second-level cache.
      *
      * @param id the id of the entity.
      * @return the entity.
      */
-    @Transactional(readOnly = true)
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
     public Optional<RestrictedEntity> findOne(Long id) {
         log.debug("Request to get RestrictedEntity : {}", id);
-        return restrictedEntityRepository.findById(id);
+        restrictedEntityCacheSnapshotService.recordAccess(id);
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            restrictedEntityShards.bindTransaction(id);
+            skipCachePutsOnReplica();
+            return restrictedEntityRepository.findById(id);
+        }
+        if (restrictedEntityExistenceService.isKnownAbsent(id)) {
+            return Optional.empty();
+        }
+        Optional<RestrictedEntity> restrictedEntity = findOneInFlight.execute(id, () -> restrictedEntityShards.onShardOf(id,
+            () -> findOneTransactionTemplate.execute(status -> {
+                skipCachePutsOnReplica();
+                return restrictedEntityRepository.findById(id);
+            })));
+        if (!restrictedEntity.isPresent() && !replicated) {
+            restrictedEntityExistenceService.notFound(id);
+        }
+        return restrictedEntity;
+    }
+
+    /**
+     * Get the version of one restrictedEntity.
+     * <p>
+     * The version comes from the second-level cache when the entity is cached, and otherwise from a query
+     * reading only the version column.
+     *
+     * @param id the id of the entity.
+     * @return the version of the entity.
+     */
+    @Transactional(readOnly = true)
+    public Optional<Long> findVersion(Long id) {
+        log.debug("Request to get the version of RestrictedEntity : {}", id);
+        restrictedEntityCacheSnapshotService.recordAccess(id);
+        restrictedEntityShards.bindTransaction(id);
+        if (entityManager.getEntityManagerFactory().getCache().contains(RestrictedEntity.class, id)) {
+            return restrictedEntityRepository.findById(id).map(RestrictedEntity::getVersion);
+        }
+        return restrictedEntityRepository.findVersionById(id);
+    }
+
+    /**
+     * Get several restrictedEntities by id.
+     * <p>
+     * Ids present in the second-level cache are served from it, the misses are loaded with one {@code IN (...)} query
+     * per chunk of ids. With read replicas, the misses are not put in the cache.
+     *
+     * @param ids the ids of the entities.
+     * @return the entities found, by id.
+     */
+    @Transactional(readOnly = true)
+    public Map<Long, RestrictedEntity> findAllById(Collection<Long> ids) {
+        log.debug("Request to get {} RestrictedEntities", ids.size());
+        Map<Integer, List<Long>> byShard = restrictedEntityShards.groupByShard(new TreeSet<>(ids), Function.identity());
+        Map<Long, RestrictedEntity> restrictedEntities = new HashMap<>();
+        restrictedEntityShards.fanOut(byShard.keySet(), true, shard -> findAllByIdOnShard(byShard.get(shard)))
+            .forEach(restrictedEntities::putAll);
+        return restrictedEntities;
+    }
+
+    private Map<Long, RestrictedEntity> findAllByIdOnShard(List<Long> ids) {
+        skipCachePutsOnReplica();
+        Cache cache = entityManager.getEntityManagerFactory().getCache();
+        Map<Long, RestrictedEntity> restrictedEntities = new HashMap<>();
+        List<Long> misses = new ArrayList<>();
+        for (Long id : ids) {
+            restrictedEntityCacheSnapshotService.recordAccess(id);
+            if (cache.contains(RestrictedEntity.class, id)) {
+                RestrictedEntity restrictedEntity = entityManager.find(RestrictedEntity.class, id);
+                if (restrictedEntity != null) {
+                    restrictedEntities.put(id, restrictedEntity);
+                    continue;
+                }
+            }
+            misses.add(id);
+        }
+        for (List<Long> chunk : sortedChunks(misses)) {
+            restrictedEntityRepository.findAllById(chunk)
+                .forEach(restrictedEntity -> restrictedEntities.put(restrictedEntity.getId(), restrictedEntity));
+        }
+        return restrictedEntities;
+    }
+
+    /**
+     * Get the changes made to restrictedEntities after the watermark of every shard, deletions included.
+     * <p>
+     * Only the changes of committed transactions are returned, see {@link RestrictedEntityChangeFeed}, in change
+     * sequence order within each shard. They are read from the primary database.
+     *
+     * @param watermarks the watermark of every shard, exclusive, or {@code null} to read all the entities.
+     * @param limit the maximum number of changes to return.
+     * @return the changes, with the watermarks for the next call.
+     * @throws RestrictedEntityResyncRequiredException if deletions made after a watermark were purged, or if the
+     * watermarks are not those of the current shards.
+     */
+    public RestrictedEntityChangesDTO findChanges(long[] watermarks, int limit) {
+        log.debug("Request to get the changes of RestrictedEntities since : {}", Arrays.toString(watermarks));
+        int shardCount = restrictedEntityShards.getShardCount();
+        long[] since = watermarks != null ? watermarks : new long[shardCount];
+        if (since.length != shardCount) {
+            throw new RestrictedEntityResyncRequiredException("The watermarks of " + since.length +
+                " shards do not match the " + shardCount + " shards");
+        }
+        List<List<RestrictedEntityChangeDTO>> shardChanges = restrictedEntityShards.fanOut(restrictedEntityShards.allShards(), false,
+            shard -> restrictedEntityChangeFeed.read(shard, since[shard], limit));
+        long[] next = since.clone();
+        List<RestrictedEntityChangeDTO> changes = new ArrayList<>();
+        for (int index = 0; changes.size() < limit; index++) {
+            int taken = changes.size();
+            for (int shard = 0; shard < shardCount && changes.size() < limit; shard++) {
+                if (index < shardChanges.get(shard).size()) {
+                    RestrictedEntityChangeDTO change = shardChanges.get(shard).get(index);
+                    changes.add(change);
+                    next[shard] = change.getChangeSeq();
+                }
+            }
+            if (changes.size() == taken) {
+                break;
+            }
+        }
+        return new RestrictedEntityChangesDTO(next, changes);
     }
 
     /**
@@ -68,6 +526,142 @@ public class RestrictedEntityService {
      */
     public void delete(Long id) {
         log.debug("Request to delete RestrictedEntity : {}", id);
+        restrictedEntityShards.bindTransaction(id);
+        restrictedEntityRepository.insertTombstones(Collections.singletonList(id));
         restrictedEntityRepository.deleteById(id);
+        applicationEventPublisher.publishEvent(RestrictedEntityChangeEvent.of(Type.DELETED, id));
+    }
+
+    /**
+     * Set the myField of several restrictedEntities without loading them.
+     * <p>
+     * Ids are sorted and updated in chunks, the rows of each chunk being locked in id order first, so concurrent bulk
+     * jobs over the same rows do not deadlock.
+     *
+     * @param ids the ids of the entities to update.
+     * @param myField the new value.
+     * @return the number of updated entities.
+     */
+    public int updateAll(Collection<Long> ids, String myField) {
+        log.debug("Request to update {} RestrictedEntities", ids.size());
+        Map<Integer, List<Long>> byShard = restrictedEntityShards.groupByShard(ids, Function.identity());
+        int updated = sum(restrictedEntityShards.fanOut(byShard.keySet(), false, shard -> {
+            int shardUpdated = 0;
+            for (List<Long> chunk : sortedChunks(byShard.get(shard))) {
+                restrictedEntityRepository.lockForUpdate(chunk);
+                shardUpdated += restrictedEntityRepository.bulkUpdateMyField(chunk, myField);
+            }
+            return shardUpdated;
+        }));
+        evictFromCache(ids);
+        applicationEventPublisher.publishEvent(RestrictedEntityChangeEvent.of(Type.UPDATED, ids));
+        return updated;
+    }
+
+    /**
+     * Set the myField of the restrictedEntities whose id is in a range, with a single statement.
+     *
+     * @param fromId the lower bound, inclusive.
+     * @param toId the upper bound, inclusive.
+     * @param myField the new value.
+     * @return the number of updated entities.
+     */
+    public int updateRange(long fromId, long toId, String myField) {
+        log.debug("Request to update RestrictedEntities from {} to {}", fromId, toId);
+        int updated = sum(restrictedEntityShards.fanOut(restrictedEntityShards.allShards(), false,
+            shard -> restrictedEntityRepository.bulkUpdateMyFieldInRange(fromId, toId, myField)));
+        evictFromCache(null);
+        applicationEventPublisher.publishEvent(RestrictedEntityChangeEvent.ofRange(Type.UPDATED, fromId, toId));
+        return updated;
+    }
+
+    /**
+     * Delete several restrictedEntities without loading them.
+     * <p>
+     * Ids are sorted and deleted in chunks, the rows of each chunk being locked in id order first, as for
+     * {@link #updateAll}.
+     *
+     * @param ids the ids of the entities to delete.
+     * @return the number of deleted entities.
+     */
+    public int deleteAll(Collection<Long> ids) {
+        log.debug("Request to delete {} RestrictedEntities", ids.size());
+        Map<Integer, List<Long>> byShard = restrictedEntityShards.groupByShard(ids, Function.identity());
+        int deleted = sum(restrictedEntityShards.fanOut(byShard.keySet(), false, shard -> {
+            int shardDeleted = 0;
+            for (List<Long> chunk : sortedChunks(byShard.get(shard))) {
+                restrictedEntityRepository.lockForUpdate(chunk);
+                restrictedEntityRepository.insertTombstones(chunk);
+                shardDeleted += restrictedEntityRepository.bulkDelete(chunk);
+            }
+            return shardDeleted;
+        }));
+        evictFromCache(ids);
+        applicationEventPublisher.publishEvent(RestrictedEntityChangeEvent.of(Type.DELETED, ids));
+        return deleted;
+    }
+
+    /**
+     * Delete the restrictedEntities whose id is in a range, with a single statement.
+     *
+     * @param fromId the lower bound, inclusive.
+     * @param toId the upper bound, inclusive.
+     * @return the number of deleted entities.
+     */
+    public int deleteRange(long fromId, long toId) {
+        log.debug("Request to delete RestrictedEntities from {} to {}", fromId, toId);
+        int deleted = sum(restrictedEntityShards.fanOut(restrictedEntityShards.allShards(), false, shard -> {
+            restrictedEntityRepository.insertTombstonesInRange(fromId, toId);
+            return restrictedEntityRepository.bulkDeleteInRange(fromId, toId);
+        }));
+        evictFromCache(null);
+        applicationEventPublisher.publishEvent(RestrictedEntityChangeEvent.ofRange(Type.DELETED, fromId, toId));
+        return deleted;
+    }
+
+    /**
+     * Keep the entities loaded by the current read-only transaction out of the second-level cache when it may read a
+     * replica: the replica may lag behind the primary, and its stale entities would be served from the cache until
+     * they expire. The entities found in the cache are still read from it.
+     */
+    private void skipCachePutsOnReplica() {
+        if (replicated && TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            entityManager.unwrap(Session.class).setCacheMode(CacheMode.GET);
+        }
+    }
+
+    private static int sum(List<Integer> counts) {
+        return counts.stream().mapToInt(Integer::intValue).sum();
+    }
+
+    private static List<List<Long>> sortedChunks(Collection<Long> ids) {
+        List<Long> sortedIds = new ArrayList<>(new TreeSet<>(ids));
+        List<List<Long>> chunks = new ArrayList<>();
+        for (int from = 0; from < sortedIds.size(); from += IN_CLAUSE_CHUNK_SIZE) {
+            chunks.add(sortedIds.subList(from, Math.min(from + IN_CLAUSE_CHUNK_SIZE, sortedIds.size())));
+        }
+        return chunks;
+    }
+
+    /**
+     * Evict entries of the RestrictedEntity second-level cache region, now and again once the transaction completes,
+     * so a concurrent read cannot put back a row this transaction is changing.
+     *
+     * @param ids the ids of the entries to evict, or {@code null} to evict the whole region.
+     */
+    private void evictFromCache(Collection<Long> ids) {
+        Cache cache = entityManager.getEntityManagerFactory().getCache();
+        Runnable eviction = ids == null
+            ? () -> cache.evict(RestrictedEntity.class)
+            : () -> ids.forEach(id -> cache.evict(RestrictedEntity.class, id));
+        eviction.run();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCompletion(int status) {
+                    eviction.run();
+                }
+            });
+        }
     }
 }
@@ -0,0 +1,73 @@
+package com.mycompany.myapp.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces concurrent loads of the same key: the first caller, the leader, runs the loader while the callers
+ * arriving before it completes wait for and share its result, or its exception.
+ * <p>
+ * Nothing is cached: once the leader completes, the next caller runs the loader again.
+ *
+ * @param <K> the type of the keys.
+ * @param <V> the type of the loaded values.
+ */
+final class SingleFlight<K, V> {
+
+    private final ConcurrentMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+    private final Counter leaderCalls;
+
+    private final Counter coalescedCalls;
+
+    /**
+     * @param meterRegistry the registry of the {@code <name>.calls} counter, tagged with {@code role=leader|coalesced}.
+     * @param name the name of the metric.
+     */
+    SingleFlight(MeterRegistry meterRegistry, String name) {
+        this.leaderCalls = Counter.builder(name + ".calls").tag("role", "leader")
+            .description("Number of calls that ran the loader").register(meterRegistry);
+        this.coalescedCalls = Counter.builder(name + ".calls").tag("role", "coalesced")
+            .description("Number of calls that waited for the loader of another call").register(meterRegistry);
+    }
+
+    V execute(K key, Supplier<V> loader) {
+        CompletableFuture<V> call = new CompletableFuture<>();
+        CompletableFuture<V> leader = inFlight.putIfAbsent(key, call);
+        if (leader != null) {
+            coalescedCalls.increment();
+            return join(leader);
+        }
+        leaderCalls.increment();
+        try {
+            V value = loader.get();
+            call.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            call.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, call);
+        }
+    }
+
+    private static <V> V join(CompletableFuture<V> call) {
+        try {
+            return call.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw e;
+        }
+    }
+}
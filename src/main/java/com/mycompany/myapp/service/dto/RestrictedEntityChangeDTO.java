@@ -0,0 +1,65 @@
+package com.mycompany.myapp.service.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.mycompany.myapp.domain.RestrictedEntity;
+import com.mycompany.myapp.domain.RestrictedEntityTombstone;
+
+import java.io.Serializable;
+
+/**
+ * A DTO for one entry of the {@link RestrictedEntity} change feed: either the current state of an inserted or
+ * updated entity, or the id of a deleted one.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class RestrictedEntityChangeDTO implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final Long changeSeq;
+
+    private final Long id;
+
+    private final boolean deleted;
+
+    private final RestrictedEntity restrictedEntity;
+
+    private RestrictedEntityChangeDTO(Long changeSeq, Long id, boolean deleted, RestrictedEntity restrictedEntity) {
+        this.changeSeq = changeSeq;
+        this.id = id;
+        this.deleted = deleted;
+        this.restrictedEntity = restrictedEntity;
+    }
+
+    public static RestrictedEntityChangeDTO upserted(RestrictedEntity restrictedEntity) {
+        return new RestrictedEntityChangeDTO(restrictedEntity.getChangeSeq(), restrictedEntity.getId(), false, restrictedEntity);
+    }
+
+    public static RestrictedEntityChangeDTO deleted(RestrictedEntityTombstone tombstone) {
+        return new RestrictedEntityChangeDTO(tombstone.getChangeSeq(), tombstone.getId(), true, null);
+    }
+
+    public Long getChangeSeq() {
+        return changeSeq;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public boolean isDeleted() {
+        return deleted;
+    }
+
+    public RestrictedEntity getRestrictedEntity() {
+        return restrictedEntity;
+    }
+
+    @Override
+    public String toString() {
+        return "RestrictedEntityChangeDTO{" +
+            "changeSeq=" + changeSeq +
+            ", id=" + id +
+            ", deleted=" + deleted +
+            "}";
+    }
+}
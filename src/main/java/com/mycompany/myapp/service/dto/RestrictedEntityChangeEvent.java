@@ -0,0 +1,78 @@
+package com.mycompany.myapp.service.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A notification that restrictedEntities were created, updated or deleted, published once the change is committed.
+ * <p>
+ * It identifies the changed restrictedEntities either by {@code ids} or, for range operations, by {@code fromId}
+ * and {@code toId}; subscribers read the new state themselves.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class RestrictedEntityChangeEvent implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    public enum Type {
+        CREATED, UPDATED, DELETED
+    }
+
+    private final Type type;
+
+    private final List<Long> ids;
+
+    private final Long fromId;
+
+    private final Long toId;
+
+    private RestrictedEntityChangeEvent(Type type, List<Long> ids, Long fromId, Long toId) {
+        this.type = type;
+        this.ids = ids;
+        this.fromId = fromId;
+        this.toId = toId;
+    }
+
+    public static RestrictedEntityChangeEvent of(Type type, Long id) {
+        return new RestrictedEntityChangeEvent(type, Collections.singletonList(id), null, null);
+    }
+
+    public static RestrictedEntityChangeEvent of(Type type, Collection<Long> ids) {
+        return new RestrictedEntityChangeEvent(type, Collections.unmodifiableList(new ArrayList<>(ids)), null, null);
+    }
+
+    public static RestrictedEntityChangeEvent ofRange(Type type, long fromId, long toId) {
+        return new RestrictedEntityChangeEvent(type, null, fromId, toId);
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public List<Long> getIds() {
+        return ids;
+    }
+
+    public Long getFromId() {
+        return fromId;
+    }
+
+    public Long getToId() {
+        return toId;
+    }
+
+    @Override
+    public String toString() {
+        return "RestrictedEntityChangeEvent{" +
+            "type=" + type +
+            ", ids=" + ids +
+            ", fromId=" + fromId +
+            ", toId=" + toId +
+            "}";
+    }
+}
@@ -0,0 +1,43 @@
+package com.mycompany.myapp.service.dto;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * A DTO for a page of the restrictedEntity change feed, with the watermark of every shard to read the next page from.
+ */
+public class RestrictedEntityChangesDTO implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final long[] watermarks;
+
+    private final List<RestrictedEntityChangeDTO> changes;
+
+    public RestrictedEntityChangesDTO(long[] watermarks, List<RestrictedEntityChangeDTO> changes) {
+        this.watermarks = watermarks;
+        this.changes = changes;
+    }
+
+    /**
+     * @return the change sequence value of the last change read from every shard, in the order of the shards.
+     */
+    public long[] getWatermarks() {
+        return watermarks;
+    }
+
+    /**
+     * @return the changes, in change sequence order within each shard.
+     */
+    public List<RestrictedEntityChangeDTO> getChanges() {
+        return changes;
+    }
+
+    @Override
+    public String toString() {
+        return "RestrictedEntityChangesDTO{" +
+            "watermarks=" + watermarks.length +
+            ", changes=" + changes.size() +
+            "}";
+    }
+}
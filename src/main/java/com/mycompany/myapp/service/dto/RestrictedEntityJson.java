@@ -0,0 +1,39 @@
+package com.mycompany.myapp.service.dto;
+
+import java.io.Serializable;
+
+/**
+ * The UTF-8 JSON representation of a version of a restrictedEntity, ready to be written to a response.
+ */
+public class RestrictedEntityJson implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final Long version;
+
+    private final byte[] json;
+
+    public RestrictedEntityJson(Long version, byte[] json) {
+        this.version = version;
+        this.json = json;
+    }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    /**
+     * @return the JSON bytes, shared by every reader: they must not be modified.
+     */
+    public byte[] getJson() {
+        return json;
+    }
+
+    @Override
+    public String toString() {
+        return "RestrictedEntityJson{" +
+            "version=" + version +
+            ", length=" + json.length +
+            "}";
+    }
+}
@@ -0,0 +1,37 @@
+package com.mycompany.myapp.service.dto;
+
+import java.nio.ByteBuffer;
+
+/**
+ * The UTF-8 JSON representation of a version of a restrictedEntity, as a read-only view of memory-mapped pages.
+ */
+public class RestrictedEntityMappedJson {
+
+    private final Long version;
+
+    private final ByteBuffer json;
+
+    public RestrictedEntityMappedJson(Long version, ByteBuffer json) {
+        this.version = version;
+        this.json = json;
+    }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    /**
+     * @return a view of the JSON bytes, from its position to its limit, owned by the caller.
+     */
+    public ByteBuffer getJson() {
+        return json;
+    }
+
+    @Override
+    public String toString() {
+        return "RestrictedEntityMappedJson{" +
+            "version=" + version +
+            ", length=" + json.remaining() +
+            "}";
+    }
+}
@@ -0,0 +1,41 @@
+package com.mycompany.myapp.service.dto;
+
+/**
+ * The fields of a restrictedEntity to change, the fields not set being left as they are.
+ * <p>
+ * A field set to {@code null} is cleared, as with a JSON Merge Patch.
+ */
+public class RestrictedEntityPatch {
+
+    private boolean myFieldSet;
+
+    private String myField;
+
+    public RestrictedEntityPatch myField(String myField) {
+        this.myField = myField;
+        this.myFieldSet = true;
+        return this;
+    }
+
+    public boolean isMyFieldSet() {
+        return myFieldSet;
+    }
+
+    public String getMyField() {
+        return myField;
+    }
+
+    /**
+     * @return true if no field is changed.
+     */
+    public boolean isEmpty() {
+        return !myFieldSet;
+    }
+
+    @Override
+    public String toString() {
+        return "RestrictedEntityPatch{" +
+            (myFieldSet ? "myField='" + myField + "'" : "") +
+            "}";
+    }
+}
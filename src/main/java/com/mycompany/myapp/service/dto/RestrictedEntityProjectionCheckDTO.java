@@ -0,0 +1,79 @@
+package com.mycompany.myapp.service.dto;
+
+import java.io.Serializable;
+
+/**
+ * A DTO for the result of the comparison of the in-memory projection of the restrictedEntities with the database.
+ */
+public class RestrictedEntityProjectionCheckDTO implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final long rows;
+
+    private final long projected;
+
+    private final long missing;
+
+    private final long stale;
+
+    private final long extra;
+
+    public RestrictedEntityProjectionCheckDTO(long rows, long projected, long missing, long stale, long extra) {
+        this.rows = rows;
+        this.projected = projected;
+        this.missing = missing;
+        this.stale = stale;
+        this.extra = extra;
+    }
+
+    /**
+     * @return the number of rows in the database.
+     */
+    public long getRows() {
+        return rows;
+    }
+
+    /**
+     * @return the number of rows in the projection.
+     */
+    public long getProjected() {
+        return projected;
+    }
+
+    /**
+     * @return the number of rows of the database missing from the projection.
+     */
+    public long getMissing() {
+        return missing;
+    }
+
+    /**
+     * @return the number of rows of the projection with another version than in the database.
+     */
+    public long getStale() {
+        return stale;
+    }
+
+    /**
+     * @return the number of rows of the projection deleted from the database.
+     */
+    public long getExtra() {
+        return extra;
+    }
+
+    public boolean isConsistent() {
+        return missing == 0 && stale == 0 && extra == 0;
+    }
+
+    @Override
+    public String toString() {
+        return "RestrictedEntityProjectionCheckDTO{" +
+            "rows=" + rows +
+            ", projected=" + projected +
+            ", missing=" + missing +
+            ", stale=" + stale +
+            ", extra=" + extra +
+            "}";
+    }
+}
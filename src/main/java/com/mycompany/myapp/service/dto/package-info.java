@@ -0,0 +1,4 @@
+/**
+ * Data Transfer Objects.
+ */
+package com.mycompany.myapp.service.dto;
@@ -0,0 +1,50 @@
+package com.mycompany.myapp.web.rest;
+
+import com.mycompany.myapp.service.RestrictedEntityProjectionService;
+import com.mycompany.myapp.service.dto.RestrictedEntityProjectionCheckDTO;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Management endpoint of the in-memory projection of the {@link com.mycompany.myapp.domain.RestrictedEntity} rows,
+ * available when {@code application.projection.enabled} is set.
+ */
+@Component
+@Endpoint(id = "projection")
+@ConditionalOnProperty(prefix = "application.projection", name = "enabled", havingValue = "true")
+public class RestrictedEntityProjectionEndpoint {
+
+    private final Logger log = LoggerFactory.getLogger(RestrictedEntityProjectionEndpoint.class);
+
+    private final RestrictedEntityProjectionService restrictedEntityProjectionService;
+
+    public RestrictedEntityProjectionEndpoint(RestrictedEntityProjectionService restrictedEntityProjectionService) {
+        this.restrictedEntityProjectionService = restrictedEntityProjectionService;
+    }
+
+    /**
+     * {@code GET  /management/projection} : compare the projection with the database.
+     *
+     * @return the differences found.
+     */
+    @ReadOperation
+    public RestrictedEntityProjectionCheckDTO check() {
+        log.debug("REST request to check the RestrictedEntity projection");
+        return restrictedEntityProjectionService.check();
+    }
+
+    /**
+     * {@code POST  /management/projection} : build the projection again from the database.
+     */
+    @WriteOperation
+    public void rebuild() {
+        log.debug("REST request to rebuild the RestrictedEntity projection");
+        restrictedEntityProjectionService.rebuild();
+    }
+}
@@ -1,22 +1,59 @@
 package com.mycompany.myapp.web.rest;
 
+import com.mycompany.myapp.config.ApplicationProperties;
 import com.mycompany.myapp.domain.RestrictedEntity;
+import com.mycompany.myapp.service.RestrictedEntityChangeStreamService;
+import com.mycompany.myapp.service.RestrictedEntityInvalidIdException;
+import com.mycompany.myapp.service.RestrictedEntityJsonService;
+import com.mycompany.myapp.service.RestrictedEntityQueryService;
+import com.mycompany.myapp.service.RestrictedEntityReplicaService;
 import com.mycompany.myapp.service.RestrictedEntityService;
+import com.mycompany.myapp.service.dto.RestrictedEntityChangesDTO;
+import com.mycompany.myapp.service.dto.RestrictedEntityJson;
+import com.mycompany.myapp.service.dto.RestrictedEntityMappedJson;
+import com.mycompany.myapp.service.dto.RestrictedEntityPatch;
 import com.mycompany.myapp.web.rest.errors.BadRequestAlertException;
+import com.mycompany.myapp.web.rest.util.ETagUtil;
+import com.mycompany.myapp.web.rest.util.KeysetPaginationUtil;
+import com.mycompany.myapp.web.rest.vm.RestrictedEntityBulkUpdateVM;
+import com.mycompany.myapp.web.rest.vm.RestrictedEntityChangesVM;
+import com.mycompany.myapp.web.rest.vm.RestrictedEntityLookupVM;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import io.github.jhipster.web.util.HeaderUtil;
-import io.github.jhipster.web.util.ResponseUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Slice;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
 
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Collectors;
 
 /**
  * REST controller for managing {@link com.mycompany.myapp.domain.RestrictedEntity}.
@@ -29,13 +66,42 @@ public class RestrictedEntityResource {
 
     private static final String ENTITY_NAME = "restrictedMicroserviceRestrictedEntity";
 
+    private static final int MAX_PAGE_SIZE = 1000;
+
+    private static final String APPLICATION_NDJSON_VALUE = "application/x-ndjson";
+
+    private static final String APPLICATION_MERGE_PATCH_JSON_VALUE = "application/merge-patch+json";
+
     @Value("${jhipster.clientApp.name}")
     private String applicationName;
 
     private final RestrictedEntityService restrictedEntityService;
 
-    public RestrictedEntityResource(RestrictedEntityService restrictedEntityService) {
+    private final RestrictedEntityQueryService restrictedEntityQueryService;
+
+    private final ObjectWriter exportWriter;
+
+    private final ApplicationProperties applicationProperties;
+
+    private final RestrictedEntityChangeStreamService restrictedEntityChangeStreamService;
+
+    private final RestrictedEntityJsonService restrictedEntityJsonService;
+
+    private final RestrictedEntityReplicaService restrictedEntityReplicaService;
+
+    public RestrictedEntityResource(RestrictedEntityService restrictedEntityService,
+                                    RestrictedEntityQueryService restrictedEntityQueryService, ObjectMapper objectMapper,
+                                    ApplicationProperties applicationProperties,
+                                    RestrictedEntityChangeStreamService restrictedEntityChangeStreamService,
+                                    RestrictedEntityJsonService restrictedEntityJsonService,
+                                    RestrictedEntityReplicaService restrictedEntityReplicaService) {
         this.restrictedEntityService = restrictedEntityService;
+        this.restrictedEntityQueryService = restrictedEntityQueryService;
+        this.restrictedEntityChangeStreamService = restrictedEntityChangeStreamService;
+        this.restrictedEntityJsonService = restrictedEntityJsonService;
+        this.restrictedEntityReplicaService = restrictedEntityReplicaService;
+        this.exportWriter = objectMapper.writerFor(RestrictedEntity.class).without(SerializationFeature.INDENT_OUTPUT);
+        this.applicationProperties = applicationProperties;
     }
 
     /**
@@ -54,52 +120,423 @@ public class RestrictedEntityResource {
         RestrictedEntity result = restrictedEntityService.save(restrictedEntity);
         return ResponseEntity.created(new URI("/api/restricted-entities/" + result.getId()))
             .headers(HeaderUtil.createEntityCreationAlert(applicationName, false, ENTITY_NAME, result.getId().toString()))
+            .eTag(ETagUtil.eTag(result))
             .body(result);
     }
 
+    /**
+     * {@code POST  /restricted-entities/bulk} : Create several new restrictedEntities in a single transaction, or in one
+     * transaction per shard when sharded.
+     * <p>
+     * When some shards fail, the error lists the ids of the created restrictedEntities in {@code committedIds}.
+     *
+     * @param restrictedEntities the restrictedEntities to create.
+     * @return the {@link ResponseEntity} with status {@code 201 (Created)} and with body the ids of the new restrictedEntities, in request order,
+     * or with status {@code 400 (Bad Request)} if a restrictedEntity has already an ID or if there are too many restrictedEntities,
+     * or with the status of the failure and the {@code committedIds} if the restrictedEntities were created on some shards only.
+     */
+    @PostMapping("/restricted-entities/bulk")
+    public ResponseEntity<List<Long>> createRestrictedEntities(@RequestBody List<RestrictedEntity> restrictedEntities) {
+        log.debug("REST request to save {} RestrictedEntities", restrictedEntities.size());
+        int maxSize = applicationProperties.getBulk().getMaxSize();
+        if (restrictedEntities.size() > maxSize) {
+            throw new BadRequestAlertException("A bulk request cannot contain more than " + maxSize + " restrictedEntities", ENTITY_NAME, "bulktoolarge");
+        }
+        if (restrictedEntities.stream().anyMatch(restrictedEntity -> restrictedEntity.getId() != null)) {
+            throw new BadRequestAlertException("A new restrictedEntity cannot already have an ID", ENTITY_NAME, "idexists");
+        }
+        List<Long> ids = restrictedEntityService.saveAll(restrictedEntities).stream()
+            .map(RestrictedEntity::getId)
+            .collect(Collectors.toList());
+        return ResponseEntity.status(HttpStatus.CREATED)
+            .headers(HeaderUtil.createAlert(applicationName, ids.size() + " " + ENTITY_NAME + " created", String.valueOf(ids.size())))
+            .body(ids);
+    }
+
     /**
      * {@code PUT  /restricted-entities} : Updates an existing restrictedEntity.
+     * <p>
+     * The update only succeeds if the restrictedEntity still has the expected version, taken from the {@code If-Match}
+     * header when present and from the body otherwise.
      *
      * @param restrictedEntity the restrictedEntity to update.
+     * @param ifMatch the entity tag of the restrictedEntity version the update is based on.
      * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body the updated restrictedEntity,
      * or with status {@code 400 (Bad Request)} if the restrictedEntity is not valid,
+     * or with status {@code 404 (Not Found)} if the restrictedEntity does not exist,
+     * or with status {@code 412 (Precondition Failed)} if the restrictedEntity was modified since the expected version,
      * or with status {@code 500 (Internal Server Error)} if the restrictedEntity couldn't be updated.
      * @throws URISyntaxException if the Location URI syntax is incorrect.
      */
     @PutMapping("/restricted-entities")
-    public ResponseEntity<RestrictedEntity> updateRestrictedEntity(@RequestBody RestrictedEntity restrictedEntity) throws URISyntaxException {
+    public ResponseEntity<RestrictedEntity> updateRestrictedEntity(@RequestBody RestrictedEntity restrictedEntity,
+                                                                   @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) throws URISyntaxException {
         log.debug("REST request to update RestrictedEntity : {}", restrictedEntity);
         if (restrictedEntity.getId() == null) {
             throw new BadRequestAlertException("Invalid id", ENTITY_NAME, "idnull");
         }
-        RestrictedEntity result = restrictedEntityService.save(restrictedEntity);
+        if (ifMatch != null) {
+            restrictedEntity.setVersion(parseIfMatch(ifMatch));
+        }
+        if (restrictedEntity.getVersion() == null) {
+            throw new BadRequestAlertException("The expected version is required, in the If-Match header or in the body", ENTITY_NAME, "versionnull");
+        }
+        RestrictedEntity result = restrictedEntityService.update(restrictedEntity)
+            .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
         return ResponseEntity.ok()
             .headers(HeaderUtil.createEntityUpdateAlert(applicationName, false, ENTITY_NAME, restrictedEntity.getId().toString()))
+            .eTag(ETagUtil.eTag(result))
             .body(result);
     }
 
+    /**
+     * {@code PATCH  /restricted-entities/:id} : Changes some fields of an existing restrictedEntity, as a JSON Merge Patch.
+     * <p>
+     * Only the fields present in the patch are written, {@code null} clearing a field, with a single update that does
+     * not read the restrictedEntity first. The update only succeeds if the restrictedEntity still has the expected
+     * version when one is given, in the {@code If-Match} header or in the patch.
+     *
+     * @param id the id of the restrictedEntity to patch.
+     * @param mergePatch the fields to change.
+     * @param ifMatch the entity tag of the restrictedEntity version the patch is based on.
+     * @return the {@link ResponseEntity} with status {@code 204 (NO_CONTENT)}, with the new entity tag when the expected version was given,
+     * or with status {@code 400 (Bad Request)} if the patch is not valid,
+     * or with status {@code 404 (Not Found)} if the restrictedEntity does not exist,
+     * or with status {@code 412 (Precondition Failed)} if the restrictedEntity was modified since the expected version.
+     */
+    @PatchMapping(value = "/restricted-entities/{id}", consumes = {APPLICATION_MERGE_PATCH_JSON_VALUE, MediaType.APPLICATION_JSON_VALUE})
+    public ResponseEntity<Void> patchRestrictedEntity(@PathVariable Long id, @RequestBody JsonNode mergePatch,
+                                                      @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        log.debug("REST request to patch RestrictedEntity {} : {}", id, mergePatch);
+        if (!mergePatch.isObject()) {
+            throw new BadRequestAlertException("A merge patch must be a JSON object", ENTITY_NAME, "patchinvalid");
+        }
+        RestrictedEntityPatch patch = new RestrictedEntityPatch();
+        Long expectedVersion = null;
+        Iterator<Map.Entry<String, JsonNode>> fields = mergePatch.fields();
+        while (fields.hasNext()) {
+            Map.Entry<String, JsonNode> field = fields.next();
+            JsonNode value = field.getValue();
+            switch (field.getKey()) {
+                case "id":
+                    if (!value.canConvertToLong() || value.asLong() != id) {
+                        throw new BadRequestAlertException("The id cannot be changed", ENTITY_NAME, "idinvalid");
+                    }
+                    break;
+                case "version":
+                    if (!value.canConvertToLong()) {
+                        throw new BadRequestAlertException("Invalid version", ENTITY_NAME, "versioninvalid");
+                    }
+                    expectedVersion = value.asLong();
+                    break;
+                case "myField":
+                    if (!value.isTextual() && !value.isNull()) {
+                        throw new BadRequestAlertException("Invalid myField", ENTITY_NAME, "patchfieldinvalid");
+                    }
+                    patch.myField(value.isNull() ? null : value.asText());
+                    break;
+                default:
+                    throw new BadRequestAlertException("Unknown field " + field.getKey(), ENTITY_NAME, "patchfieldinvalid");
+            }
+        }
+        if (ifMatch != null) {
+            expectedVersion = parseIfMatch(ifMatch);
+        }
+        if (!restrictedEntityService.patch(id, patch, expectedVersion)) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND);
+        }
+        ResponseEntity.HeadersBuilder<?> response = ResponseEntity.noContent()
+            .headers(HeaderUtil.createEntityUpdateAlert(applicationName, false, ENTITY_NAME, id.toString()));
+        if (expectedVersion != null) {
+            response.eTag(ETagUtil.eTag(patch.isEmpty() ? expectedVersion : expectedVersion + 1));
+        }
+        return response.build();
+    }
+
+    private static Long parseIfMatch(String ifMatch) {
+        try {
+            return ETagUtil.parseVersion(ifMatch);
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestAlertException("Invalid If-Match header", ENTITY_NAME, "ifmatchinvalid");
+        }
+    }
+
+    /**
+     * {@code PUT  /restricted-entities/bulk} : Updates several existing restrictedEntities without reading them first.
+     *
+     * @param bulkUpdate the ids or id range of the restrictedEntities to update, and their new values.
+     * @return the {@link ResponseEntity} with status {@code 204 (NO_CONTENT)} and the number of updated restrictedEntities in the alert header,
+     * or with status {@code 400 (Bad Request)} if the selection is not valid.
+     */
+    @PutMapping("/restricted-entities/bulk")
+    public ResponseEntity<Void> updateRestrictedEntities(@RequestBody RestrictedEntityBulkUpdateVM bulkUpdate) {
+        log.debug("REST request to update RestrictedEntities : {}", bulkUpdate);
+        validateBulkSelection(bulkUpdate.getIds(), bulkUpdate.getFromId(), bulkUpdate.getToId());
+        int updated = bulkUpdate.getIds() != null
+            ? restrictedEntityService.updateAll(bulkUpdate.getIds(), bulkUpdate.getMyField())
+            : restrictedEntityService.updateRange(bulkUpdate.getFromId(), bulkUpdate.getToId(), bulkUpdate.getMyField());
+        return ResponseEntity.noContent()
+            .headers(HeaderUtil.createAlert(applicationName, updated + " " + ENTITY_NAME + " updated", String.valueOf(updated)))
+            .build();
+    }
+
+    /**
+     * {@code PUT  /restricted-entities/:id} : Creates or updates the "id" restrictedEntity, without reading it first.
+     * <p>
+     * The restrictedEntity must exist, or have been deleted recently. The upsert only succeeds if it has the expected
+     * version when one is given, in the {@code If-Match} header or in the body.
+     *
+     * @param id the id of the restrictedEntity to create or update.
+     * @param restrictedEntity the restrictedEntity, without an id or with the same one.
+     * @param ifMatch the entity tag of the restrictedEntity version the upsert is based on.
+     * @return the {@link ResponseEntity} with status {@code 204 (NO_CONTENT)},
+     * or with status {@code 400 (Bad Request)} if the restrictedEntity has another id or if the id is unknown,
+     * or with status {@code 412 (Precondition Failed)} if the restrictedEntity does not have the expected version.
+     */
+    @PutMapping("/restricted-entities/{id}")
+    public ResponseEntity<Void> upsertRestrictedEntity(@PathVariable Long id, @RequestBody RestrictedEntity restrictedEntity,
+                                                       @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        log.debug("REST request to upsert RestrictedEntity {} : {}", id, restrictedEntity);
+        if (restrictedEntity.getId() != null && !restrictedEntity.getId().equals(id)) {
+            throw new BadRequestAlertException("The id cannot be changed", ENTITY_NAME, "idinvalid");
+        }
+        restrictedEntity.setId(id);
+        if (ifMatch != null) {
+            restrictedEntity.setVersion(parseIfMatch(ifMatch));
+        }
+        upsertAll(Collections.singletonList(restrictedEntity));
+        return ResponseEntity.noContent()
+            .headers(HeaderUtil.createEntityUpdateAlert(applicationName, false, ENTITY_NAME, id.toString()))
+            .build();
+    }
+
+    /**
+     * {@code PUT  /restricted-entities/upsert} : Creates or updates several restrictedEntities by id in a single transaction,
+     * without reading them first.
+     *
+     * The restrictedEntities must exist, or have been deleted recently, and those with a version are only upserted if
+     * they have it.
+     *
+     * @param restrictedEntities the restrictedEntities, each with a distinct id.
+     * @return the {@link ResponseEntity} with status {@code 204 (NO_CONTENT)} and the number of created or updated restrictedEntities in the alert header,
+     * or with status {@code 400 (Bad Request)} if a restrictedEntity has no id or an unknown id, if ids are repeated or if there are too many restrictedEntities,
+     * or with status {@code 412 (Precondition Failed)} if a restrictedEntity does not have its version.
+     */
+    @PutMapping("/restricted-entities/upsert")
+    public ResponseEntity<Void> upsertRestrictedEntities(@RequestBody List<RestrictedEntity> restrictedEntities) {
+        log.debug("REST request to upsert {} RestrictedEntities", restrictedEntities.size());
+        int maxSize = applicationProperties.getBulk().getMaxSize();
+        if (restrictedEntities.size() > maxSize) {
+            throw new BadRequestAlertException("A bulk request cannot contain more than " + maxSize + " restrictedEntities", ENTITY_NAME, "bulktoolarge");
+        }
+        if (restrictedEntities.stream().anyMatch(restrictedEntity -> restrictedEntity.getId() == null)) {
+            throw new BadRequestAlertException("Invalid id", ENTITY_NAME, "idnull");
+        }
+        if (restrictedEntities.stream().map(RestrictedEntity::getId).distinct().count() < restrictedEntities.size()) {
+            throw new BadRequestAlertException("A restrictedEntity cannot be upserted twice in a request", ENTITY_NAME, "idduplicate");
+        }
+        int upserted = upsertAll(restrictedEntities);
+        return ResponseEntity.noContent()
+            .headers(HeaderUtil.createAlert(applicationName, upserted + " " + ENTITY_NAME + " upserted", String.valueOf(upserted)))
+            .build();
+    }
+
+    private int upsertAll(List<RestrictedEntity> restrictedEntities) {
+        try {
+            return restrictedEntityService.upsertAll(restrictedEntities);
+        } catch (RestrictedEntityInvalidIdException e) {
+            throw new BadRequestAlertException(e.getMessage(), ENTITY_NAME, "idinvalid");
+        }
+    }
+
     /**
      * {@code GET  /restricted-entities} : get all the restrictedEntities.
      *
-     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the list of restrictedEntities in body.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the list of restrictedEntities in body,
+     * or with status {@code 304 (Not Modified)} if the list matches the {@code If-None-Match} header.
      */
     @GetMapping("/restricted-entities")
-    public List<RestrictedEntity> getAllRestrictedEntities() {
+    public ResponseEntity<List<RestrictedEntity>> getAllRestrictedEntities() {
         log.debug("REST request to get all RestrictedEntities");
-        return restrictedEntityService.findAll();
+        List<RestrictedEntity> restrictedEntities = restrictedEntityQueryService.findAll();
+        return ResponseEntity.ok().eTag(ETagUtil.eTag(restrictedEntities)).body(restrictedEntities);
+    }
+
+    /**
+     * {@code GET  /restricted-entities?after=:cursor&size=:size} : get a page of restrictedEntities using keyset pagination.
+     * <p>
+     * The next page is requested with the cursor returned in the {@code X-Next-Cursor} header, which is absent on the last page.
+     *
+     * @param after the cursor returned with the previous page, or nothing for the first page.
+     * @param size the maximum number of restrictedEntities to return.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the page of restrictedEntities in body,
+     * or with status {@code 400 (Bad Request)} if the cursor or the size is not valid.
+     */
+    @GetMapping(value = "/restricted-entities", params = "size")
+    public ResponseEntity<List<RestrictedEntity>> getRestrictedEntitiesPage(@RequestParam(required = false) String after, @RequestParam int size) {
+        log.debug("REST request to get a page of RestrictedEntities after : {}", after);
+        if (size < 1 || size > MAX_PAGE_SIZE) {
+            throw new BadRequestAlertException("Page size must be between 1 and " + MAX_PAGE_SIZE, ENTITY_NAME, "pagesizeinvalid");
+        }
+        Long afterId;
+        try {
+            afterId = KeysetPaginationUtil.decodeCursor(after);
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestAlertException("Invalid cursor", ENTITY_NAME, "cursorinvalid");
+        }
+        Slice<RestrictedEntity> slice = restrictedEntityQueryService.findAllAfter(afterId, size);
+        List<RestrictedEntity> content = slice.getContent();
+        Long lastId = slice.hasNext() ? content.get(content.size() - 1).getId() : null;
+        HttpHeaders headers = KeysetPaginationUtil.generateKeysetPaginationHttpHeaders(ServletUriComponentsBuilder.fromCurrentRequest(), lastId, size);
+        return ResponseEntity.ok().headers(headers).body(content);
+    }
+
+    /**
+     * {@code GET  /restricted-entities?ids=:ids} : get several restrictedEntities by id.
+     *
+     * @param ids the ids of the restrictedEntities to retrieve.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body one result per requested id, in request order,
+     * each result flagging whether the restrictedEntity was found, or with status {@code 400 (Bad Request)} if there are too many ids.
+     */
+    @GetMapping(value = "/restricted-entities", params = "ids")
+    public ResponseEntity<List<RestrictedEntityLookupVM>> getRestrictedEntities(@RequestParam List<Long> ids) {
+        log.debug("REST request to get RestrictedEntities : {}", ids);
+        validateBulkSelection(ids, null, null);
+        Map<Long, RestrictedEntity> restrictedEntities = restrictedEntityQueryService.findAllById(ids);
+        List<RestrictedEntityLookupVM> results = ids.stream()
+            .map(id -> restrictedEntities.containsKey(id)
+                ? RestrictedEntityLookupVM.found(restrictedEntities.get(id))
+                : RestrictedEntityLookupVM.notFound(id))
+            .collect(Collectors.toList());
+        return ResponseEntity.ok(results);
+    }
+
+    /**
+     * {@code GET  /restricted-entities/export} : export all the restrictedEntities as newline-delimited JSON.
+     * <p>
+     * Entities are read through a database cursor and written to the response one line at a time,
+     * so the whole table is never held in memory.
+     *
+     * @param response the response the entities are written to, with status {@code 200 (OK)}.
+     * @throws IOException if the response could not be written.
+     */
+    @GetMapping(value = "/restricted-entities/export", produces = APPLICATION_NDJSON_VALUE)
+    public void exportRestrictedEntities(HttpServletResponse response) throws IOException {
+        log.debug("REST request to export all RestrictedEntities");
+        response.setContentType(APPLICATION_NDJSON_VALUE);
+        try (JsonGenerator generator = exportWriter.getFactory().createGenerator(response.getOutputStream())) {
+            generator.setRootValueSeparator(null);
+            restrictedEntityService.streamAll(restrictedEntity -> {
+                try {
+                    exportWriter.writeValue(generator, restrictedEntity);
+                    generator.writeRaw('\n');
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * {@code GET  /restricted-entities/changes} : get the restrictedEntities inserted, updated or deleted after a cursor.
+     * <p>
+     * Start without a cursor and pass back the returned one; a page shorter than {@code limit} means the client is up
+     * to date. Deletions are kept for {@code application.change-feed.tombstone-retention}, a client further behind must
+     * start over without a cursor.
+     *
+     * @param cursor the cursor returned by the previous call, absent for the first call.
+     * @param limit the maximum number of changes to return.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the changes with the next cursor in body,
+     * or with status {@code 400 (Bad Request)} if the cursor or the limit is invalid,
+     * or with status {@code 410 (Gone)} if deletions made after the cursor were purged.
+     */
+    @GetMapping("/restricted-entities/changes")
+    public ResponseEntity<RestrictedEntityChangesVM> getRestrictedEntityChanges(@RequestParam(required = false) String cursor,
+                                                                                @RequestParam(defaultValue = "100") int limit) {
+        log.debug("REST request to get the changes of RestrictedEntities after : {}", cursor);
+        long[] watermarks;
+        try {
+            watermarks = KeysetPaginationUtil.decodeWatermarks(cursor);
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestAlertException("Invalid cursor", ENTITY_NAME, "cursorinvalid");
+        }
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new BadRequestAlertException("Limit must be between 1 and " + MAX_PAGE_SIZE, ENTITY_NAME, "pagesizeinvalid");
+        }
+        RestrictedEntityChangesDTO changes = restrictedEntityService.findChanges(watermarks, limit);
+        return ResponseEntity.ok().body(new RestrictedEntityChangesVM(KeysetPaginationUtil.encodeWatermarks(changes.getWatermarks()),
+            changes.getChanges()));
+    }
+
+    /**
+     * {@code GET  /restricted-entities/stream} : subscribe to the restrictedEntities created, updated or deleted from now on.
+     * <p>
+     * Each committed change is sent as a {@code change} server-sent event. A {@code resync} event means changes were
+     * dropped because the subscriber was too slow, and should be caught up through {@code /restricted-entities/changes}
+     * from the cursor of its last call, sharded or not.
+     *
+     * @return the {@link SseEmitter} the events are sent to.
+     */
+    @GetMapping(value = "/restricted-entities/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamRestrictedEntityChanges() {
+        log.debug("REST request to stream the changes of RestrictedEntities");
+        return restrictedEntityChangeStreamService.subscribe();
     }
 
     /**
      * {@code GET  /restricted-entities/:id} : get the "id" restrictedEntity.
+     * <p>
+     * The cached JSON of the restrictedEntity is written as is, and a conditional request is answered from its version
+     * only.
      *
      * @param id the id of the restrictedEntity to retrieve.
-     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body the restrictedEntity, or with status {@code 404 (Not Found)}.
+     * @param request the current request, used for the {@code If-None-Match} check.
+     * @param response the response the restrictedEntity is written to, with status {@code 200 (OK)},
+     * or with status {@code 304 (Not Modified)} if the restrictedEntity matches the {@code If-None-Match} header.
+     * @throws ResponseStatusException with status {@code 404 (Not Found)} if the restrictedEntity does not exist.
+     * @throws IOException if the response could not be written.
      */
     @GetMapping("/restricted-entities/{id}")
-    public ResponseEntity<RestrictedEntity> getRestrictedEntity(@PathVariable Long id) {
+    public void getRestrictedEntity(@PathVariable Long id, WebRequest request, HttpServletResponse response) throws IOException {
         log.debug("REST request to get RestrictedEntity : {}", id);
-        Optional<RestrictedEntity> restrictedEntity = restrictedEntityService.findOne(id);
-        return ResponseUtil.wrapOrNotFound(restrictedEntity);
+        if (restrictedEntityReplicaService.isServing()) {
+            RestrictedEntityMappedJson mappedJson = restrictedEntityReplicaService.findOne(id)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
+            if (!request.checkNotModified(ETagUtil.eTag(mappedJson.getVersion()))) {
+                ByteBuffer json = mappedJson.getJson();
+                writeJsonHeaders(response, mappedJson.getVersion(), json.remaining());
+                WritableByteChannel channel = Channels.newChannel(response.getOutputStream());
+                while (json.hasRemaining()) {
+                    channel.write(json);
+                }
+            }
+            return;
+        }
+        Optional<RestrictedEntityJson> json = restrictedEntityJsonService.findCached(id);
+        if (!json.isPresent()) {
+            if (request.getHeader(HttpHeaders.IF_NONE_MATCH) != null) {
+                Optional<Long> version = restrictedEntityQueryService.findVersion(id);
+                if (version.isPresent() && request.checkNotModified(ETagUtil.eTag(version.get()))) {
+                    return;
+                }
+            }
+            json = restrictedEntityJsonService.findOne(id);
+        }
+        RestrictedEntityJson restrictedEntityJson = json.orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
+        if (request.checkNotModified(ETagUtil.eTag(restrictedEntityJson.getVersion()))) {
+            return;
+        }
+        writeJsonHeaders(response, restrictedEntityJson.getVersion(), restrictedEntityJson.getJson().length);
+        response.getOutputStream().write(restrictedEntityJson.getJson());
+    }
+
+    private static void writeJsonHeaders(HttpServletResponse response, Long version, int contentLength) {
+        response.setStatus(HttpStatus.OK.value());
+        response.setContentType(MediaType.APPLICATION_JSON_UTF8_VALUE);
+        response.setHeader(HttpHeaders.ETAG, ETagUtil.eTag(version));
+        response.setContentLength(contentLength);
     }
 
     /**
@@ -114,4 +551,42 @@ public class RestrictedEntityResource {
         restrictedEntityService.delete(id);
         return ResponseEntity.noContent().headers(HeaderUtil.createEntityDeletionAlert(applicationName, false, ENTITY_NAME, id.toString())).build();
     }
+
+    /**
+     * {@code DELETE  /restricted-entities/bulk?ids=:ids} or {@code DELETE  /restricted-entities/bulk?fromId=:fromId&toId=:toId} :
+     * delete several restrictedEntities without reading them first.
+     *
+     * @param ids the ids of the restrictedEntities to delete.
+     * @param fromId the lower bound of the id range to delete, inclusive.
+     * @param toId the upper bound of the id range to delete, inclusive.
+     * @return the {@link ResponseEntity} with status {@code 204 (NO_CONTENT)} and the number of deleted restrictedEntities in the alert header,
+     * or with status {@code 400 (Bad Request)} if the selection is not valid.
+     */
+    @DeleteMapping("/restricted-entities/bulk")
+    public ResponseEntity<Void> deleteRestrictedEntities(@RequestParam(required = false) List<Long> ids,
+                                                         @RequestParam(required = false) Long fromId,
+                                                         @RequestParam(required = false) Long toId) {
+        log.debug("REST request to delete RestrictedEntities : ids={}, fromId={}, toId={}", ids, fromId, toId);
+        validateBulkSelection(ids, fromId, toId);
+        int deleted = ids != null
+            ? restrictedEntityService.deleteAll(ids)
+            : restrictedEntityService.deleteRange(fromId, toId);
+        return ResponseEntity.noContent()
+            .headers(HeaderUtil.createAlert(applicationName, deleted + " " + ENTITY_NAME + " deleted", String.valueOf(deleted)))
+            .build();
+    }
+
+    private void validateBulkSelection(List<Long> ids, Long fromId, Long toId) {
+        boolean byIds = ids != null;
+        boolean byRange = fromId != null || toId != null;
+        if (byIds == byRange) {
+            throw new BadRequestAlertException("Either ids or an id range must be given", ENTITY_NAME, "bulkselectioninvalid");
+        }
+        if (byIds && ids.size() > applicationProperties.getBulk().getMaxSize()) {
+            throw new BadRequestAlertException("A bulk request cannot contain more than " + applicationProperties.getBulk().getMaxSize() + " ids", ENTITY_NAME, "bulktoolarge");
+        }
+        if (byRange && (fromId == null || toId == null || fromId > toId)) {
+            throw new BadRequestAlertException("Invalid id range", ENTITY_NAME, "bulkrangeinvalid");
+        }
+    }
 }
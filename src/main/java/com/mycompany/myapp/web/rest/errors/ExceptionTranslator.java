@@ -1,9 +1,12 @@
 package com.mycompany.myapp.web.rest.errors;
 
+import com.mycompany.myapp.service.RestrictedEntityPartialSaveException;
+import com.mycompany.myapp.service.RestrictedEntityResyncRequiredException;
 import io.github.jhipster.web.util.HeaderUtil;
 
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.MethodArgumentNotValidException;
@@ -36,6 +39,7 @@ public class ExceptionTranslator implements ProblemHandling, SecurityAdviceTrait
     private static final String MESSAGE_KEY = "message";
     private static final String PATH_KEY = "path";
     private static final String VIOLATIONS_KEY = "violations";
+    private static final String COMMITTED_IDS_KEY = "committedIds";
 
     @Value("${jhipster.clientApp.name}")
     private String applicationName;
@@ -106,12 +110,45 @@ public class ExceptionTranslator implements ProblemHandling, SecurityAdviceTrait
         return create(ex, request, HeaderUtil.createFailureAlert(applicationName, false, ex.getEntityName(), ex.getErrorKey(), ex.getMessage()));
     }
 
+    /**
+     * Optimistic locking failures mean the entity no longer has the version the client based its update on,
+     * which is reported as a failed {@code If-Match} precondition; other concurrency failures are conflicts.
+     */
     @ExceptionHandler
     public ResponseEntity<Problem> handleConcurrencyFailure(ConcurrencyFailureException ex, NativeWebRequest request) {
         Problem problem = Problem.builder()
-            .withStatus(Status.CONFLICT)
+            .withStatus(ex instanceof OptimisticLockingFailureException ? Status.PRECONDITION_FAILED : Status.CONFLICT)
             .with(MESSAGE_KEY, ErrorConstants.ERR_CONCURRENCY_FAILURE)
             .build();
         return create(ex, problem, request);
     }
+
+    /**
+     * A change feed read from a watermark older than the retention of the tombstones cannot be served anymore: the
+     * client must read everything again.
+     */
+    @ExceptionHandler
+    public ResponseEntity<Problem> handleResyncRequired(RestrictedEntityResyncRequiredException ex, NativeWebRequest request) {
+        Problem problem = Problem.builder()
+            .withStatus(Status.GONE)
+            .withDetail(ex.getMessage())
+            .with(MESSAGE_KEY, ErrorConstants.ERR_RESYNC_REQUIRED)
+            .build();
+        return create(ex, problem, request);
+    }
+
+    /**
+     * A bulk save committed on some shards only: the ids of the saved entities are reported, so the client only sends
+     * the others again. The status is the one of the failure of the other shards.
+     */
+    @ExceptionHandler
+    public ResponseEntity<Problem> handlePartialSave(RestrictedEntityPartialSaveException ex, NativeWebRequest request) {
+        Problem problem = Problem.builder()
+            .withStatus(ex.getCause() instanceof ConcurrencyFailureException ? Status.CONFLICT : Status.INTERNAL_SERVER_ERROR)
+            .withDetail(ex.getMessage())
+            .with(MESSAGE_KEY, ErrorConstants.ERR_PARTIAL_SAVE)
+            .with(COMMITTED_IDS_KEY, ex.getCommittedIds())
+            .build();
+        return create(ex, problem, request);
+    }
 }
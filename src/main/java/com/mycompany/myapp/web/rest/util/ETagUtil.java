@@ -0,0 +1,74 @@
+package com.mycompany.myapp.web.rest.util;
+
+import com.mycompany.myapp.domain.RestrictedEntity;
+import org.springframework.util.DigestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+
+/**
+ * Utility class for computing and parsing strong HTTP entity tags.
+ * <p>
+ * Tags are derived from the optimistic locking version rather than from the serialized response body, so a request
+ * carrying a matching {@code If-None-Match} header can be answered with {@code 304 (Not Modified)} without running
+ * Jackson, and an {@code If-Match} header can be turned back into the version a client expects.
+ */
+public final class ETagUtil {
+
+    private static final char SEPARATOR = ':';
+
+    private ETagUtil() {
+    }
+
+    /**
+     * Compute the entity tag of a restrictedEntity version.
+     *
+     * @param version the version of the restrictedEntity.
+     * @return the quoted entity tag.
+     */
+    public static String eTag(Long version) {
+        return "\"" + version + "\"";
+    }
+
+    /**
+     * Compute the entity tag of a restrictedEntity.
+     *
+     * @param restrictedEntity the restrictedEntity.
+     * @return the quoted entity tag.
+     */
+    public static String eTag(RestrictedEntity restrictedEntity) {
+        return eTag(restrictedEntity.getVersion());
+    }
+
+    /**
+     * Compute the entity tag of a list of restrictedEntities, which changes whenever an element is added,
+     * removed, reordered or modified.
+     *
+     * @param restrictedEntities the restrictedEntities.
+     * @return the quoted entity tag.
+     */
+    public static String eTag(Collection<RestrictedEntity> restrictedEntities) {
+        StringBuilder state = new StringBuilder();
+        restrictedEntities.forEach(restrictedEntity -> state
+            .append(restrictedEntity.getId()).append(SEPARATOR)
+            .append(restrictedEntity.getVersion()).append(SEPARATOR));
+        return "\"" + DigestUtils.md5DigestAsHex(state.toString().getBytes(StandardCharsets.UTF_8)) + "\"";
+    }
+
+    /**
+     * Parse the version of a restrictedEntity out of an {@code If-Match} header.
+     * <p>
+     * Only a single strong entity tag, as produced by {@link #eTag(Long)}, is accepted.
+     *
+     * @param ifMatch the value of the {@code If-Match} header.
+     * @return the version.
+     * @throws IllegalArgumentException if the header is not a single strong entity tag.
+     */
+    public static Long parseVersion(String ifMatch) {
+        String eTag = ifMatch.trim();
+        if (eTag.length() < 3 || eTag.charAt(0) != '"' || eTag.charAt(eTag.length() - 1) != '"') {
+            throw new IllegalArgumentException("Invalid entity tag: " + ifMatch);
+        }
+        return Long.valueOf(eTag.substring(1, eTag.length() - 1));
+    }
+}
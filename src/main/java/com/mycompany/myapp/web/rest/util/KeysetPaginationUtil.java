@@ -0,0 +1,116 @@
+package com.mycompany.myapp.web.rest.util;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.stream.Collectors;
+
+/**
+ * Utility class for handling keyset (cursor based) pagination.
+ * <p>
+ * The cursor handed to clients is an opaque token wrapping the id of the last entity of a page,
+ * so the encoding can change without breaking clients that only echo it back. The cursor of the change feed wraps
+ * the change sequence watermark of every shard the same way.
+ */
+public final class KeysetPaginationUtil {
+
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
+    private static final String CURSOR_PREFIX = "id:";
+
+    private static final String WATERMARKS_PREFIX = "changes:";
+
+    private KeysetPaginationUtil() {
+    }
+
+    /**
+     * Encode the id of the last entity of a page into an opaque cursor.
+     *
+     * @param id the id of the last entity of the page.
+     * @return the cursor.
+     */
+    public static String encodeCursor(Long id) {
+        return Base64.getUrlEncoder().withoutPadding()
+            .encodeToString((CURSOR_PREFIX + id).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decode a cursor produced by {@link #encodeCursor(Long)}.
+     *
+     * @param cursor the cursor, may be {@code null} for the first page.
+     * @return the id of the last entity of the previous page, or {@code null} if no cursor was given.
+     * @throws IllegalArgumentException if the cursor is malformed.
+     */
+    public static Long decodeCursor(String cursor) {
+        if (cursor == null || cursor.isEmpty()) {
+            return null;
+        }
+        String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        if (!decoded.startsWith(CURSOR_PREFIX)) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor);
+        }
+        return Long.valueOf(decoded.substring(CURSOR_PREFIX.length()));
+    }
+
+    /**
+     * Encode the change sequence watermarks of the shards into an opaque cursor.
+     *
+     * @param watermarks the watermark of every shard, in the order of the shards.
+     * @return the cursor.
+     */
+    public static String encodeWatermarks(long[] watermarks) {
+        String joined = Arrays.stream(watermarks).mapToObj(Long::toString).collect(Collectors.joining(","));
+        return Base64.getUrlEncoder().withoutPadding()
+            .encodeToString((WATERMARKS_PREFIX + joined).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decode a cursor produced by {@link #encodeWatermarks(long[])}.
+     *
+     * @param cursor the cursor, may be {@code null} for the first page.
+     * @return the watermark of every shard, or {@code null} if no cursor was given.
+     * @throws IllegalArgumentException if the cursor is malformed.
+     */
+    public static long[] decodeWatermarks(String cursor) {
+        if (cursor == null || cursor.isEmpty()) {
+            return null;
+        }
+        String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        if (!decoded.startsWith(WATERMARKS_PREFIX)) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor);
+        }
+        long[] watermarks = Arrays.stream(decoded.substring(WATERMARKS_PREFIX.length()).split(",", -1))
+            .mapToLong(Long::parseLong)
+            .toArray();
+        if (Arrays.stream(watermarks).anyMatch(watermark -> watermark < 0)) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor);
+        }
+        return watermarks;
+    }
+
+    /**
+     * Generate the pagination headers for a keyset page: the {@code X-Next-Cursor} header and a
+     * {@code Link} header pointing to the next page, both omitted on the last page.
+     *
+     * @param uriBuilder the builder of the current request URI.
+     * @param lastId the id of the last entity of the page, or {@code null} if there is no next page.
+     * @param size the page size.
+     * @return the {@link HttpHeaders}.
+     */
+    public static HttpHeaders generateKeysetPaginationHttpHeaders(UriComponentsBuilder uriBuilder, Long lastId, int size) {
+        HttpHeaders headers = new HttpHeaders();
+        if (lastId != null) {
+            String cursor = encodeCursor(lastId);
+            headers.add(NEXT_CURSOR_HEADER, cursor);
+            String next = uriBuilder
+                .replaceQueryParam("after", cursor)
+                .replaceQueryParam("size", size)
+                .toUriString();
+            headers.add(HttpHeaders.LINK, "<" + next + ">; rel=\"next\"");
+        }
+        return headers;
+    }
+}
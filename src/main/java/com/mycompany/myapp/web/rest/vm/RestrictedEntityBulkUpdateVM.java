@@ -0,0 +1,61 @@
+package com.mycompany.myapp.web.rest.vm;
+
+import java.util.List;
+
+/**
+ * View Model object for updating several restrictedEntities at once.
+ * <p>
+ * The entities to update are selected either by a list of ids or by an inclusive id range.
+ */
+public class RestrictedEntityBulkUpdateVM {
+
+    private List<Long> ids;
+
+    private Long fromId;
+
+    private Long toId;
+
+    private String myField;
+
+    public List<Long> getIds() {
+        return ids;
+    }
+
+    public void setIds(List<Long> ids) {
+        this.ids = ids;
+    }
+
+    public Long getFromId() {
+        return fromId;
+    }
+
+    public void setFromId(Long fromId) {
+        this.fromId = fromId;
+    }
+
+    public Long getToId() {
+        return toId;
+    }
+
+    public void setToId(Long toId) {
+        this.toId = toId;
+    }
+
+    public String getMyField() {
+        return myField;
+    }
+
+    public void setMyField(String myField) {
+        this.myField = myField;
+    }
+
+    @Override
+    public String toString() {
+        return "RestrictedEntityBulkUpdateVM{" +
+            "ids=" + ids +
+            ", fromId=" + fromId +
+            ", toId=" + toId +
+            ", myField='" + myField + "'" +
+            "}";
+    }
+}
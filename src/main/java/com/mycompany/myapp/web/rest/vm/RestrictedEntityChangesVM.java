@@ -0,0 +1,39 @@
+package com.mycompany.myapp.web.rest.vm;
+
+import com.mycompany.myapp.service.dto.RestrictedEntityChangeDTO;
+
+import java.util.List;
+
+/**
+ * View Model object for a page of the restrictedEntity change feed.
+ * <p>
+ * {@code cursor} is the value to pass as {@code cursor} on the next call; it is unchanged when there are no
+ * new changes.
+ */
+public class RestrictedEntityChangesVM {
+
+    private final String cursor;
+
+    private final List<RestrictedEntityChangeDTO> changes;
+
+    public RestrictedEntityChangesVM(String cursor, List<RestrictedEntityChangeDTO> changes) {
+        this.cursor = cursor;
+        this.changes = changes;
+    }
+
+    public String getCursor() {
+        return cursor;
+    }
+
+    public List<RestrictedEntityChangeDTO> getChanges() {
+        return changes;
+    }
+
+    @Override
+    public String toString() {
+        return "RestrictedEntityChangesVM{" +
+            "cursor='" + cursor + "'" +
+            ", changes=" + changes.size() +
+            "}";
+    }
+}
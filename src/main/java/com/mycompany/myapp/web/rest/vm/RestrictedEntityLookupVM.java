@@ -0,0 +1,53 @@
+package com.mycompany.myapp.web.rest.vm;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.mycompany.myapp.domain.RestrictedEntity;
+
+/**
+ * View Model object for one result of a multi-get of restrictedEntities.
+ * <p>
+ * An id that does not exist is returned with {@code found} set to {@code false} and no restrictedEntity.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class RestrictedEntityLookupVM {
+
+    private final Long id;
+
+    private final boolean found;
+
+    private final RestrictedEntity restrictedEntity;
+
+    private RestrictedEntityLookupVM(Long id, boolean found, RestrictedEntity restrictedEntity) {
+        this.id = id;
+        this.found = found;
+        this.restrictedEntity = restrictedEntity;
+    }
+
+    public static RestrictedEntityLookupVM found(RestrictedEntity restrictedEntity) {
+        return new RestrictedEntityLookupVM(restrictedEntity.getId(), true, restrictedEntity);
+    }
+
+    public static RestrictedEntityLookupVM notFound(Long id) {
+        return new RestrictedEntityLookupVM(id, false, null);
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public boolean isFound() {
+        return found;
+    }
+
+    public RestrictedEntity getRestrictedEntity() {
+        return restrictedEntity;
+    }
+
+    @Override
+    public String toString() {
+        return "RestrictedEntityLookupVM{" +
+            "id=" + id +
+            ", found=" + found +
+            "}";
+    }
+}
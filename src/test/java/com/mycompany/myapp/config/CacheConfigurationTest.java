@@ -0,0 +1,194 @@
+package com.mycompany.myapp.config;
+
+import com.mycompany.myapp.domain.RestrictedEntity;
+import com.mycompany.myapp.repository.RestrictedEntityRepository;
+import io.github.jhipster.config.JHipsterProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.ehcache.config.CacheRuntimeConfiguration;
+import org.ehcache.config.ResourceType;
+import org.ehcache.jsr107.Eh107Configuration;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.boot.autoconfigure.cache.JCacheManagerCustomizer;
+
+import javax.cache.Cache;
+import javax.cache.CacheManager;
+import java.nio.file.Files;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Unit tests for the {@link CacheConfiguration} class.
+ */
+public class CacheConfigurationTest {
+
+    private static final String CACHE_NAME = RestrictedEntity.class.getName();
+
+    private JHipsterProperties jHipsterProperties;
+
+    private ApplicationProperties applicationProperties;
+
+    private MeterRegistry meterRegistry;
+
+    @BeforeEach
+    public void setup() {
+        jHipsterProperties = new JHipsterProperties();
+        jHipsterProperties.getCache().getEhcache().setMaxEntries(10);
+        applicationProperties = new ApplicationProperties();
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @Test
+    public void testHeapOnlyByDefault() {
+        try (CacheManager cacheManager = createCacheManager()) {
+            Cache<Object, Object> cache = cacheManager.getCache(CACHE_NAME);
+            cache.put(1L, "value");
+            assertThat(cache.get(1L)).isEqualTo("value");
+        }
+    }
+
+    @Test
+    public void testPersistentDiskTierSurvivesRestart() throws Exception {
+        ApplicationProperties.Cache.Ehcache tiers = applicationProperties.getCache().getEhcache();
+        tiers.setOffHeapSize(1024 * 1024);
+        tiers.setDiskSize(10 * 1024 * 1024);
+        tiers.setDiskPath(Files.createTempDirectory("ehcache").toString());
+        ApplicationProperties.Cache.Region region = new ApplicationProperties.Cache.Region();
+        region.setDiskPersistent(true);
+        applicationProperties.getCache().getRegions().put(CACHE_NAME, region);
+
+        try (CacheManager cacheManager = createCacheManager()) {
+            Cache<Object, Object> cache = cacheManager.getCache(CACHE_NAME);
+            // more entries than the heap tier holds
+            for (long i = 0; i < 100; i++) {
+                cache.put(i, "value" + i);
+            }
+            assertThat(cache.get(0L)).isEqualTo("value0");
+        }
+
+        try (CacheManager cacheManager = createCacheManager()) {
+            Cache<Object, Object> cache = cacheManager.getCache(CACHE_NAME);
+            for (long i = 0; i < 100; i++) {
+                assertThat(cache.get(i)).isEqualTo("value" + i);
+            }
+        }
+    }
+
+    @Test
+    public void testJsonCacheDiskTierIsEmptiedOnRestart() throws Exception {
+        ApplicationProperties.Cache.Ehcache tiers = applicationProperties.getCache().getEhcache();
+        tiers.setOffHeapSize(1024 * 1024);
+        tiers.setDiskSize(10 * 1024 * 1024);
+        tiers.setDiskPath(Files.createTempDirectory("ehcache").toString());
+
+        try (CacheManager cacheManager = createCacheManager()) {
+            cacheManager.getCache(RestrictedEntityRepository.JSON_CACHE).put(1L, "value");
+        }
+
+        try (CacheManager cacheManager = createCacheManager()) {
+            assertThat(cacheManager.getCache(RestrictedEntityRepository.JSON_CACHE).get(1L)).isNull();
+        }
+    }
+
+    @Test
+    public void testPersistentNotFoundCacheIsRejected() {
+        ApplicationProperties.Cache.Region region = new ApplicationProperties.Cache.Region();
+        region.setDiskPersistent(true);
+        applicationProperties.getCache().getRegions().put(RestrictedEntityRepository.NOT_FOUND_CACHE, region);
+
+        assertThatThrownBy(this::createCacheManager).isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    public void testRegionConfiguration() {
+        ApplicationProperties.Cache.Region region = new ApplicationProperties.Cache.Region();
+        region.setMaxEntries(5L);
+        region.setTimeToIdle(Duration.ofMinutes(5));
+        applicationProperties.getCache().getRegions().put(CACHE_NAME, region);
+
+        try (CacheManager cacheManager = createCacheManager()) {
+            assertThat(heapEntries(cacheManager.getCache(CACHE_NAME))).isEqualTo(5);
+        }
+    }
+
+    @Test
+    public void testUnconfiguredRegionUsesDefaults() {
+        applicationProperties.getCache().getRegions().put("otherRegion", new ApplicationProperties.Cache.Region());
+
+        try (CacheManager cacheManager = createCacheManager()) {
+            assertThat(heapEntries(cacheManager.getCache(CACHE_NAME))).isEqualTo(10);
+        }
+    }
+
+    @Test
+    public void testRegionWithBothExpiriesIsRejected() {
+        ApplicationProperties.Cache.Region region = new ApplicationProperties.Cache.Region();
+        region.setTimeToLive(Duration.ofMinutes(5));
+        region.setTimeToIdle(Duration.ofMinutes(5));
+        applicationProperties.getCache().getRegions().put(CACHE_NAME, region);
+
+        assertThatThrownBy(this::createCacheManager).isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    public void testJitteredTimeToIdleIsRejected() {
+        ApplicationProperties.Cache.Region region = new ApplicationProperties.Cache.Region();
+        region.setTimeToIdle(Duration.ofMinutes(5));
+        region.setTimeToLiveJitter(0.1);
+        applicationProperties.getCache().getRegions().put(CACHE_NAME, region);
+
+        assertThatThrownBy(this::createCacheManager).isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    public void testEarlyRefreshRegion() {
+        applicationProperties.getCache().getEhcache().setTimeToLiveJitter(0.1);
+        applicationProperties.getCache().getEhcache().setEarlyRefreshBeta(1);
+
+        try (CacheManager cacheManager = createCacheManager()) {
+            Cache<Object, Object> cache = cacheManager.getCache(CACHE_NAME);
+            cache.put(1L, "value");
+            assertThat(cache.get(1L)).isEqualTo("value");
+        }
+    }
+
+    @Test
+    public void testRegionMetrics() {
+        applicationProperties.getCache().getEhcache().setOffHeapSize(1024 * 1024);
+
+        try (CacheManager cacheManager = createCacheManager()) {
+            Cache<Object, Object> cache = cacheManager.getCache(CACHE_NAME);
+            cache.put(1L, "value");
+            cache.get(1L);
+            cache.get(2L);
+
+            assertThat(meterRegistry.get("cache.region.gets").tag("region", CACHE_NAME).tag("result", "hit").functionCounter().count())
+                .isEqualTo(1);
+            assertThat(meterRegistry.get("cache.region.gets").tag("region", CACHE_NAME).tag("result", "miss").functionCounter().count())
+                .isEqualTo(1);
+            assertThat(meterRegistry.get("cache.region.puts").tag("region", CACHE_NAME).functionCounter().count()).isEqualTo(1);
+            assertThat(meterRegistry.get("cache.region.tier.entries").tag("region", CACHE_NAME).tag("tier", "OffHeap").gauge().value())
+                .isEqualTo(1);
+            assertThat(meterRegistry.get("cache.region.tier.occupied.bytes").tag("region", CACHE_NAME).tag("tier", "OffHeap").gauge().value())
+                .isPositive();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static long heapEntries(Cache<Object, Object> cache) {
+        Eh107Configuration<Object, Object> eh107Configuration = cache.getConfiguration(Eh107Configuration.class);
+        CacheRuntimeConfiguration<Object, Object> configuration = eh107Configuration.unwrap(CacheRuntimeConfiguration.class);
+        return configuration.getResourcePools().getPoolForResource(ResourceType.Core.HEAP).getSize();
+    }
+
+    private CacheManager createCacheManager() {
+        CacheConfiguration cacheConfiguration = new CacheConfiguration(jHipsterProperties, applicationProperties, meterRegistry);
+        StaticListableBeanFactory beanFactory = new StaticListableBeanFactory();
+        beanFactory.addBean("cacheManagerCustomizer", cacheConfiguration.cacheManagerCustomizer());
+        return cacheConfiguration.jCacheCacheManager(beanFactory.getBeanProvider(JCacheManagerCustomizer.class));
+    }
+}
@@ -0,0 +1,66 @@
+package com.mycompany.myapp.config.cache;
+
+import org.ehcache.Cache;
+import org.ehcache.CacheManager;
+import org.ehcache.config.builders.CacheConfigurationBuilder;
+import org.ehcache.config.builders.CacheManagerBuilder;
+import org.ehcache.config.builders.ResourcePoolsBuilder;
+import org.ehcache.config.units.EntryUnit;
+import org.ehcache.config.units.MemoryUnit;
+import org.ehcache.impl.serialization.PlainJavaSerializer;
+import org.ehcache.spi.serialization.Serializer;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static com.mycompany.myapp.config.cache.HibernateCacheEntrySerializerTest.cacheEntry;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Times off-heap puts and gets with the {@link HibernateCacheEntrySerializer} and with Java serialization.
+ * <p>
+ * Not part of the unit tests, run it with {@code ./mvnw test -Pdev,benchmark}.
+ */
+@Tag("benchmark")
+public class HibernateCacheEntrySerializerBenchmark {
+
+    private static final int COMPRESSION_THRESHOLD = 1024;
+
+    private static final int WARMUP_ENTRIES = 5_000;
+
+    private static final int BENCHMARK_ENTRIES = 20_000;
+
+    private final Logger log = LoggerFactory.getLogger(HibernateCacheEntrySerializerBenchmark.class);
+
+    @Test
+    public void benchmarkAgainstJavaSerialization() {
+        Serializer<Object> compactSerializer = new HibernateCacheEntrySerializer(getClass().getClassLoader(), COMPRESSION_THRESHOLD);
+        Serializer<Object> javaSerializer = new PlainJavaSerializer<>(getClass().getClassLoader());
+
+        benchmarkOffHeap(compactSerializer, WARMUP_ENTRIES);
+        benchmarkOffHeap(javaSerializer, WARMUP_ENTRIES);
+        log.info("Off-heap put/get, compact: {}", benchmarkOffHeap(compactSerializer, BENCHMARK_ENTRIES));
+        log.info("Off-heap put/get, java: {}", benchmarkOffHeap(javaSerializer, BENCHMARK_ENTRIES));
+    }
+
+    private static String benchmarkOffHeap(Serializer<Object> valueSerializer, int entries) {
+        try (CacheManager cacheManager = CacheManagerBuilder.newCacheManagerBuilder().build(true)) {
+            Cache<Long, Object> cache = cacheManager.createCache("benchmark",
+                CacheConfigurationBuilder.newCacheConfigurationBuilder(Long.class, Object.class,
+                    ResourcePoolsBuilder.newResourcePoolsBuilder().heap(1, EntryUnit.ENTRIES).offheap(64, MemoryUnit.MB))
+                    .withValueSerializer(valueSerializer));
+            long start = System.nanoTime();
+            for (long id = 0; id < entries; id++) {
+                cache.put(id, cacheEntry(id, "AAAAAAAAAA"));
+            }
+            long put = System.nanoTime() - start;
+            start = System.nanoTime();
+            for (long id = 0; id < entries; id++) {
+                assertThat(cache.get(id)).isNotNull();
+            }
+            long get = System.nanoTime() - start;
+            return String.format("%d ns/put, %d ns/get", put / entries, get / entries);
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.mycompany.myapp.config.cache;
+
+import com.mycompany.myapp.domain.RestrictedEntity;
+import org.ehcache.impl.serialization.PlainJavaSerializer;
+import org.hibernate.cache.spi.entry.StandardCacheEntryImpl;
+import org.junit.jupiter.api.Test;
+
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Unit tests for the {@link HibernateCacheEntrySerializer} class.
+ *
+ * @see HibernateCacheEntrySerializerBenchmark
+ */
+public class HibernateCacheEntrySerializerTest {
+
+    private static final int COMPRESSION_THRESHOLD = 1024;
+
+    private final HibernateCacheEntrySerializer serializer =
+        new HibernateCacheEntrySerializer(getClass().getClassLoader(), COMPRESSION_THRESHOLD);
+
+    @Test
+    public void testCacheEntryRoundTrip() throws Exception {
+        StandardCacheEntryImpl cacheEntry = cacheEntry(42L, "AAAAAAAAAA");
+
+        StandardCacheEntryImpl read = (StandardCacheEntryImpl) serializer.read(serializer.serialize(cacheEntry));
+
+        assertThat(read.getSubclass()).isEqualTo(RestrictedEntity.class.getName());
+        assertThat(read.getVersion()).isEqualTo(3L);
+        assertThat(read.getDisassembledState()).containsExactly(42L, "AAAAAAAAAA", 3L);
+    }
+
+    @Test
+    public void testNullAndNegativeValues() throws Exception {
+        StandardCacheEntryImpl cacheEntry = HibernateCacheEntrySerializer.newCacheEntry(
+            new Serializable[]{null, -1L, Integer.MIN_VALUE, true, "é"}, RestrictedEntity.class.getName(), null);
+
+        StandardCacheEntryImpl read = (StandardCacheEntryImpl) serializer.read(serializer.serialize(cacheEntry));
+
+        assertThat(read.getVersion()).isNull();
+        assertThat(read.getDisassembledState()).containsExactly(null, -1L, Integer.MIN_VALUE, true, "é");
+    }
+
+    @Test
+    public void testLargeStringIsCompressed() throws Exception {
+        String myField = String.join("", Collections.nCopies(500, "ABCDEFGH"));
+        StandardCacheEntryImpl cacheEntry = cacheEntry(1L, myField);
+
+        ByteBuffer serialized = serializer.serialize(cacheEntry);
+        assertThat(serialized.remaining()).isLessThan(myField.length() / 10);
+
+        StandardCacheEntryImpl read = (StandardCacheEntryImpl) serializer.read(serialized);
+        assertThat(read.getDisassembledState()[1]).isEqualTo(myField);
+    }
+
+    @Test
+    public void testOtherValuesUseJavaSerialization() throws Exception {
+        assertThat(serializer.read(serializer.serialize("value"))).isEqualTo("value");
+    }
+
+    @Test
+    public void testEntryIsSmallerThanWithJavaSerialization() throws Exception {
+        StandardCacheEntryImpl cacheEntry = cacheEntry(123_456L, "AAAAAAAAAA");
+
+        int compactBytes = serializer.serialize(cacheEntry).remaining();
+        int javaBytes = new PlainJavaSerializer<>(getClass().getClassLoader()).serialize(cacheEntry).remaining();
+
+        assertThat(compactBytes).isLessThan(javaBytes / 4);
+    }
+
+    static StandardCacheEntryImpl cacheEntry(long changeSeq, String myField) {
+        return HibernateCacheEntrySerializer.newCacheEntry(
+            new Serializable[]{changeSeq, myField, 3L}, RestrictedEntity.class.getName(), 3L);
+    }
+}
@@ -0,0 +1,92 @@
+package com.mycompany.myapp.config.cache;
+
+import org.ehcache.Cache;
+import org.ehcache.CacheManager;
+import org.ehcache.config.builders.CacheConfigurationBuilder;
+import org.ehcache.config.builders.CacheEventListenerConfigurationBuilder;
+import org.ehcache.config.builders.CacheManagerBuilder;
+import org.ehcache.config.builders.ResourcePoolsBuilder;
+import org.ehcache.event.EventType;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Unit tests for the {@link JitteredExpiryPolicy} class.
+ */
+public class JitteredExpiryPolicyTest {
+
+    private static final Duration TIME_TO_LIVE = Duration.ofMinutes(10);
+
+    @Test
+    public void testTimeToLiveIsJittered() {
+        JitteredExpiryPolicy expiryPolicy = new JitteredExpiryPolicy(TIME_TO_LIVE, 0.2, 0);
+
+        for (long i = 0; i < 1000; i++) {
+            assertThat(expiryPolicy.getExpiryForCreation(i, "value"))
+                .isBetween(Duration.ofMinutes(8), TIME_TO_LIVE);
+            assertThat(expiryPolicy.getExpiryForUpdate(i, () -> "value", "newValue"))
+                .isBetween(Duration.ofMinutes(8), TIME_TO_LIVE);
+        }
+        assertThat(expiryPolicy.getExpiryForAccess(1L, () -> "value")).isNull();
+    }
+
+    @Test
+    public void testExpiriesAreNotTrackedWithoutEarlyRefresh() {
+        JitteredExpiryPolicy expiryPolicy = new JitteredExpiryPolicy(TIME_TO_LIVE, 0.2, 0);
+        expiryPolicy.getExpiryForCreation(1L, "value");
+
+        assertThat(expiryPolicy.isEarlyRefreshEnabled()).isFalse();
+        assertThat(expiryPolicy.trackedEntries()).isZero();
+        assertThat(expiryPolicy.shouldRefresh(1L, Long.MAX_VALUE)).isFalse();
+    }
+
+    @Test
+    public void testEntriesAreRefreshedCloseToTheirExpiry() {
+        JitteredExpiryPolicy expiryPolicy = new JitteredExpiryPolicy(TIME_TO_LIVE, 0, 1);
+        expiryPolicy.getExpiryForCreation(1L, "value");
+
+        // A refresh taking a millisecond almost never starts ten minutes ahead
+        assertThat(expiryPolicy.shouldRefresh(1L, Duration.ofMillis(1).toNanos())).isFalse();
+        // A refresh taking longer than the time-to-live always starts
+        assertThat(expiryPolicy.shouldRefresh(1L, Duration.ofDays(1).toNanos())).isTrue();
+        // Unknown entries are left alone
+        assertThat(expiryPolicy.shouldRefresh(2L, Duration.ofDays(1).toNanos())).isFalse();
+    }
+
+    @Test
+    public void testRemovedEntriesAreForgotten() {
+        JitteredExpiryPolicy expiryPolicy = new JitteredExpiryPolicy(TIME_TO_LIVE, 0.1, 1);
+        try (CacheManager cacheManager = CacheManagerBuilder.newCacheManagerBuilder()
+            .withCache("test", CacheConfigurationBuilder.newCacheConfigurationBuilder(Long.class, String.class,
+                ResourcePoolsBuilder.heap(2))
+                .withExpiry(expiryPolicy)
+                .add(CacheEventListenerConfigurationBuilder
+                    .newEventListenerConfiguration(expiryPolicy, EventType.EVICTED, EventType.EXPIRED, EventType.REMOVED)
+                    .unordered().synchronous()))
+            .build(true)) {
+            Cache<Long, String> cache = cacheManager.getCache("test", Long.class, String.class);
+            cache.put(1L, "value1");
+            cache.put(2L, "value2");
+            assertThat(expiryPolicy.trackedEntries()).isEqualTo(2);
+
+            cache.remove(1L);
+            assertThat(expiryPolicy.trackedEntries()).isEqualTo(1);
+
+            // more entries than the heap holds
+            for (long i = 3; i < 10; i++) {
+                cache.put(i, "value" + i);
+            }
+            assertThat(expiryPolicy.trackedEntries()).isLessThanOrEqualTo(2);
+        }
+    }
+
+    @Test
+    public void testInvalidSettingsAreRejected() {
+        assertThatThrownBy(() -> new JitteredExpiryPolicy(TIME_TO_LIVE, 1, 0)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new JitteredExpiryPolicy(TIME_TO_LIVE, 0, -1)).isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,135 @@
+package com.mycompany.myapp.config.datasource;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for the {@link ReadReplicaRoutingDataSource} class.
+ */
+public class ReadReplicaRoutingDataSourceTest {
+
+    private final Connection primaryConnection = mock(Connection.class);
+
+    private final Connection firstReplicaConnection = mock(Connection.class);
+
+    private final Connection secondReplicaConnection = mock(Connection.class);
+
+    private final DataSource firstReplica = mock(DataSource.class);
+
+    private MeterRegistry meterRegistry;
+
+    private ReadReplicaRoutingDataSource routingDataSource;
+
+    @BeforeEach
+    public void setup() throws SQLException {
+        DataSource primary = mock(DataSource.class);
+        DataSource secondReplica = mock(DataSource.class);
+        when(primary.getConnection()).thenReturn(primaryConnection);
+        when(firstReplica.getConnection()).thenReturn(firstReplicaConnection);
+        when(secondReplica.getConnection()).thenReturn(secondReplicaConnection);
+        when(firstReplicaConnection.isValid(anyInt())).thenReturn(true);
+        Map<String, DataSource> replicas = new LinkedHashMap<>();
+        replicas.put("first", firstReplica);
+        replicas.put("second", secondReplica);
+        meterRegistry = new SimpleMeterRegistry();
+        routingDataSource = new ReadReplicaRoutingDataSource(primary, replicas, Duration.ofMinutes(1), meterRegistry);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        SecurityContextHolder.clearContext();
+    }
+
+    private double routes(String pool, String reason) {
+        return meterRegistry.get("datasource.routes").tag("pool", pool).tag("reason", reason).counter().count();
+    }
+
+    @Test
+    public void testWritesUseThePrimary() throws SQLException {
+        assertThat(routingDataSource.getConnection()).isSameAs(primaryConnection);
+        assertThat(routes(ReadReplicaRoutingDataSource.PRIMARY, "write")).isEqualTo(1);
+    }
+
+    @Test
+    public void testConnectionsWithCredentialsAreRouted() throws SQLException {
+        Connection connection = mock(Connection.class);
+        when(firstReplica.getConnection("reader", "secret")).thenReturn(connection);
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        assertThat(routingDataSource.getConnection("reader", "secret")).isSameAs(connection);
+        assertThat(routes("first", "read")).isEqualTo(1);
+    }
+
+    @Test
+    public void testReadsAreBalancedAcrossReplicas() throws SQLException {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        assertThat(routingDataSource.getConnection()).isSameAs(firstReplicaConnection);
+        assertThat(routingDataSource.getConnection()).isSameAs(secondReplicaConnection);
+        assertThat(routingDataSource.getConnection()).isSameAs(firstReplicaConnection);
+        assertThat(routes("first", "read")).isEqualTo(2);
+        assertThat(routes("second", "read")).isEqualTo(1);
+        assertThat(meterRegistry.get("datasource.connection.acquire").tag("pool", "first").timer().count()).isEqualTo(2);
+    }
+
+    @Test
+    public void testUnhealthyReplicasAreSkipped() throws SQLException {
+        when(firstReplica.getConnection()).thenThrow(new SQLException("Connection refused"));
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        assertThat(routingDataSource.getConnection()).isSameAs(secondReplicaConnection);
+        assertThat(routingDataSource.isHealthy("first")).isFalse();
+        assertThat(routingDataSource.getConnection()).isSameAs(secondReplicaConnection);
+
+        routingDataSource.checkReplicas();
+        assertThat(routingDataSource.isHealthy("first")).isFalse();
+        assertThat(routingDataSource.isHealthy("second")).isFalse();
+        assertThat(routingDataSource.getConnection()).isSameAs(primaryConnection);
+        assertThat(routes(ReadReplicaRoutingDataSource.PRIMARY, "replica.unavailable")).isEqualTo(1);
+
+        doReturn(firstReplicaConnection).when(firstReplica).getConnection();
+        routingDataSource.checkReplicas();
+        assertThat(routingDataSource.isHealthy("first")).isTrue();
+        assertThat(routingDataSource.getConnection()).isSameAs(firstReplicaConnection);
+    }
+
+    @Test
+    public void testReadsFollowingAWriteUseThePrimary() throws SQLException {
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken("user", "user"));
+        TransactionSynchronizationManager.initSynchronization();
+        routingDataSource.getConnection();
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        TransactionSynchronizationManager.clearSynchronization();
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        assertThat(routingDataSource.getConnection()).isSameAs(primaryConnection);
+        assertThat(routes(ReadReplicaRoutingDataSource.PRIMARY, "read.your.writes")).isEqualTo(1);
+
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken("other", "other"));
+        assertThat(routingDataSource.getConnection()).isSameAs(firstReplicaConnection);
+    }
+}
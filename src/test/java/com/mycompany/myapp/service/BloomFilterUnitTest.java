@@ -0,0 +1,60 @@
+package com.mycompany.myapp.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Test class for the {@link BloomFilter} utility class.
+ */
+public class BloomFilterUnitTest {
+
+    private static final int INSERTIONS = 100_000;
+
+    private static final double FALSE_POSITIVE_RATE = 0.01;
+
+    @Test
+    public void testPutValuesAreAlwaysFound() {
+        BloomFilter bloomFilter = new BloomFilter(INSERTIONS, FALSE_POSITIVE_RATE);
+        assertThat(bloomFilter.put(3)).isTrue();
+        for (long id = 2; id <= INSERTIONS; id++) {
+            bloomFilter.put(id * 3);
+        }
+        for (long id = 1; id <= INSERTIONS; id++) {
+            assertThat(bloomFilter.mightContain(id * 3)).isTrue();
+        }
+        assertThat(bloomFilter.put(3)).isFalse();
+    }
+
+    @Test
+    public void testFalsePositiveRateOnceFull() {
+        BloomFilter bloomFilter = new BloomFilter(INSERTIONS, FALSE_POSITIVE_RATE);
+        for (long id = 1; id <= INSERTIONS; id++) {
+            bloomFilter.put(id);
+        }
+        int falsePositives = 0;
+        for (long id = INSERTIONS + 1; id <= 2 * INSERTIONS; id++) {
+            if (bloomFilter.mightContain(id)) {
+                falsePositives++;
+            }
+        }
+        assertThat((double) falsePositives / INSERTIONS).isLessThan(FALSE_POSITIVE_RATE * 1.5);
+        assertThat(bloomFilter.expectedFalsePositiveRate()).isBetween(FALSE_POSITIVE_RATE / 2, FALSE_POSITIVE_RATE * 1.5);
+    }
+
+    @Test
+    public void testEmptyFilterContainsNothing() {
+        BloomFilter bloomFilter = new BloomFilter(INSERTIONS, FALSE_POSITIVE_RATE);
+        for (long id = 1; id <= 1000; id++) {
+            assertThat(bloomFilter.mightContain(id)).isFalse();
+        }
+        assertThat(bloomFilter.expectedFalsePositiveRate()).isZero();
+    }
+
+    @Test
+    public void testInvalidSettingsAreRejected() {
+        assertThatThrownBy(() -> new BloomFilter(0, FALSE_POSITIVE_RATE)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new BloomFilter(INSERTIONS, 1)).isInstanceOf(IllegalArgumentException.class);
+    }
+}
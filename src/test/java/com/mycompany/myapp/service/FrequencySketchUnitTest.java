@@ -0,0 +1,50 @@
+package com.mycompany.myapp.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Test class for the {@link FrequencySketch} utility class.
+ */
+public class FrequencySketchUnitTest {
+
+    @Test
+    public void testEstimatesNeverUnderCount() {
+        FrequencySketch frequencySketch = new FrequencySketch(1000);
+        for (long id = 0; id < 1000; id++) {
+            for (int i = 0; i < id % 5; i++) {
+                frequencySketch.increment(id);
+            }
+        }
+        for (long id = 0; id < 1000; id++) {
+            assertThat(frequencySketch.estimate(id)).isGreaterThanOrEqualTo((int) (id % 5));
+        }
+    }
+
+    @Test
+    public void testHotValuesRankAboveColdOnes() {
+        FrequencySketch frequencySketch = new FrequencySketch(1000);
+        for (long id = 0; id < 1000; id++) {
+            frequencySketch.increment(id);
+        }
+        for (int i = 0; i < 50; i++) {
+            frequencySketch.increment(42);
+        }
+        assertThat(frequencySketch.estimate(42)).isGreaterThan(frequencySketch.estimate(43));
+    }
+
+    @Test
+    public void testCountsAgeOverTime() {
+        FrequencySketch frequencySketch = new FrequencySketch(16);
+        for (int i = 0; i < 100; i++) {
+            frequencySketch.increment(1);
+        }
+        int estimate = frequencySketch.estimate(1);
+        // A sample of ten times the width of the sketch halves every counter
+        for (long id = 2; id < 400; id++) {
+            frequencySketch.increment(id);
+        }
+        assertThat(frequencySketch.estimate(1)).isLessThan(estimate);
+    }
+}
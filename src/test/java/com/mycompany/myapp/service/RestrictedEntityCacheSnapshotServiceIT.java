@@ -0,0 +1,142 @@
+package com.mycompany.myapp.service;
+
+import com.mycompany.myapp.RestrictedMicroserviceApp;
+import com.mycompany.myapp.config.ApplicationProperties;
+import com.mycompany.myapp.config.SecurityBeanOverrideConfiguration;
+import com.mycompany.myapp.domain.RestrictedEntity;
+import com.mycompany.myapp.repository.RestrictedEntityRepository;
+import org.hibernate.cache.internal.DefaultCacheKeysFactory;
+import org.hibernate.cache.spi.entry.StandardCacheEntryImpl;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.persister.entity.EntityPersister;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.cache.Cache;
+import javax.cache.CacheManager;
+import javax.persistence.EntityManager;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Integration tests for the {@link RestrictedEntityCacheSnapshotService} service.
+ */
+@SpringBootTest(classes = {SecurityBeanOverrideConfiguration.class, RestrictedMicroserviceApp.class})
+public class RestrictedEntityCacheSnapshotServiceIT {
+
+    @Autowired
+    private RestrictedEntityCacheSnapshotService restrictedEntityCacheSnapshotService;
+
+    @Autowired
+    private RestrictedEntityRepository restrictedEntityRepository;
+
+    @Autowired
+    private ApplicationProperties applicationProperties;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private EntityManager em;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private Cache<Object, Object> cache;
+
+    private Path snapshotPath;
+
+    private final List<RestrictedEntity> restrictedEntities = new ArrayList<>();
+
+    @BeforeEach
+    public void setup() throws Exception {
+        cache = cacheManager.getCache(RestrictedEntity.class.getName());
+        snapshotPath = Files.createTempDirectory("cache-snapshot").resolve("snapshot.bin");
+        ApplicationProperties.Cache.Snapshot snapshot = applicationProperties.getCache().getSnapshot();
+        snapshot.setEnabled(true);
+        snapshot.setPath(snapshotPath.toString());
+        snapshot.setMaxEntries(2);
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        ApplicationProperties.Cache.Snapshot snapshot = applicationProperties.getCache().getSnapshot();
+        snapshot.setEnabled(false);
+        snapshot.setMaxEntries(new ApplicationProperties.Cache.Snapshot().getMaxEntries());
+        cache.clear();
+        restrictedEntityRepository.deleteAll(restrictedEntities);
+        Files.deleteIfExists(snapshotPath);
+    }
+
+    @Test
+    public void testSnapshotRestoresHottestUpToDateEntries() {
+        RestrictedEntity hot = createCachedEntity();
+        RestrictedEntity cold = createCachedEntity();
+        RestrictedEntity stale = createCachedEntity();
+        for (int i = 0; i < 5; i++) {
+            restrictedEntityCacheSnapshotService.recordAccess(hot.getId());
+            restrictedEntityCacheSnapshotService.recordAccess(stale.getId());
+        }
+        restrictedEntityCacheSnapshotService.recordAccess(cold.getId());
+        // Changed after the snapshot entry was cached
+        stale.setMyField("BBBBBBBBBB");
+        restrictedEntities.set(2, restrictedEntityRepository.saveAndFlush(stale));
+
+        restrictedEntityCacheSnapshotService.stop();
+        assertThat(snapshotPath).exists();
+        cache.clear();
+        restrictedEntityCacheSnapshotService.start();
+
+        assertThat(cache.containsKey(cacheKey(hot.getId()))).isTrue();
+        assertThat(cache.containsKey(cacheKey(cold.getId()))).isFalse();
+        assertThat(cache.containsKey(cacheKey(stale.getId()))).isFalse();
+    }
+
+    @Test
+    public void testCorruptSnapshotIsIgnored() throws Exception {
+        Files.write(snapshotPath, new byte[] {1, 2, 3});
+
+        restrictedEntityCacheSnapshotService.start();
+
+        assertThat(cache.iterator().hasNext()).isFalse();
+    }
+
+    /**
+     * Save a restrictedEntity and put its entry in the second-level cache region, as Hibernate would when reading it.
+     */
+    private RestrictedEntity createCachedEntity() {
+        RestrictedEntity restrictedEntity = restrictedEntityRepository.saveAndFlush(new RestrictedEntity().myField("AAAAAAAAAA"));
+        restrictedEntities.add(restrictedEntity);
+        new TransactionTemplate(transactionManager).execute(status -> {
+            SessionImplementor session = em.unwrap(SessionImplementor.class);
+            EntityPersister persister = persister();
+            RestrictedEntity loaded = em.find(RestrictedEntity.class, restrictedEntity.getId());
+            cache.put(cacheKey(restrictedEntity.getId()), new StandardCacheEntryImpl(persister.getPropertyValues(loaded),
+                persister, loaded.getVersion(), session, loaded));
+            return null;
+        });
+        return restrictedEntity;
+    }
+
+    private Object cacheKey(Long id) {
+        return DefaultCacheKeysFactory.staticCreateEntityKey(id, persister(), sessionFactory(), null);
+    }
+
+    private EntityPersister persister() {
+        return sessionFactory().getMetamodel().entityPersister(RestrictedEntity.class);
+    }
+
+    private SessionFactoryImplementor sessionFactory() {
+        return em.getEntityManagerFactory().unwrap(SessionFactoryImplementor.class);
+    }
+}
@@ -0,0 +1,90 @@
+package com.mycompany.myapp.service;
+
+import com.mycompany.myapp.RestrictedMicroserviceApp;
+import com.mycompany.myapp.config.ApplicationProperties;
+import com.mycompany.myapp.config.SecurityBeanOverrideConfiguration;
+import com.mycompany.myapp.domain.RestrictedEntity;
+import com.mycompany.myapp.repository.RestrictedEntityRepository;
+import com.mycompany.myapp.repository.RestrictedEntityShards;
+import com.mycompany.myapp.service.dto.RestrictedEntityJson;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.ehcache.core.config.DefaultConfiguration;
+import org.ehcache.jsr107.EhcacheCachingProvider;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import javax.cache.configuration.MutableConfiguration;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Integration tests for the {@link RestrictedEntityJsonService} service.
+ */
+@SpringBootTest(classes = {SecurityBeanOverrideConfiguration.class, RestrictedMicroserviceApp.class})
+public class RestrictedEntityJsonServiceIT {
+
+    @Autowired
+    private RestrictedEntityService restrictedEntityService;
+
+    @Autowired
+    private RestrictedEntityQueryService restrictedEntityQueryService;
+
+    @Autowired
+    private RestrictedEntityChangeFeed restrictedEntityChangeFeed;
+
+    @Autowired
+    private RestrictedEntityShards restrictedEntityShards;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private CacheManager cacheManager;
+
+    // Stands for another instance, which does not receive the change events of this one
+    private RestrictedEntityJsonService restrictedEntityJsonService;
+
+    private final List<Long> ids = new ArrayList<>();
+
+    @BeforeEach
+    public void setup() {
+        EhcacheCachingProvider provider = (EhcacheCachingProvider) Caching.getCachingProvider(EhcacheCachingProvider.class.getName());
+        cacheManager = provider.getCacheManager(URI.create("urn:restrictedEntityJsonServiceIT"),
+            new DefaultConfiguration(getClass().getClassLoader()));
+        cacheManager.createCache(RestrictedEntityRepository.JSON_CACHE, new MutableConfiguration<>().setStoreByValue(false));
+        restrictedEntityJsonService = new RestrictedEntityJsonService(restrictedEntityQueryService, restrictedEntityChangeFeed,
+            restrictedEntityShards, objectMapper, cacheManager, new ApplicationProperties());
+    }
+
+    @AfterEach
+    public void tearDown() {
+        cacheManager.close();
+        restrictedEntityService.deleteAll(ids);
+    }
+
+    @Test
+    public void evictChangesOfOtherInstances() {
+        RestrictedEntity restrictedEntity = restrictedEntityService.save(new RestrictedEntity().myField("AAAAAAAAAA"));
+        ids.add(restrictedEntity.getId());
+        restrictedEntityJsonService.sync();
+        assertThat(restrictedEntityJsonService.findOne(restrictedEntity.getId())).isPresent();
+        assertThat(restrictedEntityJsonService.findCached(restrictedEntity.getId())).map(RestrictedEntityJson::getVersion)
+            .hasValue(restrictedEntity.getVersion());
+
+        restrictedEntityService.updateAll(ids, "BBBBBBBBBB");
+        assertThat(restrictedEntityJsonService.findCached(restrictedEntity.getId())).isPresent();
+
+        restrictedEntityJsonService.sync();
+
+        assertThat(restrictedEntityJsonService.findCached(restrictedEntity.getId())).isEmpty();
+        assertThat(restrictedEntityJsonService.findOne(restrictedEntity.getId())).map(RestrictedEntityJson::getVersion)
+            .hasValue(restrictedEntity.getVersion() + 1);
+    }
+}
@@ -0,0 +1,129 @@
+package com.mycompany.myapp.service;
+
+import com.mycompany.myapp.service.dto.RestrictedEntityMappedJson;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Test class for the {@link RestrictedEntityMappedStore} utility class.
+ */
+public class RestrictedEntityMappedStoreUnitTest {
+
+    private static final int SEGMENT_SIZE = 256;
+
+    private Path directory;
+
+    @BeforeEach
+    public void setup() throws IOException {
+        directory = Files.createTempDirectory("mapped-store");
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(directory);
+    }
+
+    private static ByteBuffer json(String json) {
+        return ByteBuffer.wrap(json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String json(RestrictedEntityMappedJson mappedJson) {
+        ByteBuffer json = mappedJson.getJson();
+        byte[] bytes = new byte[json.remaining()];
+        json.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void testLastVersionIsRead() throws IOException {
+        try (RestrictedEntityMappedStore store = RestrictedEntityMappedStore.open(directory.resolve("store.bin"), SEGMENT_SIZE)) {
+            store.append(1, 0, json("{\"id\":1}"));
+            store.append(2, 0, json("{\"id\":2}"));
+            store.append(1, 1, json("{\"id\":1,\"version\":1}"));
+
+            assertThat(store.size()).isEqualTo(2);
+            assertThat(store.version(1)).isEqualTo(1);
+            assertThat(store.version(3)).isEqualTo(-1);
+            assertThat(json(store.get(1))).isEqualTo("{\"id\":1,\"version\":1}");
+            assertThat(store.get(1).getVersion()).isEqualTo(1);
+            assertThat(store.get(3)).isNull();
+        }
+    }
+
+    @Test
+    public void testRecordsDoNotSpanSegments() throws IOException {
+        try (RestrictedEntityMappedStore store = RestrictedEntityMappedStore.open(directory.resolve("store.bin"), SEGMENT_SIZE)) {
+            String padding = new String(new char[100]).replace('\0', 'x');
+            for (long id = 1; id <= 20; id++) {
+                store.append(id, 0, json(id + padding));
+            }
+
+            assertThat(store.usedBytes()).isGreaterThan(SEGMENT_SIZE * 10L);
+            for (long id = 1; id <= 20; id++) {
+                assertThat(json(store.get(id))).isEqualTo(id + padding);
+            }
+            assertThatThrownBy(() -> store.append(21, 0, ByteBuffer.allocate(SEGMENT_SIZE)))
+                .isInstanceOf(IllegalArgumentException.class);
+        }
+    }
+
+    @Test
+    public void testCommittedRecordsAreReadAfterReopening() throws IOException {
+        Path path = directory.resolve("store.bin");
+        try (RestrictedEntityMappedStore store = RestrictedEntityMappedStore.open(path, SEGMENT_SIZE)) {
+            for (long id = 1; id <= 20; id++) {
+                store.append(id, 0, json("{\"id\":" + id + "}"));
+            }
+            store.remove(5);
+            store.commit(42);
+            store.append(21, 0, json("{\"id\":21}"));
+        }
+
+        try (RestrictedEntityMappedStore store = RestrictedEntityMappedStore.open(path, SEGMENT_SIZE)) {
+            assertThat(store.getWatermark()).isEqualTo(42);
+            assertThat(store.size()).isEqualTo(19);
+            assertThat(store.get(5)).isNull();
+            assertThat(store.get(21)).isNull();
+            assertThat(json(store.get(20))).isEqualTo("{\"id\":20}");
+        }
+
+        assertThatThrownBy(() -> RestrictedEntityMappedStore.open(path, SEGMENT_SIZE * 2)).isInstanceOf(IOException.class);
+    }
+
+    @Test
+    public void testCompactionKeepsLastVersions() throws IOException {
+        try (RestrictedEntityMappedStore store = RestrictedEntityMappedStore.open(directory.resolve("store.bin"), SEGMENT_SIZE)) {
+            for (long version = 0; version < 10; version++) {
+                store.append(1, version, json("{\"version\":" + version + "}"));
+                store.append(2, version, json("{\"version\":" + version + "}"));
+            }
+            store.remove(2);
+            store.commit(42);
+
+            try (RestrictedEntityMappedStore compacted = store.compactTo(directory.resolve("compacted.bin"))) {
+                assertThat(compacted.usedBytes()).isLessThan(store.usedBytes());
+                assertThat(compacted.liveBytes()).isEqualTo(store.liveBytes());
+                assertThat(compacted.size()).isEqualTo(1);
+                assertThat(compacted.getWatermark()).isEqualTo(42);
+                assertThat(json(compacted.get(1))).isEqualTo("{\"version\":9}");
+                assertThat(compacted.get(2)).isNull();
+            }
+        }
+    }
+}
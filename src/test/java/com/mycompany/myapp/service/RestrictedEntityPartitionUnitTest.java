@@ -0,0 +1,64 @@
+package com.mycompany.myapp.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Test class for the {@link RestrictedEntityPartition} class.
+ */
+public class RestrictedEntityPartitionUnitTest {
+
+    private static final List<RestrictedEntityPartition> PARTITIONS = Arrays.asList(
+        new RestrictedEntityPartition("restricted_entity_p0", null, 1001L),
+        new RestrictedEntityPartition("restricted_entity_p1001", 1001L, 2001L),
+        new RestrictedEntityPartition("restricted_entity_p2001", 2001L, 3001L));
+
+    @Test
+    public void testParseRangeBounds() {
+        RestrictedEntityPartition first = RestrictedEntityPartition.parse("restricted_entity_p0",
+            "FOR VALUES FROM (MINVALUE) TO ('1001')");
+        assertThat(first.getName()).isEqualTo("restricted_entity_p0");
+        assertThat(first.getLower()).isNull();
+        assertThat(first.getUpper()).isEqualTo(1001L);
+
+        RestrictedEntityPartition next = RestrictedEntityPartition.parse("restricted_entity_p1001",
+            "FOR VALUES FROM ('1001') TO ('2001')");
+        assertThat(next.getLower()).isEqualTo(1001L);
+        assertThat(next.getUpper()).isEqualTo(2001L);
+        assertThat(next.contains(1000)).isFalse();
+        assertThat(next.contains(1001)).isTrue();
+        assertThat(next.contains(2001)).isFalse();
+
+        assertThat(RestrictedEntityPartition.parse("restricted_entity_default", "DEFAULT")).isNull();
+    }
+
+    @Test
+    public void testPartitionsAreCreatedAhead() {
+        assertThat(RestrictedEntityPartition.lowerBoundsToCreate(PARTITIONS, 1500, 1)).isEmpty();
+        assertThat(RestrictedEntityPartition.lowerBoundsToCreate(PARTITIONS, 1500, 2)).containsExactly(3001L);
+        assertThat(RestrictedEntityPartition.lowerBoundsToCreate(PARTITIONS, 2500, 2)).containsExactly(3001L, 4001L);
+    }
+
+    @Test
+    public void testMissingPartitionsAreCreatedUpToTheLastId() {
+        assertThat(RestrictedEntityPartition.lowerBoundsToCreate(PARTITIONS, 4500, 1)).containsExactly(3001L, 4001L, 5001L);
+    }
+
+    @Test
+    public void testNoPartitionIsCreatedWithoutABoundedOne() {
+        assertThat(RestrictedEntityPartition.lowerBoundsToCreate(PARTITIONS.subList(0, 1), 1500, 2)).isEmpty();
+    }
+
+    @Test
+    public void testOnlyPartitionsBelowThePreviousOneAreRetired() {
+        assertThat(RestrictedEntityPartition.retired(PARTITIONS, 1500)).isEmpty();
+        assertThat(RestrictedEntityPartition.retired(PARTITIONS, 2500).stream().map(RestrictedEntityPartition::getName)
+            .collect(Collectors.toList())).containsExactly("restricted_entity_p0");
+        assertThat(RestrictedEntityPartition.retired(PARTITIONS, 3500)).hasSize(2);
+    }
+}
@@ -0,0 +1,133 @@
+package com.mycompany.myapp.service;
+
+import com.mycompany.myapp.RestrictedMicroserviceApp;
+import com.mycompany.myapp.config.ApplicationProperties;
+import com.mycompany.myapp.config.SecurityBeanOverrideConfiguration;
+import com.mycompany.myapp.domain.RestrictedEntity;
+import com.mycompany.myapp.repository.RestrictedEntityRepository;
+import com.mycompany.myapp.service.dto.RestrictedEntityChangeEvent;
+import com.mycompany.myapp.service.dto.RestrictedEntityChangeEvent.Type;
+import com.mycompany.myapp.service.dto.RestrictedEntityProjectionCheckDTO;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Slice;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Integration tests for the {@link RestrictedEntityProjectionService} service.
+ */
+@SpringBootTest(classes = {SecurityBeanOverrideConfiguration.class, RestrictedMicroserviceApp.class})
+public class RestrictedEntityProjectionServiceIT {
+
+    @Autowired
+    private RestrictedEntityService restrictedEntityService;
+
+    @Autowired
+    private RestrictedEntityRepository restrictedEntityRepository;
+
+    @Autowired
+    private RestrictedEntityChangeFeed restrictedEntityChangeFeed;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private RestrictedEntityProjectionService restrictedEntityProjectionService;
+
+    private final List<Long> ids = new ArrayList<>();
+
+    @BeforeEach
+    public void setup() {
+        ApplicationProperties applicationProperties = new ApplicationProperties();
+        applicationProperties.getProjection().setEnabled(true);
+        restrictedEntityProjectionService = new RestrictedEntityProjectionService(restrictedEntityRepository,
+            restrictedEntityChangeFeed, transactionManager, applicationProperties, new SimpleMeterRegistry());
+    }
+
+    @AfterEach
+    public void tearDown() {
+        restrictedEntityService.deleteAll(ids);
+    }
+
+    private RestrictedEntity create(String myField) {
+        RestrictedEntity restrictedEntity = restrictedEntityService.save(new RestrictedEntity().myField(myField));
+        ids.add(restrictedEntity.getId());
+        return restrictedEntity;
+    }
+
+    @Test
+    public void buildAndServeProjection() {
+        RestrictedEntity first = create("AAAAAAAAAA");
+        RestrictedEntity second = create("BBBBBBBBBB");
+        assertThat(restrictedEntityProjectionService.isServing()).isFalse();
+
+        restrictedEntityProjectionService.start();
+
+        assertThat(restrictedEntityProjectionService.isServing()).isTrue();
+        assertThat(restrictedEntityProjectionService.findOne(first.getId())).hasValueSatisfying(restrictedEntity -> {
+            assertThat(restrictedEntity.getMyField()).isEqualTo("AAAAAAAAAA");
+            assertThat(restrictedEntity.getVersion()).isEqualTo(first.getVersion());
+        });
+        assertThat(restrictedEntityProjectionService.findOne(Long.MAX_VALUE)).isEmpty();
+        Slice<RestrictedEntity> slice = restrictedEntityProjectionService.findAllAfter(first.getId(), 1);
+        assertThat(slice.getContent()).extracting(RestrictedEntity::getId).containsExactly(second.getId());
+        Map<Long, RestrictedEntity> restrictedEntities = restrictedEntityProjectionService.findAllById(
+            Arrays.asList(first.getId(), second.getId(), Long.MAX_VALUE));
+        assertThat(restrictedEntities).containsOnlyKeys(first.getId(), second.getId());
+        assertThat(restrictedEntityProjectionService.findAll()).extracting(RestrictedEntity::getId)
+            .contains(first.getId(), second.getId());
+        assertThat(restrictedEntityProjectionService.check().isConsistent()).isTrue();
+    }
+
+    @Test
+    public void applyCommittedChanges() {
+        restrictedEntityProjectionService.start();
+        RestrictedEntity first = create("AAAAAAAAAA");
+        RestrictedEntity second = create("BBBBBBBBBB");
+        restrictedEntityProjectionService.onChange(RestrictedEntityChangeEvent.of(Type.CREATED, ids));
+        assertThat(restrictedEntityProjectionService.findOne(first.getId())).isPresent();
+
+        restrictedEntityService.updateRange(first.getId(), second.getId(), "CCCCCCCCCC");
+        restrictedEntityProjectionService.onChange(RestrictedEntityChangeEvent.ofRange(Type.UPDATED, first.getId(), second.getId()));
+        assertThat(restrictedEntityProjectionService.findOne(second.getId())).hasValueSatisfying(restrictedEntity ->
+            assertThat(restrictedEntity.getMyField()).isEqualTo("CCCCCCCCCC"));
+
+        restrictedEntityService.delete(first.getId());
+        restrictedEntityProjectionService.onChange(RestrictedEntityChangeEvent.of(Type.DELETED, first.getId()));
+        assertThat(restrictedEntityProjectionService.findOne(first.getId())).isEmpty();
+
+        RestrictedEntityProjectionCheckDTO check = restrictedEntityProjectionService.check();
+        assertThat(check.isConsistent()).isTrue();
+        assertThat(check.getProjected()).isEqualTo(check.getRows());
+    }
+
+    @Test
+    public void syncChangesOfOtherInstances() {
+        RestrictedEntity first = create("AAAAAAAAAA");
+        restrictedEntityProjectionService.start();
+        RestrictedEntity second = create("BBBBBBBBBB");
+        restrictedEntityService.updateAll(ids, "CCCCCCCCCC");
+        restrictedEntityService.delete(first.getId());
+
+        RestrictedEntityProjectionCheckDTO check = restrictedEntityProjectionService.check();
+        assertThat(check.getMissing()).isEqualTo(1);
+        assertThat(check.getExtra()).isEqualTo(1);
+
+        restrictedEntityProjectionService.sync();
+
+        assertThat(restrictedEntityProjectionService.findOne(first.getId())).isEmpty();
+        assertThat(restrictedEntityProjectionService.findOne(second.getId())).hasValueSatisfying(restrictedEntity ->
+            assertThat(restrictedEntity.getMyField()).isEqualTo("CCCCCCCCCC"));
+        assertThat(restrictedEntityProjectionService.check().isConsistent()).isTrue();
+    }
+}
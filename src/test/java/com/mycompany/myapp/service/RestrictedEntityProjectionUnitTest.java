@@ -0,0 +1,88 @@
+package com.mycompany.myapp.service;
+
+import com.mycompany.myapp.domain.RestrictedEntity;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Test class for the {@link RestrictedEntityProjection} utility class.
+ */
+public class RestrictedEntityProjectionUnitTest {
+
+    @Test
+    public void testRowsAreKeptSortedById() {
+        RestrictedEntityProjection projection = new RestrictedEntityProjection(0);
+        for (long id = 100; id > 0; id -= 2) {
+            projection.put(id, 0, "field" + id);
+        }
+        projection.put(51, 0, "field51");
+
+        assertThat(projection.size()).isEqualTo(51);
+        assertThat(projection.get(51).getMyField()).isEqualTo("field51");
+        assertThat(projection.get(53)).isNull();
+        assertThat(projection.getAfter(48, 3)).extracting(RestrictedEntity::getId).containsExactly(50L, 51L, 52L);
+        assertThat(projection.getAfter(100, 3)).isEmpty();
+        assertThat(projection.getAll()).extracting(RestrictedEntity::getId).isSorted();
+        assertThat(projection.getAll(Arrays.asList(2L, 3L, 4L))).containsOnlyKeys(2L, 4L);
+    }
+
+    @Test
+    public void testOlderVersionsAreIgnored() {
+        RestrictedEntityProjection projection = new RestrictedEntityProjection(0);
+        projection.put(1, 2, "new");
+        projection.put(1, 1, "old");
+
+        assertThat(projection.get(1).getMyField()).isEqualTo("new");
+        assertThat(projection.get(1).getVersion()).isEqualTo(2);
+    }
+
+    @Test
+    public void testDeletedRowsAreNotBroughtBack() {
+        RestrictedEntityProjection projection = new RestrictedEntityProjection(0);
+        projection.put(1, 0, "deleted");
+        projection.remove(1);
+        projection.put(1, 1, "late update");
+        projection.remove(2);
+        projection.put(2, 0, "late creation");
+
+        assertThat(projection.get(1)).isNull();
+        assertThat(projection.get(2)).isNull();
+        assertThat(projection.size()).isEqualTo(0);
+        assertThat(projection.getAll()).isEmpty();
+    }
+
+    @Test
+    public void testRemoveRange() {
+        RestrictedEntityProjection projection = new RestrictedEntityProjection(0);
+        for (long id = 1; id <= 10; id++) {
+            projection.put(id, 0, null);
+        }
+        projection.removeRange(3, 7);
+
+        assertThat(projection.getAll()).extracting(RestrictedEntity::getId).containsExactly(1L, 2L, 8L, 9L, 10L);
+        long[][] idsAndVersions = projection.idsAndVersions();
+        assertThat(idsAndVersions[0]).containsExactly(1L, 2L, 8L, 9L, 10L);
+        assertThat(idsAndVersions[1]).hasSize(5);
+    }
+
+    @Test
+    public void testCompactDropsTombstones() {
+        RestrictedEntityProjection projection = new RestrictedEntityProjection(0);
+        for (long id = 1; id <= 100; id++) {
+            projection.put(id, 0, "field" + id);
+        }
+        projection.removeRange(1, 10);
+        assertThat(projection.compact()).isFalse();
+
+        projection.removeRange(11, 50);
+        assertThat(projection.compact()).isTrue();
+
+        assertThat(projection.size()).isEqualTo(50);
+        assertThat(projection.get(10)).isNull();
+        assertThat(projection.get(51).getMyField()).isEqualTo("field51");
+        assertThat(projection.getAfter(0, 1)).extracting(RestrictedEntity::getId).containsExactly(51L);
+    }
+}
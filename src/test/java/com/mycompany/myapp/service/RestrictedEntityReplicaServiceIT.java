@@ -0,0 +1,154 @@
+package com.mycompany.myapp.service;
+
+import com.mycompany.myapp.RestrictedMicroserviceApp;
+import com.mycompany.myapp.config.ApplicationProperties;
+import com.mycompany.myapp.config.SecurityBeanOverrideConfiguration;
+import com.mycompany.myapp.domain.RestrictedEntity;
+import com.mycompany.myapp.domain.RestrictedEntityTombstone;
+import com.mycompany.myapp.repository.RestrictedEntityTombstoneRepository;
+import com.mycompany.myapp.service.dto.RestrictedEntityMappedJson;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Integration tests for the {@link RestrictedEntityReplicaService} service.
+ */
+@SpringBootTest(classes = {SecurityBeanOverrideConfiguration.class, RestrictedMicroserviceApp.class})
+public class RestrictedEntityReplicaServiceIT {
+
+    @Autowired
+    private RestrictedEntityService restrictedEntityService;
+
+    @Autowired
+    private RestrictedEntityChangeFeed restrictedEntityChangeFeed;
+
+    @Autowired
+    private RestrictedEntityTombstoneRepository restrictedEntityTombstoneRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private ApplicationProperties applicationProperties;
+
+    private Path replicaPath;
+
+    private final List<Long> ids = new ArrayList<>();
+
+    @BeforeEach
+    public void setup() throws Exception {
+        replicaPath = Files.createTempDirectory("replica").resolve("replica.bin");
+        applicationProperties = new ApplicationProperties();
+        applicationProperties.getReplica().setEnabled(true);
+        applicationProperties.getReplica().setPath(replicaPath.toString());
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        restrictedEntityService.deleteAll(ids);
+        Files.deleteIfExists(replicaPath);
+        Files.deleteIfExists(replicaPath.getParent());
+    }
+
+    private RestrictedEntityReplicaService newReplicaService() {
+        return new RestrictedEntityReplicaService(restrictedEntityChangeFeed, objectMapper, applicationProperties,
+            new SimpleMeterRegistry());
+    }
+
+    private RestrictedEntity create(String myField) {
+        RestrictedEntity restrictedEntity = restrictedEntityService.save(new RestrictedEntity().myField(myField));
+        ids.add(restrictedEntity.getId());
+        return restrictedEntity;
+    }
+
+    private RestrictedEntity read(RestrictedEntityReplicaService replicaService, Long id) throws Exception {
+        RestrictedEntityMappedJson mappedJson = replicaService.findOne(id).orElse(null);
+        assertThat(mappedJson).isNotNull();
+        ByteBuffer json = mappedJson.getJson();
+        byte[] bytes = new byte[json.remaining()];
+        json.get(bytes);
+        RestrictedEntity restrictedEntity = objectMapper.readValue(bytes, RestrictedEntity.class);
+        assertThat(restrictedEntity.getVersion()).isEqualTo(mappedJson.getVersion());
+        return restrictedEntity;
+    }
+
+    @Test
+    public void materializeAndSyncReplica() throws Exception {
+        RestrictedEntity first = create("AAAAAAAAAA");
+        RestrictedEntityReplicaService replicaService = newReplicaService();
+        assertThat(replicaService.isServing()).isFalse();
+
+        replicaService.start();
+
+        assertThat(replicaService.isServing()).isTrue();
+        assertThat(read(replicaService, first.getId()).getMyField()).isEqualTo("AAAAAAAAAA");
+        assertThat(replicaService.findOne(Long.MAX_VALUE)).isEmpty();
+
+        RestrictedEntity second = create("BBBBBBBBBB");
+        restrictedEntityService.updateAll(ids, "CCCCCCCCCC");
+        restrictedEntityService.delete(first.getId());
+        assertThat(replicaService.findOne(second.getId())).isEmpty();
+
+        replicaService.sync();
+
+        assertThat(replicaService.findOne(first.getId())).isEmpty();
+        assertThat(read(replicaService, second.getId()).getMyField()).isEqualTo("CCCCCCCCCC");
+    }
+
+    @Test
+    public void remapReplicaAfterRestart() throws Exception {
+        RestrictedEntity first = create("AAAAAAAAAA");
+        RestrictedEntityReplicaService replicaService = newReplicaService();
+        replicaService.start();
+        replicaService.stop();
+        RestrictedEntity second = create("BBBBBBBBBB");
+
+        RestrictedEntityReplicaService restartedReplicaService = newReplicaService();
+        restartedReplicaService.start();
+
+        assertThat(read(restartedReplicaService, first.getId()).getMyField()).isEqualTo("AAAAAAAAAA");
+        assertThat(read(restartedReplicaService, second.getId()).getMyField()).isEqualTo("BBBBBBBBBB");
+    }
+
+    @Test
+    public void rewriteReplicaAfterPurgedTombstones() throws Exception {
+        RestrictedEntity first = create("AAAAAAAAAA");
+        RestrictedEntity second = create("BBBBBBBBBB");
+        RestrictedEntityReplicaService replicaService = newReplicaService();
+        replicaService.start();
+        restrictedEntityService.delete(first.getId());
+
+        // Age the tombstone past its retention and purge it, so the deletion cannot be read after the watermark
+        RestrictedEntityTombstone tombstone = restrictedEntityTombstoneRepository.findById(first.getId()).get();
+        tombstone.setDeletedDate(Instant.now().minus(applicationProperties.getChangeFeed().getTombstoneRetention()).minusSeconds(60));
+        restrictedEntityTombstoneRepository.saveAndFlush(tombstone);
+        try {
+            restrictedEntityChangeFeed.purgeTombstones();
+
+            replicaService.sync();
+
+            assertThat(replicaService.findOne(first.getId())).isEmpty();
+            assertThat(read(replicaService, second.getId()).getMyField()).isEqualTo("BBBBBBBBBB");
+        } finally {
+            jdbcTemplate.update("update restricted_entity_tombstone_purge set purged_change_seq = 0");
+        }
+    }
+}
@@ -0,0 +1,208 @@
+package com.mycompany.myapp.service;
+
+import com.mycompany.myapp.RestrictedMicroserviceApp;
+import com.mycompany.myapp.config.SecurityBeanOverrideConfiguration;
+import com.mycompany.myapp.config.datasource.ShardRoutingDataSource;
+import com.mycompany.myapp.domain.RestrictedEntity;
+import com.mycompany.myapp.repository.RestrictedEntityShards;
+import com.mycompany.myapp.service.dto.RestrictedEntityChangeDTO;
+import com.mycompany.myapp.service.dto.RestrictedEntityChangesDTO;
+import org.ehcache.core.config.DefaultConfiguration;
+import org.ehcache.jsr107.EhcacheCachingProvider;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.cache.JCacheManagerCustomizer;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.data.domain.Slice;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Integration tests for the {@link RestrictedEntityService} service with rows sharded across several H2 databases.
+ */
+@SpringBootTest(classes = {SecurityBeanOverrideConfiguration.class, RestrictedMicroserviceApp.class,
+    RestrictedEntityServiceShardingIT.ShardingCacheConfiguration.class}, properties = {
+    "application.sharding.shards[0].url=jdbc:h2:mem:restrictedMicroserviceShard1;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+    "application.sharding.shards[1].url=jdbc:h2:mem:restrictedMicroserviceShard2;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE"
+})
+public class RestrictedEntityServiceShardingIT {
+
+    private static final int MAX_CHANGES = 1000;
+
+    /**
+     * Caches of their own for this application context, which would otherwise destroy and recreate those of the
+     * application context shared by the other tests.
+     */
+    @TestConfiguration
+    public static class ShardingCacheConfiguration {
+
+        @Bean
+        public CacheManager jCacheCacheManager(ObjectProvider<JCacheManagerCustomizer> cacheManagerCustomizers) {
+            EhcacheCachingProvider provider = (EhcacheCachingProvider) Caching.getCachingProvider(EhcacheCachingProvider.class.getName());
+            CacheManager cacheManager = provider.getCacheManager(URI.create("urn:restrictedMicroservice:sharding"),
+                new DefaultConfiguration(getClass().getClassLoader()));
+            cacheManagerCustomizers.orderedStream().forEach(customizer -> customizer.customize(cacheManager));
+            return cacheManager;
+        }
+    }
+
+    @Autowired
+    private RestrictedEntityService restrictedEntityService;
+
+    @Autowired
+    private RestrictedEntityShards restrictedEntityShards;
+
+    @Autowired
+    private ShardRoutingDataSource shardRoutingDataSource;
+
+    private final List<Long> ids = new ArrayList<>();
+
+    @AfterEach
+    public void tearDown() {
+        restrictedEntityService.deleteAll(ids);
+    }
+
+    private List<RestrictedEntity> createAll(String... myFields) {
+        List<RestrictedEntity> restrictedEntities = restrictedEntityService.saveAll(Arrays.stream(myFields)
+            .map(myField -> new RestrictedEntity().myField(myField))
+            .collect(Collectors.toList()));
+        restrictedEntities.forEach(restrictedEntity -> ids.add(restrictedEntity.getId()));
+        return restrictedEntities;
+    }
+
+    private int countOnShard(int shard, Long id) {
+        return new JdbcTemplate(shardRoutingDataSource.getShard(shard))
+            .queryForObject("select count(*) from restricted_entity where id = ?", Integer.class, id);
+    }
+
+    @Test
+    public void rowsAreSpreadAcrossShards() {
+        assertThat(restrictedEntityShards.getShardCount()).isEqualTo(3);
+
+        createAll("AAAAAAAAAA", "BBBBBBBBBB", "CCCCCCCCCC", "DDDDDDDDDD", "EEEEEEEEEE", "FFFFFFFFFF");
+        RestrictedEntity saved = restrictedEntityService.save(new RestrictedEntity().myField("GGGGGGGGGG"));
+        ids.add(saved.getId());
+
+        assertThat(ids.stream().map(restrictedEntityShards::shardOf).distinct()).hasSize(3);
+        for (Long id : ids) {
+            for (int shard = 0; shard < restrictedEntityShards.getShardCount(); shard++) {
+                assertThat(countOnShard(shard, id)).isEqualTo(shard == restrictedEntityShards.shardOf(id) ? 1 : 0);
+            }
+        }
+    }
+
+    @Test
+    public void singleIdOperationsUseTheShardOfTheId() {
+        List<RestrictedEntity> restrictedEntities = createAll("AAAAAAAAAA", "BBBBBBBBBB", "CCCCCCCCCC");
+
+        for (RestrictedEntity restrictedEntity : restrictedEntities) {
+            assertThat(restrictedEntityService.findOne(restrictedEntity.getId()).map(RestrictedEntity::getMyField))
+                .contains(restrictedEntity.getMyField());
+            assertThat(restrictedEntityService.findVersion(restrictedEntity.getId())).contains(0L);
+        }
+        RestrictedEntity updated = restrictedEntityService.findOne(restrictedEntities.get(1).getId()).get();
+        updated.setMyField("DDDDDDDDDD");
+        restrictedEntityService.save(updated);
+        restrictedEntityService.delete(restrictedEntities.get(2).getId());
+
+        assertThat(restrictedEntityService.findOne(restrictedEntities.get(1).getId()).map(RestrictedEntity::getVersion)).contains(1L);
+        assertThat(restrictedEntityService.findOne(restrictedEntities.get(2).getId())).isEmpty();
+        assertThat(restrictedEntityService.findAllById(ids).keySet())
+            .containsExactlyInAnyOrder(restrictedEntities.get(0).getId(), restrictedEntities.get(1).getId());
+    }
+
+    @Test
+    public void readsAreMergedInIdOrder() {
+        createAll("AAAAAAAAAA", "BBBBBBBBBB", "CCCCCCCCCC", "DDDDDDDDDD", "EEEEEEEEEE");
+
+        List<Long> pagedIds = new ArrayList<>();
+        Slice<RestrictedEntity> page;
+        Long afterId = ids.get(0) - 1;
+        do {
+            page = restrictedEntityService.findAllAfter(afterId, 2);
+            assertThat(page.getNumberOfElements()).isLessThanOrEqualTo(2);
+            page.forEach(restrictedEntity -> pagedIds.add(restrictedEntity.getId()));
+            afterId = page.hasContent() ? page.getContent().get(page.getNumberOfElements() - 1).getId() : afterId;
+        } while (page.hasNext());
+        assertThat(pagedIds).isSorted().containsSubsequence(ids);
+
+        assertThat(restrictedEntityService.findAll().stream().map(RestrictedEntity::getId).collect(Collectors.toList()))
+            .isSorted().containsSubsequence(ids);
+
+        List<Long> streamedIds = new ArrayList<>();
+        restrictedEntityService.streamAll(restrictedEntity -> streamedIds.add(restrictedEntity.getId()));
+        assertThat(streamedIds).isSorted().containsSubsequence(ids);
+    }
+
+    @Test
+    public void bulkOperationsFanOut() {
+        createAll("AAAAAAAAAA", "BBBBBBBBBB", "CCCCCCCCCC", "DDDDDDDDDD");
+
+        assertThat(restrictedEntityService.updateAll(ids, "EEEEEEEEEE")).isEqualTo(4);
+        assertThat(restrictedEntityService.updateRange(ids.get(0), ids.get(1), "FFFFFFFFFF")).isEqualTo(2);
+        Map<Long, RestrictedEntity> restrictedEntities = restrictedEntityService.findAllById(ids);
+        assertThat(restrictedEntities.get(ids.get(0)).getMyField()).isEqualTo("FFFFFFFFFF");
+        assertThat(restrictedEntities.get(ids.get(3)).getMyField()).isEqualTo("EEEEEEEEEE");
+
+        assertThat(restrictedEntityService.deleteRange(ids.get(0), ids.get(1))).isEqualTo(2);
+        assertThat(restrictedEntityService.deleteAll(ids)).isEqualTo(2);
+        assertThat(restrictedEntityService.findAllById(ids)).isEmpty();
+    }
+
+    @Test
+    public void partialSaveReportsTheSavedEntities() {
+        List<RestrictedEntity> restrictedEntities = Arrays.asList(new RestrictedEntity().myField("AAAAAAAAAA"),
+            new RestrictedEntity().myField(String.join("", Collections.nCopies(256, "B"))), new RestrictedEntity().myField("CCCCCCCCCC"));
+
+        // The second entity is too long for its column, so its shard fails while the other two commit
+        assertThatThrownBy(() -> restrictedEntityService.saveAll(restrictedEntities))
+            .isInstanceOfSatisfying(RestrictedEntityPartialSaveException.class, e -> assertThat(e.getCommittedIds())
+                .containsExactly(restrictedEntities.get(0).getId(), null, restrictedEntities.get(2).getId()));
+        ids.add(restrictedEntities.get(0).getId());
+        ids.add(restrictedEntities.get(2).getId());
+        assertThat(restrictedEntityService.findAllById(Arrays.asList(restrictedEntities.get(0).getId(),
+            restrictedEntities.get(1).getId(), restrictedEntities.get(2).getId())))
+            .containsOnlyKeys(restrictedEntities.get(0).getId(), restrictedEntities.get(2).getId());
+    }
+
+    @Test
+    public void readChangesOfEveryShard() {
+        RestrictedEntityChangesDTO before = restrictedEntityService.findChanges(null, MAX_CHANGES);
+        assertThat(before.getWatermarks()).hasSize(3);
+        createAll("AAAAAAAAAA", "BBBBBBBBBB", "CCCCCCCCCC", "DDDDDDDDDD");
+        restrictedEntityService.delete(ids.get(0));
+
+        // Each shard is read from its own watermark, one change of each in turn, the four rows being on the three shards
+        RestrictedEntityChangesDTO first = restrictedEntityService.findChanges(before.getWatermarks(), 2);
+        assertThat(first.getChanges()).extracting(change -> restrictedEntityShards.shardOf(change.getId()))
+            .containsExactlyInAnyOrder(0, 1);
+        RestrictedEntityChangesDTO rest = restrictedEntityService.findChanges(first.getWatermarks(), MAX_CHANGES);
+        List<RestrictedEntityChangeDTO> changes = new ArrayList<>(first.getChanges());
+        changes.addAll(rest.getChanges());
+        assertThat(changes).filteredOn(change -> !change.isDeleted()).extracting(RestrictedEntityChangeDTO::getId)
+            .containsExactlyInAnyOrderElementsOf(ids.subList(1, 4));
+        assertThat(changes).filteredOn(RestrictedEntityChangeDTO::isDeleted).extracting(RestrictedEntityChangeDTO::getId)
+            .containsExactly(ids.get(0));
+        assertThat(restrictedEntityService.findChanges(rest.getWatermarks(), MAX_CHANGES).getChanges()).isEmpty();
+
+        // Watermarks of another number of shards cannot be read from
+        assertThatThrownBy(() -> restrictedEntityService.findChanges(new long[]{0}, MAX_CHANGES))
+            .isInstanceOf(RestrictedEntityResyncRequiredException.class);
+    }
+}
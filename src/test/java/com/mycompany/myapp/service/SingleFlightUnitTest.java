@@ -0,0 +1,94 @@
+package com.mycompany.myapp.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Test class for the {@link SingleFlight} utility class.
+ */
+public class SingleFlightUnitTest {
+
+    private static final int CALLERS = 8;
+
+    @Test
+    public void testConcurrentCallsShareTheLeaderResult() throws Exception {
+        MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        SingleFlight<Long, String> singleFlight = new SingleFlight<>(meterRegistry, "test");
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(CALLERS);
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            results.add(executor.submit(() -> singleFlight.execute(1L, () -> {
+                loads.incrementAndGet();
+                loading.countDown();
+                await(release);
+                return "value";
+            })));
+            assertThat(loading.await(5, TimeUnit.SECONDS)).isTrue();
+            for (int i = 1; i < CALLERS; i++) {
+                results.add(executor.submit(() -> singleFlight.execute(1L, () -> {
+                    loads.incrementAndGet();
+                    return "other";
+                })));
+            }
+            while (coalescedCalls(meterRegistry) < CALLERS - 1) {
+                Thread.sleep(5);
+            }
+            release.countDown();
+
+            for (Future<String> result : results) {
+                assertThat(result.get(5, TimeUnit.SECONDS)).isEqualTo("value");
+            }
+            assertThat(loads.get()).isEqualTo(1);
+            assertThat(meterRegistry.get("test.calls").tag("role", "leader").counter().count()).isEqualTo(1);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testCompletedCallIsNotCached() {
+        SingleFlight<Long, Integer> singleFlight = new SingleFlight<>(new SimpleMeterRegistry(), "test");
+        AtomicInteger loads = new AtomicInteger();
+
+        assertThat(singleFlight.execute(1L, loads::incrementAndGet)).isEqualTo(1);
+        assertThat(singleFlight.execute(1L, loads::incrementAndGet)).isEqualTo(2);
+    }
+
+    @Test
+    public void testLeaderExceptionIsPropagated() {
+        SingleFlight<Long, String> singleFlight = new SingleFlight<>(new SimpleMeterRegistry(), "test");
+
+        assertThatThrownBy(() -> singleFlight.execute(1L, () -> {
+            throw new IllegalStateException("failed");
+        })).isInstanceOf(IllegalStateException.class);
+        assertThat(singleFlight.execute(1L, () -> "value")).isEqualTo("value");
+    }
+
+    private static double coalescedCalls(MeterRegistry meterRegistry) {
+        return meterRegistry.get("test.calls").tag("role", "coalesced").counter().count();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
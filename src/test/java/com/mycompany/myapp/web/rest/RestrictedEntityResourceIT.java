@@ -1,30 +1,55 @@
 package com.mycompany.myapp.web.rest;
 
 import com.mycompany.myapp.RestrictedMicroserviceApp;
+import com.mycompany.myapp.config.ApplicationProperties;
 import com.mycompany.myapp.config.SecurityBeanOverrideConfiguration;
 import com.mycompany.myapp.domain.RestrictedEntity;
+import com.mycompany.myapp.domain.RestrictedEntityTombstone;
 import com.mycompany.myapp.repository.RestrictedEntityRepository;
+import com.mycompany.myapp.repository.RestrictedEntityTombstoneRepository;
+import com.mycompany.myapp.service.RestrictedEntityChangeFeed;
+import com.mycompany.myapp.service.RestrictedEntityChangeStreamService;
+import com.mycompany.myapp.service.RestrictedEntityExistenceService;
+import com.mycompany.myapp.service.RestrictedEntityJsonService;
+import com.mycompany.myapp.service.RestrictedEntityQueryService;
+import com.mycompany.myapp.service.RestrictedEntityReplicaService;
 import com.mycompany.myapp.service.RestrictedEntityService;
+import com.mycompany.myapp.web.rest.errors.ErrorConstants;
 import com.mycompany.myapp.web.rest.errors.ExceptionTranslator;
+import com.mycompany.myapp.web.rest.util.ETagUtil;
+import com.mycompany.myapp.web.rest.util.KeysetPaginationUtil;
+import com.mycompany.myapp.web.rest.vm.RestrictedEntityBulkUpdateVM;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.MockitoAnnotations;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.data.web.PageableHandlerMethodArgumentResolver;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
+import org.springframework.http.converter.StringHttpMessageConverter;
 import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.validation.Validator;
 
 import javax.persistence.EntityManager;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
 import static com.mycompany.myapp.web.rest.TestUtil.createFormattingConversionService;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.hasItem;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -41,9 +66,36 @@ public class RestrictedEntityResourceIT {
     @Autowired
     private RestrictedEntityRepository restrictedEntityRepository;
 
+    @Autowired
+    private RestrictedEntityTombstoneRepository restrictedEntityTombstoneRepository;
+
     @Autowired
     private RestrictedEntityService restrictedEntityService;
 
+    @Autowired
+    private ApplicationProperties applicationProperties;
+
+    @Autowired
+    private RestrictedEntityChangeStreamService restrictedEntityChangeStreamService;
+
+    @Autowired
+    private RestrictedEntityChangeFeed restrictedEntityChangeFeed;
+
+    @Autowired
+    private RestrictedEntityExistenceService restrictedEntityExistenceService;
+
+    @Autowired
+    private RestrictedEntityJsonService restrictedEntityJsonService;
+
+    @Autowired
+    private RestrictedEntityQueryService restrictedEntityQueryService;
+
+    @Autowired
+    private RestrictedEntityReplicaService restrictedEntityReplicaService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
     @Autowired
     private MappingJackson2HttpMessageConverter jacksonMessageConverter;
 
@@ -66,7 +118,9 @@ public class RestrictedEntityResourceIT {
     @BeforeEach
     public void setup() {
         MockitoAnnotations.initMocks(this);
-        final RestrictedEntityResource restrictedEntityResource = new RestrictedEntityResource(restrictedEntityService);
+        final RestrictedEntityResource restrictedEntityResource = new RestrictedEntityResource(restrictedEntityService,
+            restrictedEntityQueryService, jacksonMessageConverter.getObjectMapper(), applicationProperties,
+            restrictedEntityChangeStreamService, restrictedEntityJsonService, restrictedEntityReplicaService);
         this.restRestrictedEntityMockMvc = MockMvcBuilders.standaloneSetup(restrictedEntityResource)
             .setCustomArgumentResolvers(pageableArgumentResolver)
             .setControllerAdvice(exceptionTranslator)
@@ -121,6 +175,47 @@ public class RestrictedEntityResourceIT {
         assertThat(testRestrictedEntity.getMyField()).isEqualTo(DEFAULT_MY_FIELD);
     }
 
+    @Test
+    @Transactional
+    public void createRestrictedEntities() throws Exception {
+        int databaseSizeBeforeCreate = restrictedEntityRepository.findAll().size();
+
+        // Create the RestrictedEntities in a single request
+        List<RestrictedEntity> restrictedEntities = new ArrayList<>();
+        restrictedEntities.add(createEntity(em));
+        restrictedEntities.add(createEntity(em));
+        restrictedEntities.add(createUpdatedEntity(em));
+        String ids = restRestrictedEntityMockMvc.perform(post("/api/restricted-entities/bulk")
+            .contentType(TestUtil.APPLICATION_JSON_UTF8)
+            .content(TestUtil.convertObjectToJsonBytes(restrictedEntities)))
+            .andExpect(status().isCreated())
+            .andExpect(jsonPath("$.length()").value(3))
+            .andReturn().getResponse().getContentAsString();
+
+        // Validate the RestrictedEntities in the database, ids are returned in request order
+        List<RestrictedEntity> restrictedEntityList = restrictedEntityRepository.findAll();
+        assertThat(restrictedEntityList).hasSize(databaseSizeBeforeCreate + 3);
+        Long[] createdIds = TestUtil.convertJsonBytesToObject(ids.getBytes(), Long[].class);
+        assertThat(createdIds).isSorted();
+        assertThat(restrictedEntityRepository.findById(createdIds[2]).get().getMyField()).isEqualTo(UPDATED_MY_FIELD);
+    }
+
+    @Test
+    @Transactional
+    public void createTooManyRestrictedEntities() throws Exception {
+        int databaseSizeBeforeCreate = restrictedEntityRepository.findAll().size();
+
+        // A bulk request larger than application.bulk.max-size must fail
+        List<RestrictedEntity> restrictedEntities = new ArrayList<>(
+            Collections.nCopies(applicationProperties.getBulk().getMaxSize() + 1, restrictedEntity));
+        restRestrictedEntityMockMvc.perform(post("/api/restricted-entities/bulk")
+            .contentType(TestUtil.APPLICATION_JSON_UTF8)
+            .content(TestUtil.convertObjectToJsonBytes(restrictedEntities)))
+            .andExpect(status().isBadRequest());
+
+        assertThat(restrictedEntityRepository.findAll()).hasSize(databaseSizeBeforeCreate);
+    }
+
     @Test
     @Transactional
     public void createRestrictedEntityWithExistingId() throws Exception {
@@ -155,6 +250,55 @@ public class RestrictedEntityResourceIT {
             .andExpect(jsonPath("$.[*].myField").value(hasItem(DEFAULT_MY_FIELD.toString())));
     }
     
+    @Test
+    @Transactional
+    public void getRestrictedEntitiesPage() throws Exception {
+        // Initialize the database
+        RestrictedEntity first = restrictedEntityRepository.saveAndFlush(createEntity(em));
+        RestrictedEntity second = restrictedEntityRepository.saveAndFlush(createEntity(em));
+        RestrictedEntity third = restrictedEntityRepository.saveAndFlush(createEntity(em));
+        String after = KeysetPaginationUtil.encodeCursor(first.getId() - 1);
+
+        // Get the first page and follow the returned cursor
+        String cursor = restRestrictedEntityMockMvc.perform(get("/api/restricted-entities?after={after}&size=2", after))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType(MediaType.APPLICATION_JSON_UTF8_VALUE))
+            .andExpect(jsonPath("$.[*].id").value(contains(first.getId().intValue(), second.getId().intValue())))
+            .andExpect(header().string(KeysetPaginationUtil.NEXT_CURSOR_HEADER, KeysetPaginationUtil.encodeCursor(second.getId())))
+            .andReturn().getResponse().getHeader(KeysetPaginationUtil.NEXT_CURSOR_HEADER);
+
+        restRestrictedEntityMockMvc.perform(get("/api/restricted-entities?after={after}&size=2", cursor))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.[*].id").value(contains(third.getId().intValue())))
+            .andExpect(header().doesNotExist(KeysetPaginationUtil.NEXT_CURSOR_HEADER));
+    }
+
+    @Test
+    @Transactional
+    public void getRestrictedEntitiesPageWithInvalidCursor() throws Exception {
+        restRestrictedEntityMockMvc.perform(get("/api/restricted-entities?after=invalid&size=2"))
+            .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @Transactional
+    public void exportRestrictedEntities() throws Exception {
+        // Initialize the database
+        restrictedEntityRepository.saveAndFlush(restrictedEntity);
+        restrictedEntityRepository.saveAndFlush(createUpdatedEntity(em));
+        int databaseSize = restrictedEntityRepository.findAll().size();
+
+        // Export the restrictedEntities, one JSON document per line
+        String export = restRestrictedEntityMockMvc.perform(get("/api/restricted-entities/export"))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType("application/x-ndjson"))
+            .andReturn().getResponse().getContentAsString();
+
+        String[] lines = export.split("\n");
+        assertThat(lines).hasSize(databaseSize);
+        assertThat(lines[lines.length - 1]).contains("\"myField\":\"" + UPDATED_MY_FIELD + "\"");
+    }
+
     @Test
     @Transactional
     public void getRestrictedEntity() throws Exception {
@@ -169,6 +313,68 @@ public class RestrictedEntityResourceIT {
             .andExpect(jsonPath("$.myField").value(DEFAULT_MY_FIELD.toString()));
     }
 
+    @Test
+    @Transactional
+    public void getRestrictedEntitiesByIds() throws Exception {
+        // Initialize the database
+        RestrictedEntity first = restrictedEntityRepository.saveAndFlush(createEntity(em));
+        RestrictedEntity second = restrictedEntityRepository.saveAndFlush(createUpdatedEntity(em));
+
+        // Get the restrictedEntities in request order, with a marker for the missing one
+        restRestrictedEntityMockMvc.perform(get("/api/restricted-entities?ids={second},{missing},{first}",
+            second.getId(), Long.MAX_VALUE, first.getId()))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType(MediaType.APPLICATION_JSON_UTF8_VALUE))
+            .andExpect(jsonPath("$.[*].id").value(contains(second.getId().intValue(), Long.MAX_VALUE, first.getId().intValue())))
+            .andExpect(jsonPath("$.[*].found").value(contains(true, false, true)))
+            .andExpect(jsonPath("$.[0].restrictedEntity.myField").value(UPDATED_MY_FIELD))
+            .andExpect(jsonPath("$.[1].restrictedEntity").doesNotExist())
+            .andExpect(jsonPath("$.[2].restrictedEntity.myField").value(DEFAULT_MY_FIELD));
+    }
+
+    @Test
+    @Transactional
+    public void getRestrictedEntityNotModified() throws Exception {
+        // Initialize the database
+        restrictedEntityRepository.saveAndFlush(restrictedEntity);
+
+        // Get the restrictedEntity and its entity tag
+        String eTag = restRestrictedEntityMockMvc.perform(get("/api/restricted-entities/{id}", restrictedEntity.getId()))
+            .andExpect(status().isOk())
+            .andExpect(header().exists(HttpHeaders.ETAG))
+            .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        // A conditional request with the same entity tag gets no body
+        restRestrictedEntityMockMvc.perform(get("/api/restricted-entities/{id}", restrictedEntity.getId())
+            .header(HttpHeaders.IF_NONE_MATCH, eTag))
+            .andExpect(status().isNotModified())
+            .andExpect(header().string(HttpHeaders.ETAG, eTag))
+            .andExpect(content().string(""));
+
+        // The entity tag changes with the restrictedEntity
+        restrictedEntity.setMyField(UPDATED_MY_FIELD);
+        restrictedEntityRepository.saveAndFlush(restrictedEntity);
+        restRestrictedEntityMockMvc.perform(get("/api/restricted-entities/{id}", restrictedEntity.getId())
+            .header(HttpHeaders.IF_NONE_MATCH, eTag))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.myField").value(UPDATED_MY_FIELD));
+    }
+
+    @Test
+    @Transactional
+    public void getAllRestrictedEntitiesNotModified() throws Exception {
+        // Initialize the database
+        restrictedEntityRepository.saveAndFlush(restrictedEntity);
+
+        String eTag = restRestrictedEntityMockMvc.perform(get("/api/restricted-entities"))
+            .andExpect(status().isOk())
+            .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        restRestrictedEntityMockMvc.perform(get("/api/restricted-entities")
+            .header(HttpHeaders.IF_NONE_MATCH, eTag))
+            .andExpect(status().isNotModified());
+    }
+
     @Test
     @Transactional
     public void getNonExistingRestrictedEntity() throws Exception {
@@ -177,6 +383,45 @@ public class RestrictedEntityResourceIT {
             .andExpect(status().isNotFound());
     }
 
+    @Test
+    @Transactional
+    public void getRestrictedEntityFromReplica() throws Exception {
+        // Initialize the database
+        restrictedEntityRepository.saveAndFlush(restrictedEntity);
+
+        Path replicaPath = Files.createTempDirectory("replica").resolve("replica.bin");
+        ApplicationProperties replicaProperties = new ApplicationProperties();
+        replicaProperties.getReplica().setEnabled(true);
+        replicaProperties.getReplica().setPath(replicaPath.toString());
+        RestrictedEntityReplicaService replicaService = new RestrictedEntityReplicaService(restrictedEntityChangeFeed,
+            jacksonMessageConverter.getObjectMapper(), replicaProperties, new SimpleMeterRegistry());
+        try {
+            replicaService.start();
+            MockMvc restRestrictedEntityReplicaMockMvc = MockMvcBuilders.standaloneSetup(new RestrictedEntityResource(restrictedEntityService,
+                restrictedEntityQueryService, jacksonMessageConverter.getObjectMapper(), applicationProperties,
+                restrictedEntityChangeStreamService, restrictedEntityJsonService, replicaService))
+                .setControllerAdvice(exceptionTranslator)
+                .setMessageConverters(jacksonMessageConverter).build();
+
+            // The JSON is written from the mapped file, with the entity tag of its version
+            restRestrictedEntityReplicaMockMvc.perform(get("/api/restricted-entities/{id}", restrictedEntity.getId()))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON_UTF8_VALUE))
+                .andExpect(header().string(HttpHeaders.ETAG, ETagUtil.eTag(restrictedEntity.getVersion())))
+                .andExpect(jsonPath("$.id").value(restrictedEntity.getId().intValue()))
+                .andExpect(jsonPath("$.myField").value(DEFAULT_MY_FIELD));
+            restRestrictedEntityReplicaMockMvc.perform(get("/api/restricted-entities/{id}", restrictedEntity.getId())
+                .header(HttpHeaders.IF_NONE_MATCH, ETagUtil.eTag(restrictedEntity.getVersion())))
+                .andExpect(status().isNotModified());
+            restRestrictedEntityReplicaMockMvc.perform(get("/api/restricted-entities/{id}", Long.MAX_VALUE))
+                .andExpect(status().isNotFound());
+        } finally {
+            replicaService.stop();
+            Files.deleteIfExists(replicaPath);
+            Files.deleteIfExists(replicaPath.getParent());
+        }
+    }
+
     @Test
     @Transactional
     public void updateRestrictedEntity() throws Exception {
@@ -204,6 +449,296 @@ public class RestrictedEntityResourceIT {
         assertThat(testRestrictedEntity.getMyField()).isEqualTo(UPDATED_MY_FIELD);
     }
 
+    @Test
+    @Transactional
+    public void updateRestrictedEntityWithIfMatch() throws Exception {
+        // Initialize the database
+        restrictedEntityRepository.saveAndFlush(restrictedEntity);
+        String eTag = ETagUtil.eTag(restrictedEntity);
+        em.detach(restrictedEntity);
+
+        // Update the restrictedEntity based on its current version, without a version in the body
+        RestrictedEntity updatedRestrictedEntity = createUpdatedEntity(em);
+        updatedRestrictedEntity.setId(restrictedEntity.getId());
+        restRestrictedEntityMockMvc.perform(put("/api/restricted-entities")
+            .header(HttpHeaders.IF_MATCH, eTag)
+            .contentType(TestUtil.APPLICATION_JSON_UTF8)
+            .content(TestUtil.convertObjectToJsonBytes(updatedRestrictedEntity)))
+            .andExpect(status().isOk())
+            .andExpect(header().exists(HttpHeaders.ETAG));
+        em.flush();
+
+        // A second update based on the same version must fail
+        RestrictedEntity staleRestrictedEntity = createEntity(em).myField("CCCCCCCCCC");
+        staleRestrictedEntity.setId(restrictedEntity.getId());
+        restRestrictedEntityMockMvc.perform(put("/api/restricted-entities")
+            .header(HttpHeaders.IF_MATCH, eTag)
+            .contentType(TestUtil.APPLICATION_JSON_UTF8)
+            .content(TestUtil.convertObjectToJsonBytes(staleRestrictedEntity)))
+            .andExpect(status().isPreconditionFailed());
+
+        // Validate the RestrictedEntity in the database
+        em.clear();
+        RestrictedEntity testRestrictedEntity = restrictedEntityRepository.findById(restrictedEntity.getId()).get();
+        assertThat(testRestrictedEntity.getMyField()).isEqualTo(UPDATED_MY_FIELD);
+        assertThat(testRestrictedEntity.getVersion()).isEqualTo(restrictedEntity.getVersion() + 1);
+    }
+
+    @Test
+    @Transactional
+    public void patchRestrictedEntity() throws Exception {
+        // Initialize the database
+        restrictedEntityRepository.saveAndFlush(restrictedEntity);
+        em.detach(restrictedEntity);
+
+        // Change myField only, based on the current version
+        restRestrictedEntityMockMvc.perform(patch("/api/restricted-entities/{id}", restrictedEntity.getId())
+            .header(HttpHeaders.IF_MATCH, ETagUtil.eTag(restrictedEntity))
+            .contentType("application/merge-patch+json")
+            .content("{\"myField\":\"" + UPDATED_MY_FIELD + "\"}"))
+            .andExpect(status().isNoContent())
+            .andExpect(header().string(HttpHeaders.ETAG, ETagUtil.eTag(restrictedEntity.getVersion() + 1)));
+
+        // Validate the RestrictedEntity in the database
+        em.clear();
+        RestrictedEntity testRestrictedEntity = restrictedEntityRepository.findById(restrictedEntity.getId()).get();
+        assertThat(testRestrictedEntity.getMyField()).isEqualTo(UPDATED_MY_FIELD);
+        assertThat(testRestrictedEntity.getVersion()).isEqualTo(restrictedEntity.getVersion() + 1);
+
+        // A null value clears the field, and no version means any version
+        restRestrictedEntityMockMvc.perform(patch("/api/restricted-entities/{id}", restrictedEntity.getId())
+            .contentType("application/merge-patch+json")
+            .content("{\"myField\":null}"))
+            .andExpect(status().isNoContent())
+            .andExpect(header().doesNotExist(HttpHeaders.ETAG));
+
+        em.clear();
+        assertThat(restrictedEntityRepository.findById(restrictedEntity.getId()).get().getMyField()).isNull();
+    }
+
+    @Test
+    @Transactional
+    public void patchRestrictedEntityWithStaleVersion() throws Exception {
+        // Initialize the database
+        restrictedEntityRepository.saveAndFlush(restrictedEntity);
+        em.detach(restrictedEntity);
+
+        restRestrictedEntityMockMvc.perform(patch("/api/restricted-entities/{id}", restrictedEntity.getId())
+            .contentType("application/merge-patch+json")
+            .content("{\"version\":" + (restrictedEntity.getVersion() + 1) + ",\"myField\":\"" + UPDATED_MY_FIELD + "\"}"))
+            .andExpect(status().isPreconditionFailed());
+
+        // Validate the RestrictedEntity in the database
+        em.clear();
+        assertThat(restrictedEntityRepository.findById(restrictedEntity.getId()).get().getMyField()).isEqualTo(DEFAULT_MY_FIELD);
+    }
+
+    @Test
+    @Transactional
+    public void patchRestrictedEntityWithInvalidPatch() throws Exception {
+        // Initialize the database
+        restrictedEntityRepository.saveAndFlush(restrictedEntity);
+
+        // Unknown or read-only fields are rejected
+        restRestrictedEntityMockMvc.perform(patch("/api/restricted-entities/{id}", restrictedEntity.getId())
+            .contentType("application/merge-patch+json")
+            .content("{\"changeSeq\":1}"))
+            .andExpect(status().isBadRequest());
+
+        // The id cannot be changed
+        restRestrictedEntityMockMvc.perform(patch("/api/restricted-entities/{id}", restrictedEntity.getId())
+            .contentType("application/merge-patch+json")
+            .content("{\"id\":" + (restrictedEntity.getId() + 1) + "}"))
+            .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @Transactional
+    public void patchNonExistingRestrictedEntity() throws Exception {
+        restRestrictedEntityMockMvc.perform(patch("/api/restricted-entities/{id}", Long.MAX_VALUE)
+            .contentType("application/merge-patch+json")
+            .content("{\"myField\":\"" + UPDATED_MY_FIELD + "\"}"))
+            .andExpect(status().isNotFound());
+    }
+
+    @Test
+    @Transactional
+    public void updateRestrictedEntities() throws Exception {
+        // Initialize the database
+        RestrictedEntity first = restrictedEntityRepository.saveAndFlush(createEntity(em));
+        RestrictedEntity second = restrictedEntityRepository.saveAndFlush(createEntity(em));
+        RestrictedEntity untouched = restrictedEntityRepository.saveAndFlush(createEntity(em));
+
+        // Update two of the restrictedEntities, ids in any order
+        RestrictedEntityBulkUpdateVM bulkUpdate = new RestrictedEntityBulkUpdateVM();
+        bulkUpdate.setIds(Arrays.asList(second.getId(), first.getId()));
+        bulkUpdate.setMyField(UPDATED_MY_FIELD);
+        restRestrictedEntityMockMvc.perform(put("/api/restricted-entities/bulk")
+            .contentType(TestUtil.APPLICATION_JSON_UTF8)
+            .content(TestUtil.convertObjectToJsonBytes(bulkUpdate)))
+            .andExpect(status().isNoContent());
+
+        // Validate the RestrictedEntities in the database
+        em.clear();
+        assertThat(restrictedEntityRepository.findById(first.getId()).get().getMyField()).isEqualTo(UPDATED_MY_FIELD);
+        assertThat(restrictedEntityRepository.findById(second.getId()).get().getMyField()).isEqualTo(UPDATED_MY_FIELD);
+        assertThat(restrictedEntityRepository.findById(untouched.getId()).get().getMyField()).isEqualTo(DEFAULT_MY_FIELD);
+    }
+
+    @Test
+    @Transactional
+    public void upsertRestrictedEntities() throws Exception {
+        // Initialize the database, with a deleted restrictedEntity
+        RestrictedEntity existing = restrictedEntityRepository.saveAndFlush(createEntity(em));
+        RestrictedEntity deleted = restrictedEntityRepository.saveAndFlush(createEntity(em));
+        restrictedEntityService.delete(deleted.getId());
+        em.flush();
+        em.clear();
+        assertThat(restrictedEntityTombstoneRepository.existsById(deleted.getId())).isTrue();
+
+        // Upsert the existing one and the deleted one
+        List<RestrictedEntity> restrictedEntities = new ArrayList<>();
+        for (Long id : Arrays.asList(existing.getId(), deleted.getId())) {
+            RestrictedEntity restrictedEntity = createUpdatedEntity(em);
+            restrictedEntity.setId(id);
+            restrictedEntities.add(restrictedEntity);
+        }
+        restRestrictedEntityMockMvc.perform(put("/api/restricted-entities/upsert")
+            .contentType(TestUtil.APPLICATION_JSON_UTF8)
+            .content(TestUtil.convertObjectToJsonBytes(restrictedEntities)))
+            .andExpect(status().isNoContent());
+
+        // Validate the RestrictedEntities in the database
+        em.clear();
+        for (RestrictedEntity restrictedEntity : restrictedEntities) {
+            assertThat(restrictedEntityRepository.findById(restrictedEntity.getId()).get().getMyField()).isEqualTo(UPDATED_MY_FIELD);
+        }
+        assertThat(restrictedEntityRepository.findById(existing.getId()).get().getVersion()).isEqualTo(existing.getVersion() + 1);
+        assertThat(restrictedEntityTombstoneRepository.existsById(deleted.getId())).isFalse();
+
+        // Upserting the same values again changes nothing
+        restRestrictedEntityMockMvc.perform(put("/api/restricted-entities/upsert")
+            .contentType(TestUtil.APPLICATION_JSON_UTF8)
+            .content(TestUtil.convertObjectToJsonBytes(restrictedEntities)))
+            .andExpect(status().isNoContent());
+
+        em.clear();
+        assertThat(restrictedEntityRepository.findById(existing.getId()).get().getVersion()).isEqualTo(existing.getVersion() + 1);
+    }
+
+    @Test
+    @Transactional
+    public void upsertRestrictedEntity() throws Exception {
+        // Initialize the database
+        restrictedEntityRepository.saveAndFlush(restrictedEntity);
+        em.detach(restrictedEntity);
+
+        RestrictedEntity updatedRestrictedEntity = createUpdatedEntity(em);
+        restRestrictedEntityMockMvc.perform(put("/api/restricted-entities/{id}", restrictedEntity.getId())
+            .contentType(TestUtil.APPLICATION_JSON_UTF8)
+            .content(TestUtil.convertObjectToJsonBytes(updatedRestrictedEntity)))
+            .andExpect(status().isNoContent());
+
+        em.clear();
+        assertThat(restrictedEntityRepository.findById(restrictedEntity.getId()).get().getMyField()).isEqualTo(UPDATED_MY_FIELD);
+
+        // The id of the body, if any, must be the one of the path
+        updatedRestrictedEntity.setId(restrictedEntity.getId() + 1);
+        restRestrictedEntityMockMvc.perform(put("/api/restricted-entities/{id}", restrictedEntity.getId())
+            .contentType(TestUtil.APPLICATION_JSON_UTF8)
+            .content(TestUtil.convertObjectToJsonBytes(updatedRestrictedEntity)))
+            .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @Transactional
+    public void upsertRestrictedEntityWithExpectedVersion() throws Exception {
+        // Initialize the database
+        restrictedEntityRepository.saveAndFlush(restrictedEntity);
+        em.detach(restrictedEntity);
+
+        // A stale version is rejected, from the If-Match header or from the body
+        RestrictedEntity updatedRestrictedEntity = createUpdatedEntity(em);
+        restRestrictedEntityMockMvc.perform(put("/api/restricted-entities/{id}", restrictedEntity.getId())
+            .header(HttpHeaders.IF_MATCH, ETagUtil.eTag(restrictedEntity.getVersion() + 1))
+            .contentType(TestUtil.APPLICATION_JSON_UTF8)
+            .content(TestUtil.convertObjectToJsonBytes(updatedRestrictedEntity)))
+            .andExpect(status().isPreconditionFailed());
+        updatedRestrictedEntity.setId(restrictedEntity.getId());
+        updatedRestrictedEntity.setVersion(restrictedEntity.getVersion() + 1);
+        restRestrictedEntityMockMvc.perform(put("/api/restricted-entities/upsert")
+            .contentType(TestUtil.APPLICATION_JSON_UTF8)
+            .content(TestUtil.convertObjectToJsonBytes(Collections.singletonList(updatedRestrictedEntity))))
+            .andExpect(status().isPreconditionFailed());
+
+        em.clear();
+        assertThat(restrictedEntityRepository.findById(restrictedEntity.getId()).get().getMyField()).isEqualTo(DEFAULT_MY_FIELD);
+
+        // The current version is accepted
+        restRestrictedEntityMockMvc.perform(put("/api/restricted-entities/{id}", restrictedEntity.getId())
+            .header(HttpHeaders.IF_MATCH, ETagUtil.eTag(restrictedEntity))
+            .contentType(TestUtil.APPLICATION_JSON_UTF8)
+            .content(TestUtil.convertObjectToJsonBytes(updatedRestrictedEntity)))
+            .andExpect(status().isNoContent());
+
+        em.clear();
+        RestrictedEntity upserted = restrictedEntityRepository.findById(restrictedEntity.getId()).get();
+        assertThat(upserted.getMyField()).isEqualTo(UPDATED_MY_FIELD);
+        assertThat(upserted.getVersion()).isEqualTo(restrictedEntity.getVersion() + 1);
+    }
+
+    @Test
+    @Transactional
+    public void upsertRestrictedEntityWithUnknownId() throws Exception {
+        // The next id of the current block of the sequence, not given yet
+        restrictedEntityRepository.saveAndFlush(restrictedEntity);
+        long id = restrictedEntity.getId() + 1;
+        restRestrictedEntityMockMvc.perform(put("/api/restricted-entities/{id}", id)
+            .contentType(TestUtil.APPLICATION_JSON_UTF8)
+            .content(TestUtil.convertObjectToJsonBytes(createUpdatedEntity(em))))
+            .andExpect(status().isBadRequest());
+
+        assertThat(restrictedEntityRepository.existsById(id)).isFalse();
+
+        // So the new restrictedEntity given that id is still created
+        restRestrictedEntityMockMvc.perform(post("/api/restricted-entities")
+            .contentType(TestUtil.APPLICATION_JSON_UTF8)
+            .content(TestUtil.convertObjectToJsonBytes(createEntity(em))))
+            .andExpect(status().isCreated());
+    }
+
+    @Test
+    @Transactional
+    public void upsertRestrictedEntitiesWithInvalidIds() throws Exception {
+        RestrictedEntity withoutId = createEntity(em);
+        restRestrictedEntityMockMvc.perform(put("/api/restricted-entities/upsert")
+            .contentType(TestUtil.APPLICATION_JSON_UTF8)
+            .content(TestUtil.convertObjectToJsonBytes(Collections.singletonList(withoutId))))
+            .andExpect(status().isBadRequest());
+
+        RestrictedEntity first = createEntity(em);
+        first.setId(1L);
+        RestrictedEntity second = createUpdatedEntity(em);
+        second.setId(1L);
+        restRestrictedEntityMockMvc.perform(put("/api/restricted-entities/upsert")
+            .contentType(TestUtil.APPLICATION_JSON_UTF8)
+            .content(TestUtil.convertObjectToJsonBytes(Arrays.asList(first, second))))
+            .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @Transactional
+    public void updateRestrictedEntitiesWithoutSelection() throws Exception {
+        RestrictedEntityBulkUpdateVM bulkUpdate = new RestrictedEntityBulkUpdateVM();
+        bulkUpdate.setMyField(UPDATED_MY_FIELD);
+
+        // Either ids or an id range is required
+        restRestrictedEntityMockMvc.perform(put("/api/restricted-entities/bulk")
+            .contentType(TestUtil.APPLICATION_JSON_UTF8)
+            .content(TestUtil.convertObjectToJsonBytes(bulkUpdate)))
+            .andExpect(status().isBadRequest());
+    }
+
     @Test
     @Transactional
     public void updateNonExistingRestrictedEntity() throws Exception {
@@ -222,6 +757,31 @@ public class RestrictedEntityResourceIT {
         assertThat(restrictedEntityList).hasSize(databaseSizeBeforeUpdate);
     }
 
+    @Test
+    @Transactional
+    public void updateDeletedRestrictedEntity() throws Exception {
+        // Initialize the database
+        restrictedEntityService.save(restrictedEntity);
+        restrictedEntityService.delete(restrictedEntity.getId());
+        em.flush();
+        em.clear();
+        int databaseSizeBeforeUpdate = restrictedEntityRepository.findAll().size();
+
+        // An entity that does not exist anymore is not inserted again
+        RestrictedEntity updatedRestrictedEntity = createUpdatedEntity(em);
+        updatedRestrictedEntity.setId(restrictedEntity.getId());
+        updatedRestrictedEntity.setVersion(restrictedEntity.getVersion());
+        restRestrictedEntityMockMvc.perform(put("/api/restricted-entities")
+            .contentType(TestUtil.APPLICATION_JSON_UTF8)
+            .content(TestUtil.convertObjectToJsonBytes(updatedRestrictedEntity)))
+            .andExpect(status().isNotFound());
+
+        // Validate the RestrictedEntity in the database
+        List<RestrictedEntity> restrictedEntityList = restrictedEntityRepository.findAll();
+        assertThat(restrictedEntityList).hasSize(databaseSizeBeforeUpdate);
+        assertThat(restrictedEntityRepository.existsById(restrictedEntity.getId())).isFalse();
+    }
+
     @Test
     @Transactional
     public void deleteRestrictedEntity() throws Exception {
@@ -240,6 +800,203 @@ public class RestrictedEntityResourceIT {
         assertThat(restrictedEntityList).hasSize(databaseSizeBeforeDelete - 1);
     }
 
+    @Test
+    @Transactional
+    public void deleteRestrictedEntitiesInRange() throws Exception {
+        // Initialize the database
+        RestrictedEntity first = restrictedEntityRepository.saveAndFlush(createEntity(em));
+        RestrictedEntity second = restrictedEntityRepository.saveAndFlush(createEntity(em));
+        RestrictedEntity kept = restrictedEntityRepository.saveAndFlush(createEntity(em));
+
+        int databaseSizeBeforeDelete = restrictedEntityRepository.findAll().size();
+
+        // Delete the first two restrictedEntities
+        restRestrictedEntityMockMvc.perform(delete("/api/restricted-entities/bulk?fromId={fromId}&toId={toId}", first.getId(), second.getId())
+            .accept(TestUtil.APPLICATION_JSON_UTF8))
+            .andExpect(status().isNoContent());
+
+        // Validate the database
+        em.clear();
+        List<RestrictedEntity> restrictedEntityList = restrictedEntityRepository.findAll();
+        assertThat(restrictedEntityList).hasSize(databaseSizeBeforeDelete - 2);
+        assertThat(restrictedEntityList).contains(kept);
+    }
+
+    @Test
+    @Transactional
+    public void getRestrictedEntityChanges() throws Exception {
+        // Initialize the database
+        RestrictedEntity updated = restrictedEntityRepository.saveAndFlush(createEntity(em));
+        RestrictedEntity deleted = restrictedEntityRepository.saveAndFlush(createEntity(em));
+        em.clear();
+        long watermark = restrictedEntityRepository.findById(deleted.getId()).get().getChangeSeq();
+
+        // Update the first restrictedEntity and delete the second one
+        RestrictedEntityBulkUpdateVM bulkUpdate = new RestrictedEntityBulkUpdateVM();
+        bulkUpdate.setIds(Collections.singletonList(updated.getId()));
+        bulkUpdate.setMyField(UPDATED_MY_FIELD);
+        restRestrictedEntityMockMvc.perform(put("/api/restricted-entities/bulk")
+            .contentType(TestUtil.APPLICATION_JSON_UTF8)
+            .content(TestUtil.convertObjectToJsonBytes(bulkUpdate)))
+            .andExpect(status().isNoContent());
+        restRestrictedEntityMockMvc.perform(delete("/api/restricted-entities/{id}", deleted.getId()))
+            .andExpect(status().isNoContent());
+        em.flush();
+        em.clear();
+
+        // Get the changes made after the watermark, in order
+        String cursor = KeysetPaginationUtil.encodeWatermarks(new long[]{watermark});
+        restRestrictedEntityMockMvc.perform(get("/api/restricted-entities/changes?cursor={cursor}", cursor))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.changes.length()").value(2))
+            .andExpect(jsonPath("$.changes[0].id").value(updated.getId().intValue()))
+            .andExpect(jsonPath("$.changes[0].deleted").value(false))
+            .andExpect(jsonPath("$.changes[0].restrictedEntity.myField").value(UPDATED_MY_FIELD))
+            .andExpect(jsonPath("$.changes[1].id").value(deleted.getId().intValue()))
+            .andExpect(jsonPath("$.changes[1].deleted").value(true))
+            .andExpect(jsonPath("$.changes[1].restrictedEntity").doesNotExist());
+
+        // A page limited to the first change moves the cursor to it only
+        long firstChangeSeq = restrictedEntityRepository.findById(updated.getId()).get().getChangeSeq();
+        restRestrictedEntityMockMvc.perform(get("/api/restricted-entities/changes?cursor={cursor}&limit=1", cursor))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.changes.length()").value(1))
+            .andExpect(jsonPath("$.cursor").value(KeysetPaginationUtil.encodeWatermarks(new long[]{firstChangeSeq})));
+
+        // A malformed cursor is rejected
+        restRestrictedEntityMockMvc.perform(get("/api/restricted-entities/changes?cursor={cursor}",
+            KeysetPaginationUtil.encodeCursor(updated.getId())))
+            .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @Transactional
+    public void getRestrictedEntityChangesAfterPurgedTombstones() throws Exception {
+        // Initialize the database
+        RestrictedEntity deleted = restrictedEntityRepository.saveAndFlush(createEntity(em));
+        em.clear();
+        long watermark = restrictedEntityRepository.findById(deleted.getId()).get().getChangeSeq();
+        restRestrictedEntityMockMvc.perform(delete("/api/restricted-entities/{id}", deleted.getId()))
+            .andExpect(status().isNoContent());
+        em.flush();
+
+        // Age the tombstone past its retention and purge it
+        RestrictedEntityTombstone tombstone = restrictedEntityTombstoneRepository.findById(deleted.getId()).get();
+        tombstone.setDeletedDate(Instant.now().minus(applicationProperties.getChangeFeed().getTombstoneRetention()).minusSeconds(60));
+        restrictedEntityTombstoneRepository.saveAndFlush(tombstone);
+        restrictedEntityChangeFeed.purgeTombstones();
+        em.clear();
+        assertThat(restrictedEntityTombstoneRepository.findById(deleted.getId())).isEmpty();
+
+        // The deletion cannot be read anymore, the client must start over
+        restRestrictedEntityMockMvc.perform(get("/api/restricted-entities/changes?cursor={cursor}",
+            KeysetPaginationUtil.encodeWatermarks(new long[]{watermark})))
+            .andExpect(status().isGone())
+            .andExpect(jsonPath("$.message").value(ErrorConstants.ERR_RESYNC_REQUIRED));
+        restRestrictedEntityMockMvc.perform(get("/api/restricted-entities/changes"))
+            .andExpect(status().isOk());
+    }
+
+    @Test
+    public void streamRestrictedEntityChanges() throws Exception {
+        // Server-sent events are written as text, next to the JSON payloads
+        MockMvc restRestrictedEntityStreamMockMvc = MockMvcBuilders.standaloneSetup(new RestrictedEntityResource(restrictedEntityService,
+            restrictedEntityQueryService, jacksonMessageConverter.getObjectMapper(), applicationProperties,
+            restrictedEntityChangeStreamService, restrictedEntityJsonService, restrictedEntityReplicaService))
+            .setMessageConverters(new StringHttpMessageConverter(), jacksonMessageConverter).build();
+        MvcResult result = restRestrictedEntityStreamMockMvc.perform(get("/api/restricted-entities/stream")
+            .accept(MediaType.TEXT_EVENT_STREAM))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+
+        // Create a restrictedEntity in its own, committed, transaction
+        RestrictedEntity created = restrictedEntityService.save(createEntity(em));
+        try {
+            String expected = "\"ids\":[" + created.getId() + "]";
+            long deadline = System.currentTimeMillis() + 5000;
+            while (!result.getResponse().getContentAsString().contains(expected) && System.currentTimeMillis() < deadline) {
+                Thread.sleep(20);
+            }
+            assertThat(result.getResponse().getContentAsString())
+                .contains("event:" + RestrictedEntityChangeStreamService.CHANGE_EVENT_NAME)
+                .contains("\"type\":\"CREATED\"")
+                .contains(expected);
+        } finally {
+            restrictedEntityService.delete(created.getId());
+        }
+    }
+
+    @Test
+    public void getNonExistingRestrictedEntityWithoutDatabase() throws Exception {
+        // Build the Bloom filter, outside of any transaction like the requests
+        restrictedEntityExistenceService.sync();
+
+        // An id that never existed is ruled out by the Bloom filter, once a higher one is known
+        RestrictedEntity created = restrictedEntityService.save(createEntity(em));
+        double bloomFilterNotFound = notFoundCount("bloom.filter");
+        restRestrictedEntityMockMvc.perform(get("/api/restricted-entities/{id}", -1L))
+            .andExpect(status().isNotFound());
+        assertThat(notFoundCount("bloom.filter")).isEqualTo(bloomFilterNotFound + 1);
+
+        // A higher id may have been created by another instance, so it is looked up in the database
+        double databaseNotFoundAbove = notFoundCount("database");
+        restRestrictedEntityMockMvc.perform(get("/api/restricted-entities/{id}", Long.MAX_VALUE))
+            .andExpect(status().isNotFound());
+        assertThat(notFoundCount("database")).isEqualTo(databaseNotFoundAbove + 1);
+
+        // A new id is added to the Bloom filter
+        restRestrictedEntityMockMvc.perform(get("/api/restricted-entities/{id}", created.getId()))
+            .andExpect(status().isOk());
+
+        // A deleted id is still in the Bloom filter, and then remembered as not found
+        restrictedEntityService.delete(created.getId());
+        double databaseNotFound = notFoundCount("database");
+        double negativeCacheNotFound = notFoundCount("negative.cache");
+        restRestrictedEntityMockMvc.perform(get("/api/restricted-entities/{id}", created.getId()))
+            .andExpect(status().isNotFound());
+        restRestrictedEntityMockMvc.perform(get("/api/restricted-entities/{id}", created.getId()))
+            .andExpect(status().isNotFound());
+        assertThat(notFoundCount("database")).isEqualTo(databaseNotFound + 1);
+        assertThat(notFoundCount("negative.cache")).isEqualTo(negativeCacheNotFound + 1);
+        assertThat(meterRegistry.get("restricted.entity.bloom.filter.false.positive.rate").gauge().value()).isPositive();
+    }
+
+    @Test
+    public void getRestrictedEntityFromJsonCache() throws Exception {
+        // Create a restrictedEntity in its own, committed, transaction
+        RestrictedEntity created = restrictedEntityService.save(createEntity(em));
+        try {
+            restRestrictedEntityMockMvc.perform(get("/api/restricted-entities/{id}", created.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.myField").value(DEFAULT_MY_FIELD));
+            assertThat(restrictedEntityJsonService.findCached(created.getId())).isPresent();
+
+            // The cached bytes are written as is, with the entity tag of their version
+            restRestrictedEntityMockMvc.perform(get("/api/restricted-entities/{id}", created.getId()))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON_UTF8_VALUE))
+                .andExpect(header().string(HttpHeaders.ETAG, ETagUtil.eTag(created.getVersion())))
+                .andExpect(jsonPath("$.myField").value(DEFAULT_MY_FIELD));
+            restRestrictedEntityMockMvc.perform(get("/api/restricted-entities/{id}", created.getId())
+                .header(HttpHeaders.IF_NONE_MATCH, ETagUtil.eTag(created.getVersion())))
+                .andExpect(status().isNotModified());
+
+            // An update evicts the cached bytes
+            restrictedEntityService.updateAll(Collections.singletonList(created.getId()), UPDATED_MY_FIELD);
+            assertThat(restrictedEntityJsonService.findCached(created.getId())).isNotPresent();
+            restRestrictedEntityMockMvc.perform(get("/api/restricted-entities/{id}", created.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.myField").value(UPDATED_MY_FIELD));
+        } finally {
+            restrictedEntityService.delete(created.getId());
+        }
+        assertThat(restrictedEntityJsonService.findCached(created.getId())).isNotPresent();
+    }
+
+    private double notFoundCount(String source) {
+        return meterRegistry.get("restricted.entity.not.found").tag("source", source).counter().count();
+    }
+
     @Test
     @Transactional
     public void equalsVerifier() throws Exception {
@@ -51,6 +51,18 @@ public final class TestUtil {
         return mapper.writeValueAsBytes(object);
     }
 
+    /**
+     * Convert a JSON byte array to an object.
+     *
+     * @param json the JSON byte array.
+     * @param type the type of the object.
+     * @return the object.
+     * @throws IOException
+     */
+    public static <T> T convertJsonBytesToObject(byte[] json, Class<T> type) throws IOException {
+        return mapper.readValue(json, type);
+    }
+
     /**
      * Create a byte array with a specific size filled with specified data.
      *
@@ -1,6 +1,7 @@
 package com.mycompany.myapp.web.rest.errors;
 
 import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.HttpStatus;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.security.authentication.BadCredentialsException;
@@ -17,6 +18,11 @@ public class ExceptionTranslatorTestController {
         throw new ConcurrencyFailureException("test concurrency failure");
     }
 
+    @GetMapping("/test/optimistic-locking-failure")
+    public void optimisticLockingFailure() {
+        throw new OptimisticLockingFailureException("test optimistic locking failure");
+    }
+
     @PostMapping("/test/method-argument")
     public void methodArgument(@Valid @RequestBody TestDTO testDTO) {
     }